@@ -0,0 +1,85 @@
+package com.example.aicamera;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tensorflow.lite.Interpreter;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures how many crops per second the interpreter classifies for every multi-crop batch size.
+ * Results are written to logcat under the BatchThroughput tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatchThroughputBenchmark {
+
+    private static final String MODEL_PATH = "efficientnet_lite0_224.tflite";
+    private static final int SIZE = 224;
+    private static final int LABELS = 1000;
+    private static final int WARM_UP_RUNS = 3;
+    private static final int RUNS = 20;
+
+    private static ByteBuffer loadModel(Context context) throws IOException {
+        AssetFileDescriptor fileDescriptor = context.getAssets().openFd(MODEL_PATH);
+        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+        FileChannel fileChannel = inputStream.getChannel();
+        ByteBuffer model = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                fileDescriptor.getStartOffset(), fileDescriptor.getDeclaredLength());
+        fileChannel.close();
+        inputStream.close();
+        fileDescriptor.close();
+        return model;
+    }
+
+    @Test
+    public void throughputPerBatchSize() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(2);
+        Interpreter interpreter = new Interpreter(loadModel(context), options);
+        Preprocessor preprocessor = new Preprocessor(SIZE, SIZE, 3, Classifier.MAX_BATCH_SIZE,
+                127.5f, 127.5f, false, LABELS);
+        MultiCrop multiCrop = MultiCrop.centerAndCorners(0.8f, MultiCrop.MEAN);
+        float[] scores = new float[LABELS];
+        int[] pixels = preprocessor.getPixels();
+
+        for (int batchSize = 1; batchSize <= Classifier.MAX_BATCH_SIZE; batchSize++) {
+            interpreter.resizeInput(0, new int[]{batchSize, SIZE, SIZE, 3});
+            float[][] output = preprocessor.getLabelProbArrayFloat(batchSize);
+            long start = 0;
+            for (int run = 0; run < WARM_UP_RUNS + RUNS; run++) {
+                if (run == WARM_UP_RUNS) {
+                    start = SystemClock.elapsedRealtimeNanos();
+                }
+                preprocessor.beginFrame();
+                for (int image = 0; image < batchSize; image++) {
+                    for (int row = 0; row < SIZE; row++) {
+                        preprocessor.putRow(pixels, row * SIZE);
+                    }
+                }
+                interpreter.run(preprocessor.endFrame(), output);
+                multiCrop.aggregate(output, batchSize, scores);
+            }
+            double seconds = (SystemClock.elapsedRealtimeNanos() - start) / 1e9;
+            Log.i("BatchThroughput", String.format(Locale.US,
+                    "batch %d: %.1f ms/invocation, %.1f crops/s",
+                    batchSize, 1000 * seconds / RUNS, batchSize * RUNS / seconds));
+            assertTrue(seconds > 0);
+        }
+        interpreter.close();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.aicamera;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * Compares the float and the full integer EfficientNet-Lite0 on the CPU: preprocessing and invocation
+ * latency, model size and the native memory the interpreter allocates.
+ * Results are written to logcat under the QuantizedModel tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QuantizedModelBenchmark {
+
+    private static final String FLOAT_MODEL_PATH = "efficientnet_lite0_224.tflite";
+    private static final String INT8_MODEL_PATH = "efficientnet_lite0_int8_224.tflite";
+    private static final int LABELS = 1000;
+    private static final int THREADS = 2;
+    private static final int WARM_UP_RUNS = 3;
+    private static final int RUNS = 20;
+
+    private static ByteBuffer loadModel(Context context, String path) throws IOException {
+        AssetFileDescriptor fileDescriptor = context.getAssets().openFd(path);
+        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+        FileChannel fileChannel = inputStream.getChannel();
+        ByteBuffer model = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                fileDescriptor.getStartOffset(), fileDescriptor.getDeclaredLength());
+        fileChannel.close();
+        inputStream.close();
+        fileDescriptor.close();
+        return model;
+    }
+
+    private static void measure(Context context, String path) throws IOException {
+        assumeTrue(path + " is not bundled", Arrays.asList(context.getAssets().list("")).contains(path));
+        ByteBuffer model = loadModel(context, path);
+        long nativeBefore = Debug.getNativeHeapAllocatedSize();
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(THREADS);
+        Interpreter interpreter = new Interpreter(model, options);
+
+        Tensor input = interpreter.getInputTensor(0);
+        Tensor output = interpreter.getOutputTensor(0);
+        int[] shape = input.shape();
+        boolean isQuantized = input.dataType() != DataType.FLOAT32;
+        Preprocessor preprocessor = new Preprocessor(shape[2], shape[1], shape[3], 1, 127.5f, 127.5f,
+                isQuantized, input.quantizationParams().getScale(), input.quantizationParams().getZeroPoint(),
+                input.dataType() == DataType.INT8, LABELS);
+        Object outputs = isQuantized ? preprocessor.getLabelProbArrayByte(1) : preprocessor.getLabelProbArrayFloat(1);
+        // the tensors are allocated by the first run
+        interpreter.run(preprocessor.convertPixels(), outputs);
+        long nativeBytes = Debug.getNativeHeapAllocatedSize() - nativeBefore;
+
+        long preprocessNs = 0;
+        long inferenceNs = 0;
+        for (int run = 0; run < WARM_UP_RUNS + RUNS; run++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            ByteBuffer imageData = preprocessor.convertPixels();
+            long converted = SystemClock.elapsedRealtimeNanos();
+            interpreter.run(imageData, outputs);
+            if (run >= WARM_UP_RUNS) {
+                preprocessNs += converted - start;
+                inferenceNs += SystemClock.elapsedRealtimeNanos() - converted;
+            }
+        }
+        Log.i("QuantizedModel", String.format(Locale.US,
+                "%s (%s in, %s out): preprocess %.2f ms, invoke %.1f ms, model %d KB, native heap %d KB",
+                path, input.dataType(), output.dataType(), preprocessNs / 1e6 / RUNS, inferenceNs / 1e6 / RUNS,
+                model.capacity() / 1024, nativeBytes / 1024));
+        assertTrue(inferenceNs > 0);
+        interpreter.close();
+    }
+
+    @Test
+    public void floatModel() throws IOException {
+        measure(InstrumentationRegistry.getInstrumentation().getTargetContext(), FLOAT_MODEL_PATH);
+    }
+
+    @Test
+    public void int8Model() throws IOException {
+        measure(InstrumentationRegistry.getInstrumentation().getTargetContext(), INT8_MODEL_PATH);
+    }
+}
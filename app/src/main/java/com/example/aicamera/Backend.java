@@ -0,0 +1,86 @@
+package com.example.aicamera;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.util.Locale;
+
+class Backend {
+
+    // CONSTANTS
+    static final int CPU = 0;
+    static final int XNNPACK = 1;
+    static final int NNAPI = 2;
+    static final int GPU = 3;
+    private static final String[] NAMES = {"cpu", "xnnpack", "nnapi", "gpu"};
+
+    // VARIABLES
+    private final int mNumThreads;
+    private final int mType;
+
+    // CONSTRUCTOR
+    Backend(int type, int numThreads) {
+        if (type < CPU || type > GPU) {
+            throw new IllegalArgumentException("Unknown backend " + type);
+        }
+        mType = type;
+        mNumThreads = numThreads;
+    }
+
+    // METHODS
+    // Options for this backend, the GPU delegate is left to the caller since it has to be closed separately.
+    Interpreter.Options createOptions() {
+        Interpreter.Options options = new Interpreter.Options();
+        if (mNumThreads > 0) {
+            options.setNumThreads(mNumThreads);
+        }
+        if (mType == XNNPACK) {
+            options.setUseXNNPACK(true);
+        } else if (mType == NNAPI) {
+            options.setUseNNAPI(true);
+        }
+        return options;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Backend)) {
+            return false;
+        }
+        Backend other = (Backend) o;
+        return mType == other.mType && mNumThreads == other.mNumThreads;
+    }
+
+    int getNumThreads() {
+        return mNumThreads;
+    }
+
+    int getType() {
+        return mType;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * mType + mNumThreads;
+    }
+
+    // Reads the "type:threads" form written by toString.
+    static Backend parse(String text) {
+        int colon = text.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Not a backend: " + text);
+        }
+        String name = text.substring(0, colon);
+        for (int type = 0; type < NAMES.length; type++) {
+            if (NAMES[type].equals(name)) {
+                return new Backend(type, Integer.parseInt(text.substring(colon + 1)));
+            }
+        }
+        throw new IllegalArgumentException("Not a backend: " + text);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s:%d", NAMES[mType], mNumThreads);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.example.aicamera;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+class BackendStore {
+
+    // VARIABLES
+    private final File mFile;
+    private final Properties mResults = new Properties();
+
+    // CONSTRUCTOR
+    // A missing or unreadable file starts an empty store, it only means tuning runs again.
+    BackendStore(File file) {
+        mFile = file;
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                mResults.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            mResults.clear();
+        }
+    }
+
+    // METHODS
+    synchronized BackendTuner.Result get(String device, String modelKey) {
+        String value = mResults.getProperty(key(device, modelKey));
+        if (value == null) {
+            return null;
+        }
+        try {
+            return BackendTuner.Result.parse(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String key(String device, String modelKey) {
+        return device + "/" + modelKey;
+    }
+
+    synchronized void put(String device, String modelKey, BackendTuner.Result result) throws IOException {
+        mResults.setProperty(key(device, modelKey), result.toString());
+        OutputStream out = new FileOutputStream(mFile);
+        try {
+            mResults.store(out, "Fastest backend per device/model: type:threads p50_ms p95_ms");
+        } finally {
+            out.close();
+        }
+    }
+
+}
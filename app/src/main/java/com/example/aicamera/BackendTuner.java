@@ -0,0 +1,249 @@
+package com.example.aicamera;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+class BackendTuner {
+
+    // Runs models on the host, the TFLite interpreter on the device.
+    interface Interpreters {
+        // Throws when the backend cannot run the model.
+        Trial open(ByteBuffer model, Backend backend, Interpreter.Options options) throws IOException;
+    }
+
+    interface Trial {
+        void run();
+
+        void close();
+    }
+
+    interface TrialFactory {
+        // Throws when the backend is not available on this device.
+        Trial open(Backend backend) throws IOException;
+    }
+
+    static class Result {
+
+        // VARIABLES
+        private final Backend mBackend;
+        private final float mP50Ms;
+        private final float mP95Ms;
+
+        // CONSTRUCTOR
+        Result(Backend backend, float p50Ms, float p95Ms) {
+            mBackend = backend;
+            mP50Ms = p50Ms;
+            mP95Ms = p95Ms;
+        }
+
+        // METHODS
+        Backend getBackend() {
+            return mBackend;
+        }
+
+        float getP50Ms() {
+            return mP50Ms;
+        }
+
+        float getP95Ms() {
+            return mP95Ms;
+        }
+
+        // Reads the "type:threads p50 p95" form written by toString.
+        static Result parse(String text) {
+            String[] parts = text.trim().split(" +");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Not a tuning result: " + text);
+            }
+            return new Result(Backend.parse(parts[0]), Float.parseFloat(parts[1]), Float.parseFloat(parts[2]));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s %.3f %.3f", mBackend, mP50Ms, mP95Ms);
+        }
+
+    }
+
+    // CONSTANTS
+    static final int DEFAULT_RUNS = 10;
+    static final int DEFAULT_WARM_UP_RUNS = 3;
+    static final Interpreters TFLITE = new Interpreters() {
+        @Override
+        public Trial open(ByteBuffer model, Backend backend, Interpreter.Options options) {
+            return interpreterTrial(model, options, null);
+        }
+    };
+
+    // VARIABLES
+    private final TrialFactory mFactory;
+    private final int mRuns;
+    private final int mWarmUpRuns;
+
+    // CONSTRUCTOR
+    BackendTuner(TrialFactory factory, int warmUpRuns, int runs) {
+        if (runs < 1) {
+            throw new IllegalArgumentException("At least one measured run is needed");
+        }
+        mFactory = factory;
+        mWarmUpRuns = warmUpRuns;
+        mRuns = runs;
+    }
+
+    // METHODS
+    // CPU with 1 to maxThreads threads and XNNPACK with as many, followed by the accelerators asked for.
+    static List<Backend> candidates(int maxThreads, boolean withNnapi, boolean withGpu) {
+        List<Backend> candidates = new ArrayList<>();
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            candidates.add(new Backend(Backend.CPU, threads));
+        }
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            candidates.add(new Backend(Backend.XNNPACK, threads));
+        }
+        if (withNnapi) {
+            candidates.add(new Backend(Backend.NNAPI, 1));
+        }
+        if (withGpu) {
+            candidates.add(new Backend(Backend.GPU, 1));
+        }
+        return candidates;
+    }
+
+    // Runs the model on zero-filled input with the given options, the delegate, if any, is closed with the trial.
+    static Trial interpreterTrial(ByteBuffer model, Interpreter.Options options, final Closeable delegate) {
+        final Interpreter interpreter;
+        try {
+            interpreter = new Interpreter(model, options);
+        } catch (RuntimeException e) {
+            if (delegate != null) {
+                try {
+                    delegate.close();
+                } catch (IOException closeException) {
+                    closeException.printStackTrace();
+                }
+            }
+            throw e;
+        }
+        Tensor input = interpreter.getInputTensor(0);
+        Tensor output = interpreter.getOutputTensor(0);
+        final ByteBuffer inputBuffer = ByteBuffer.allocateDirect(input.numBytes()).order(ByteOrder.nativeOrder());
+        final ByteBuffer outputBuffer = ByteBuffer.allocateDirect(output.numBytes()).order(ByteOrder.nativeOrder());
+        return new Trial() {
+            @Override
+            public void run() {
+                inputBuffer.rewind();
+                outputBuffer.rewind();
+                interpreter.run(inputBuffer, outputBuffer);
+            }
+
+            @Override
+            public void close() {
+                interpreter.close();
+                if (delegate != null) {
+                    try {
+                        delegate.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        };
+    }
+
+    // Trials for every backend but the GPU, which needs the Android delegate.
+    static TrialFactory interpreterTrials(final ByteBuffer model, final Interpreters interpreters) {
+        return new TrialFactory() {
+            @Override
+            public Trial open(Backend backend) throws IOException {
+                if (backend.getType() == Backend.GPU) {
+                    throw new IOException("No GPU delegate for " + backend);
+                }
+                return interpreters.open(model, backend, backend.createOptions());
+            }
+        };
+    }
+
+    // The latency of one backend, or null when it cannot run the model.
+    Result measure(Backend backend) {
+        Trial trial;
+        try {
+            trial = mFactory.open(backend);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        long[] samples = new long[mRuns];
+        try {
+            for (int run = 0; run < mWarmUpRuns; run++) {
+                trial.run();
+            }
+            for (int run = 0; run < mRuns; run++) {
+                long start = System.nanoTime();
+                trial.run();
+                samples[run] = System.nanoTime() - start;
+            }
+        } catch (RuntimeException e) {
+            return null;
+        } finally {
+            trial.close();
+        }
+        Arrays.sort(samples);
+        return new Result(backend, percentile(samples, 50) / 1e6f, percentile(samples, 95) / 1e6f);
+    }
+
+    // Identifies the model by what changes when it is replaced, its asset, its size and the app version that
+    // ships it, without reading it.
+    static String modelKey(String modelPath, long length, long versionCode) {
+        return String.format(Locale.US, "%s:%d:%d", modelPath, length, versionCode);
+    }
+
+    // Nearest-rank percentile of sorted samples.
+    static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    // The result stored for the device and model, otherwise the fastest of the candidates, which is stored.
+    // Null if none runs, then the next start tunes again.
+    Result select(BackendStore store, String device, String modelKey, List<Backend> candidates) {
+        Result result = store.get(device, modelKey);
+        if (result != null) {
+            return result;
+        }
+        result = tune(candidates);
+        if (result == null) {
+            return null;
+        }
+        try {
+            store.put(device, modelKey, result);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    // The backend with the lowest median latency, the 95th percentile breaking ties, or null if none runs.
+    Result tune(List<Backend> candidates) {
+        Result best = null;
+        for (Backend backend : candidates) {
+            Result result = measure(backend);
+            if (result == null) {
+                continue;
+            }
+            if (best == null || result.getP50Ms() < best.getP50Ms()
+                    || (result.getP50Ms() == best.getP50Ms() && result.getP95Ms() < best.getP95Ms())) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.example.aicamera;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+class Burst {
+
+    interface Targets {
+        // Where the frame-th photo of the burst is stored, named apart from the other frames with suffix(frame).
+        CaptureWriter.Target create(int frame);
+    }
+
+    // CONSTANTS
+    // 32 buckets per power of two, up to 10 s
+    private static final long MAX_LATENCY_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final int SUB_BUCKET_BITS = 5;
+
+    // VARIABLES
+    private final Set<CaptureWriter.Capture> mCaptures = new HashSet<>();
+    private boolean mCancelled;
+    private int mFailed;
+    private final int mFrames;
+    private long mLastReadyNs;
+    private int mRequested;
+    private long mStartNs = -1;
+    private final Targets mTargets;
+    private int mWritten;
+    private final LatencyHistogram mWriteLatency = new LatencyHistogram(MAX_LATENCY_NS, SUB_BUCKET_BITS);
+    private final CaptureWriter mWriter;
+
+    // CONSTRUCTOR
+    // Takes frames photos as fast as the writer stores them. The camera is only asked for the frames the
+    // writer has room for, and for more as they are written, so a slow storage slows the burst down instead
+    // of dropping frames or holding back the preview.
+    Burst(CaptureWriter writer, Targets targets, int frames) {
+        mWriter = writer;
+        mTargets = targets;
+        mFrames = frames;
+    }
+
+    // METHODS
+    // Gives up the frames that are not taken yet, the burst is done once those being written are.
+    synchronized void cancel() {
+        mCancelled = true;
+        List<CaptureWriter.Capture> captures = new ArrayList<>(mCaptures);
+        for (CaptureWriter.Capture capture : captures) {
+            if (mWriter.cancel(capture)) {
+                mCaptures.remove(capture);
+                mFailed++;
+            }
+        }
+    }
+
+    // Frames, rate and the write latency percentiles in milliseconds.
+    synchronized String format() {
+        return String.format(Locale.US, "Burst: %d of %d frames at %.1f fps, write p50 %.1f  p95 %.1f  max %.1f ms, %d failed",
+                mWritten, mFrames, getFps(), mWriteLatency.getValueAtPercentile(50) / 1e6,
+                mWriteLatency.getValueAtPercentile(95) / 1e6, mWriteLatency.getMax() / 1e6, mFailed);
+    }
+
+    synchronized int getFailed() {
+        return mFailed;
+    }
+
+    // Frames stored per second, from the first request to the last frame in storage.
+    synchronized float getFps() {
+        if (mWritten == 0 || mLastReadyNs <= mStartNs) {
+            return 0;
+        }
+        return mWritten * 1e9f / (mLastReadyNs - mStartNs);
+    }
+
+    LatencyHistogram getWriteLatency() {
+        return mWriteLatency;
+    }
+
+    synchronized int getWritten() {
+        return mWritten;
+    }
+
+    synchronized boolean isDone() {
+        return mCaptures.isEmpty() && (mCancelled || mRequested == mFrames);
+    }
+
+    // The camera failed to take the frame of the capture, false if it is not one of this burst.
+    synchronized boolean onFailed(CaptureWriter.Capture capture) {
+        if (!mCaptures.remove(capture)) {
+            return false;
+        }
+        mWriter.cancel(capture);
+        mFailed++;
+        return true;
+    }
+
+    // Called from the writer's listener, false if the capture is not one of this burst.
+    synchronized boolean onWritten(CaptureWriter.Capture capture, boolean saved) {
+        if (!mCaptures.remove(capture)) {
+            return false;
+        }
+        if (saved) {
+            mWritten++;
+            mWriteLatency.record(capture.getWriteNs());
+        } else {
+            mFailed++;
+        }
+        mLastReadyNs = Math.max(mLastReadyNs, capture.getReadyNs());
+        return true;
+    }
+
+    // The next frames to ask the camera for, as many as the writer has room for. Empty once every frame is
+    // requested, or until a frame is written.
+    synchronized List<CaptureWriter.Capture> reserve(long nowNs) {
+        List<CaptureWriter.Capture> captures = new ArrayList<>();
+        while (!mCancelled && mRequested < mFrames) {
+            // the target is only created once there is room for it
+            CaptureWriter.Capture capture = mWriter.begin(null, nowNs);
+            if (capture == null) {
+                break;
+            }
+            capture.setTarget(mTargets.create(mRequested));
+            mCaptures.add(capture);
+            captures.add(capture);
+            mRequested++;
+        }
+        if (mStartNs < 0 && !captures.isEmpty()) {
+            mStartNs = nowNs;
+        }
+        return captures;
+    }
+
+    // What tells the frame apart from the others of the burst in its name: a burst takes several frames
+    // within the same millisecond, which a timestamp alone does not tell apart.
+    static String suffix(int frame) {
+        return String.format(Locale.US, "_B%02d", frame);
+    }
+
+}
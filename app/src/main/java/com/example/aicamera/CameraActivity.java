@@ -12,12 +12,11 @@ import android.Manifest;
 import android.annotation.SuppressLint;
 import android.app.ActionBar;
 import android.app.Activity;
-import android.content.ContentResolver;
-import android.content.ContentValues;
+import android.app.ActivityManager;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
-import android.graphics.Bitmap;
 import android.graphics.ImageFormat;
+import android.graphics.Matrix;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.SurfaceTexture;
@@ -33,16 +32,12 @@ import android.hardware.camera2.CaptureResult;
 import android.hardware.camera2.TotalCaptureResult;
 import android.media.Image;
 import android.media.ImageReader;
-import android.media.MediaScannerConnection;
-import android.net.Uri;
-import android.os.Build;
 import android.os.Bundle;
 import android.os.CountDownTimer;
-import android.os.Environment;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.SystemClock;
-import android.provider.MediaStore;
+import android.util.Log;
 import android.util.Rational;
 import android.util.Size;
 import android.util.TypedValue;
@@ -56,15 +51,10 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.ByteBuffer;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -72,10 +62,49 @@ import java.util.concurrent.TimeUnit;
 public class CameraActivity extends AppCompatActivity {
 
     // CONSTANTS
+    private static final String TAG = "CameraActivity";
     private static final int PERMISSION_REQUEST_CODE = 101;
     private static final int MAX_PREVIEW_WIDTH = 1080;
     private static final int MAX_PREVIEW_HEIGHT = 1920;
     private static final int PRECAPTURE_TIMEOUT_MS = 1000;
+    private static final int MAX_CLASSIFICATION_FPS = InferencePipeline.UNLIMITED;
+    private static final int ANALYSIS_MIN_SIZE = 224;
+    private static final boolean USE_MULTI_CROP = false;
+    private static final boolean USE_REGION_OF_INTEREST = false;
+    private static final int ROI_ANALYSIS_MIN_SIZE = 4 * ANALYSIS_MIN_SIZE;
+    private static final boolean USE_TILING = false;
+    private static final boolean USE_DETECTION = false;
+    private static final int TILING_MAX_GRID_SIZE = 3;
+    private static final float TILING_OVERLAP = 0.25f;
+    private static final int TILING_TARGET_FPS = 10;
+    private static final float TILING_LATENCY_ALPHA = 0.2f;
+    private static final int TILING_MAX_REGIONS = 4;
+    private static final String SECONDARY_MODEL = "";
+    private static final int FAN_OUT_THREADS = 2;
+    private static final long FAN_OUT_DEADLINE_NS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final float SMOOTHING_ALPHA = 0.3f;
+    private static final float SMOOTHING_MARGIN = 0.05f;
+    private static final int SMOOTHING_STABLE_FRAMES = 3;
+    private static final int SCENE_GRID_SIZE = 16;
+    private static final int SCENE_SAMPLES_PER_CELL = 4;
+    private static final float SCENE_CHANGE_THRESHOLD = 4f;
+    private static final long SCENE_MAX_AGE_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final String PREFERENCE_MODEL = "model";
+    private static final int WARM_UP_RUNS = 2;
+    private static final boolean USE_METRICS_OVERLAY = false;
+    private static final long METRICS_OVERLAY_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final String METRICS_FILE = "metrics.txt";
+    private static final int CAPTURE_WRITER_THREADS = 2;
+    // deep enough for a burst to keep the camera busy while earlier frames are written
+    private static final int MAX_PENDING_CAPTURES = 8;
+    private static final int BURST_FRAMES = 20;
+    private static final boolean USE_ZSL = false;
+    private static final int ZSL_FRAMES = 4;
+    private static final long ZSL_MEMORY_CAP_BYTES = 96L << 20;
+    private static final int ZSL_SELECTION = ZslRing.SHARPEST;
+    private static final long ZSL_WINDOW_NS = TimeUnit.MILLISECONDS.toNanos(150);
+    private static final long CAPTURE_DRAIN_TIMEOUT_MS = 2000;
+    private static final int CAPTURE_LABELS = 3;
 
         // camera state
     private static final int STATE_CLOSED = -1;
@@ -91,8 +120,24 @@ public class CameraActivity extends AppCompatActivity {
     private static final int TORCH = 4;
 
     // VARIABLES
+    private ImageReader mAnalysisImageReader;
     private Handler mBackgroundHandler;
     private HandlerThread mBackgroundThread;
+    private volatile Burst mBurst;
+    private final CameraCaptureSession.CaptureCallback mBurstCaptureCallback = new CameraCaptureSession.CaptureCallback() {
+        @Override
+        public void onCaptureStarted(@NonNull CameraCaptureSession session, @NonNull CaptureRequest request, long timestamp, long frameNumber) {
+            ((CaptureWriter.Capture) request.getTag()).setTimestamp(timestamp);
+        }
+
+        @Override
+        public void onCaptureFailed(@NonNull CameraCaptureSession session, @NonNull CaptureRequest request, @NonNull CaptureFailure failure) {
+            Burst burst = mBurst;
+            if (burst != null && !failure.wasImageCaptured() && burst.onFailed((CaptureWriter.Capture) request.getTag())) {
+                requestBurstFrames(burst);
+            }
+        }
+    };
     private CameraCaptureSession mCameraCaptureSession;
     private CameraDevice mCameraDevice;
     private final CameraDevice.StateCallback mCameraDeviceStateCallback = new CameraDevice.StateCallback() {
@@ -131,46 +176,83 @@ public class CameraActivity extends AppCompatActivity {
     };
     private final Semaphore mCameraOpenCloseLock = new Semaphore(1);
     private long mCaptureTimer;
-    private Classifier mClassifier;
-    private Size mFinalSize;
+    // selects the labels of a photo at shutter time, and guards the swap of the smoother it selects from
+    private final TopK mCaptureTopK = new TopK(CAPTURE_LABELS);
+    private CaptureWriter mCaptureWriter;
+    private int mDisplayedLabel = LabelSmoother.NONE;
+    private int mDisplayedSecondaryLabel = LabelSmoother.NONE;
+    private volatile InferenceEngine mEngine;
+    private FanOut<Image, InputSpec> mFanOut;
+    private Classifier mFanOutSecondary;
     private float mFingerSpacing = 0;
     private ImageButton mFlashButton;
-    private String mImageFileLocation;
     private ImageReader mImageReader;
+    private InferenceViewModel mInference;
+    private InferencePipeline<Image> mInferencePipeline;
     private Float mMaximumZoomLevel;
+    private final Metrics mMetrics = new Metrics();
+    private long mMetricsShownNs;
+    private TextView mMetricsTextView;
     private MDSpecs mMobileDevice;
+    private ModelRegistry mModelRegistry;
+    private CaptureWriter.Capture mNextCapture;
     private boolean mNoAFRun = false;
-    private final ImageReader.OnImageAvailableListener mOnImageAvailableListener = new ImageReader.OnImageAvailableListener() {
+    private final ImageReader.OnImageAvailableListener mOnAnalysisImageAvailableListener = new ImageReader.OnImageAvailableListener() {
         @Override
-        public void onImageAvailable(final ImageReader reader) {
-            if (reader == null) {
+        public void onImageAvailable(ImageReader reader) {
+            // The reader keeps a few images so this one can wait while the previous one is classified.
+            long start = SystemClock.elapsedRealtimeNanos();
+            Image image = reader.acquireLatestImage();
+            mMetrics.record(Metrics.ACQUIRE_CALL, SystemClock.elapsedRealtimeNanos() - start);
+            if (image != null) {
+                mInferencePipeline.offer(image);
+            }
+        }
+    };
+    private final CaptureWriter.Listener mOnCaptureWrittenListener = new CaptureWriter.Listener() {
+        @Override
+        public void onCaptureWritten(CaptureWriter.Capture capture, final boolean saved) {
+            if (saved) {
+                indexCapture(capture);
+            }
+            final Burst burst = mBurst;
+            if (burst != null && burst.onWritten(capture, saved)) {
+                Handler handler = mBackgroundHandler;
+                if (handler != null) {
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            requestBurstFrames(burst);
+                        }
+                    });
+                }
                 return;
             }
-            final Image image = reader.acquireNextImage();
-            mBackgroundHandler.post(new Runnable() {
+            Log.d(TAG, String.format(Locale.US, "Capture %s: %.0f ms from shutter to ready, %.0f ms writing",
+                    saved ? "saved" : "failed", capture.getShutterToReadyNs() / 1e6, capture.getWriteNs() / 1e6));
+            runOnUiThread(new Runnable() {
                 @Override
                 public void run() {
-                    ByteBuffer byteBuffer = image.getPlanes()[0].getBuffer();
-                    byte[] bytes = new byte[byteBuffer.remaining()];
-                    byteBuffer.get(bytes);
-                    try {
-                        mOutputStream.write(bytes);
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    } finally {
-                        image.close();
-                        if (mOutputStream != null) {
-                            try {
-                                mOutputStream.close();
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                        }
-                    }
+                    Toast.makeText(getApplicationContext(), saved ? "Image saved" : "Image not saved",
+                            Toast.LENGTH_SHORT).show();
                 }
             });
         }
     };
+    private final ImageReader.OnImageAvailableListener mOnImageAvailableListener = new ImageReader.OnImageAvailableListener() {
+        @Override
+        public void onImageAvailable(final ImageReader reader) {
+            if (reader == null) {
+                return;
+            }
+            Image image = reader.acquireNextImage();
+            if (image == null) {
+                return;
+            }
+            // the writer writes the JPEG from the image's own buffer, and closes the image once it is stored
+            mCaptureWriter.write(image.getTimestamp(), image.getPlanes()[0].getBuffer(), image);
+        }
+    };
     private final View.OnTouchListener mOnTouchListener = new View.OnTouchListener() {
         @Override
         public boolean onTouch(View v, MotionEvent event) {
@@ -216,15 +298,14 @@ public class CameraActivity extends AppCompatActivity {
                                     mProgressBarBottom.setVisibility(View.INVISIBLE);
                                 }
 
-                                // This ratio is the ratio of cropped Rect to Camera's original (Maximum) Rect
-                                float ratio = (float) 1 / mZoomLevel;
-                                // croppedWidth and croppedHeight are the pixels cropped away, not pixels after cropped
-                                int croppedWidth = rect.width() - Math.round((float) rect.width() * ratio);
-                                int croppedHeight = rect.height() - Math.round((float) rect.height() * ratio);
-                                // Finally, mZoom represents the zoomed visible area
-                                mZoom = new Rect(croppedWidth / 2, croppedHeight / 2,
-                                        rect.width() - croppedWidth / 2, rect.height() - croppedHeight / 2);
-                                mPreviewCaptureRequestBuilder.set(CaptureRequest.SCALER_CROP_REGION, mZoom);
+                                // mZoom represents the zoomed visible area
+                                int[] zoom = CropGeometry.zoomRegion(rect.width(), rect.height(), mZoomLevel);
+                                mZoom = new Rect(zoom[0], zoom[1], zoom[2], zoom[3]);
+                                if (USE_REGION_OF_INTEREST) {
+                                    applyRegionOfInterest(rect);
+                                } else {
+                                    mPreviewCaptureRequestBuilder.set(CaptureRequest.SCALER_CROP_REGION, mZoom);
+                                }
                             }
                             mFingerSpacing = currentFingerSpacing;
                         } else { // Single touch point, needs to return true in order to detect one more touch point
@@ -260,27 +341,6 @@ public class CameraActivity extends AppCompatActivity {
             return true;
         }
     };
-    private OutputStream mOutputStream;
-    private final Runnable mPeriodicClassify = new Runnable() {
-        @Override
-        public void run() {
-            new CountDownTimer(1000, 1000) {
-                @Override
-                public void onTick(long millisUntilFinished) {
-
-                }
-
-                public void onFinish() {
-                    if (mRunClassifier) {
-                        classifyFrame();
-                        if (mBackgroundHandler != null) {
-                            mBackgroundHandler.post(mPeriodicClassify);
-                        }
-                    }
-                }
-            }.start();
-        }
-    };
     private CaptureRequest.Builder mPreviewCaptureRequestBuilder;
     private final CameraCaptureSession.StateCallback mPreviewSessionCallback = new CameraCaptureSession.StateCallback() {
         @Override
@@ -305,7 +365,15 @@ public class CameraActivity extends AppCompatActivity {
     };
     private Size mPreviewSize;
     private ProgressBar mProgressBarBottom, mProgressBarTop;
-    private boolean mRunClassifier = false;
+    private volatile float[] mRegion;
+    private RegionOverlayView mRegionOverlay;
+    private SceneChangeDetector mSceneChangeDetector;
+    // the region the scene change detector last saw classified, only used on the inference thread
+    private float[] mSceneRegion;
+    private LabelSmoother mSecondarySmoother;
+    private int mSensorOrientation;
+    private Classifier mSmoothedClassifier;
+    private LabelSmoother mSmoother;
     private final CameraCaptureSession.CaptureCallback mSessionCaptureCallback = new CameraCaptureSession.CaptureCallback() {
 
         @Override
@@ -379,6 +447,7 @@ public class CameraActivity extends AppCompatActivity {
         }
 
     };
+    private StartupTrace mStartupTrace;
     private int mState = STATE_CLOSED;
     private final TextureView.SurfaceTextureListener mSurfaceTextureListener = new TextureView.SurfaceTextureListener() {
         @Override
@@ -405,8 +474,14 @@ public class CameraActivity extends AppCompatActivity {
     private TextureView mTextureView;
     private TextView mTextView;
     private TextView mTextViewZoom;
+    private MultiCrop[] mTileGrids;
+    private int[] mTileLabels;
+    private TileMerger mTileMerger;
+    private TileScheduler mTileScheduler;
+    private float[] mTileScores;
     private Rect mZoom;
     private float mZoomLevel = 1f;
+    private ZslCapture mZsl;
 
     // BASIC METHODS
     @SuppressLint("ClickableViewAccessibility")
@@ -418,7 +493,10 @@ public class CameraActivity extends AppCompatActivity {
         checkPermissions();
 
         mTextureView = findViewById(R.id.textureView);
+        mRegionOverlay = findViewById(R.id.regionOverlay);
         mTextView = findViewById(R.id.labelTextView);
+        mMetricsTextView = findViewById(R.id.metricsTextView);
+        mMetricsTextView.setVisibility(USE_METRICS_OVERLAY ? View.VISIBLE : View.GONE);
         mTextViewZoom = findViewById(R.id.textViewZoom);
         mProgressBarTop = findViewById(R.id.progressBarTop);
         mProgressBarBottom = findViewById(R.id.progressBarBottom);
@@ -427,7 +505,18 @@ public class CameraActivity extends AppCompatActivity {
         mCaptureButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                prepareForCapture();
+                if (mZsl != null) {
+                    captureZsl();
+                } else {
+                    prepareForCapture();
+                }
+            }
+        });
+        mCaptureButton.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                startBurst();
+                return true;
             }
         });
 
@@ -482,6 +571,81 @@ public class CameraActivity extends AppCompatActivity {
         int id = mMobileDevice.getRatioDrawable();
         mRatioButton.setImageResource(id);
 
+        // Setup classification
+        Integer sensorOrientation = mMobileDevice.getCameraCharacteristics().get(CameraCharacteristics.SENSOR_ORIENTATION);
+        mSensorOrientation = (sensorOrientation == null) ? 90 : sensorOrientation;
+        mInferencePipeline = new InferencePipeline<>("Inference thread", new InferencePipeline.FrameProcessor<Image>() {
+            @Override
+            public void onFrame(Image image) {
+                try {
+                    if (USE_DETECTION) {
+                        detectFrame(image);
+                    } else {
+                        classifyFrame(image);
+                    }
+                } finally {
+                    image.close();
+                }
+                if (USE_METRICS_OVERLAY) {
+                    showMetrics();
+                }
+            }
+
+            @Override
+            public void onFrameDropped(Image image) {
+                mMetrics.count(Metrics.DROPPED);
+                image.close();
+            }
+        });
+        mInferencePipeline.setMaxFps(MAX_CLASSIFICATION_FPS);
+        mSceneChangeDetector = new SceneChangeDetector(SCENE_GRID_SIZE, SCENE_SAMPLES_PER_CELL,
+                SCENE_CHANGE_THRESHOLD, SCENE_MAX_AGE_NS);
+        mTileGrids = new MultiCrop[TILING_MAX_GRID_SIZE];
+        for (int size = 1; size <= TILING_MAX_GRID_SIZE; size++) {
+            mTileGrids[size - 1] = MultiCrop.grid(size, TILING_OVERLAP, MultiCrop.MEAN);
+        }
+        int maxTiles = TILING_MAX_GRID_SIZE * TILING_MAX_GRID_SIZE;
+        mTileLabels = new int[maxTiles];
+        mTileScores = new float[maxTiles];
+        mTileScheduler = new TileScheduler(TILING_MAX_GRID_SIZE, TimeUnit.SECONDS.toNanos(1) / TILING_TARGET_FPS,
+                TILING_LATENCY_ALPHA);
+
+        // Setup models, loaded once and kept across configuration changes
+        mInference = new ViewModelProvider(this, new ViewModelProvider.Factory() {
+            @NonNull
+            @Override
+            public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+                InferenceViewModel model = new InferenceViewModel(activity, WARM_UP_RUNS);
+                return (T) model;
+            }
+        }).get(InferenceViewModel.class);
+        mModelRegistry = mInference.getModelRegistry();
+        mStartupTrace = mInference.getStartupTrace();
+        // the engine outlives a recreated activity, which then keeps its models
+        InferenceEngine engine = mInference.getEngine();
+        ModelDescriptor savedModel = mModelRegistry.find(getPreferences(MODE_PRIVATE).getString(PREFERENCE_MODEL, ""));
+        engine.ensureLoaded((savedModel != null) ? savedModel : mModelRegistry.getDefault(getDeviceTier()),
+                createMultiCrop());
+        if (USE_DETECTION) {
+            engine.ensureDetectorLoaded(mModelRegistry.getDefault(getDeviceTier(), ModelDescriptor.DETECTOR));
+        }
+        if (!SECONDARY_MODEL.isEmpty()) {
+            engine.ensureSecondaryLoaded(mModelRegistry.find(SECONDARY_MODEL), createMultiCrop());
+        }
+        mTextView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                changeModel();
+            }
+        });
+        mTextView.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                tagGallery();
+                return true;
+            }
+        });
+
         constraintSet.applyTo(constraintLayout);
     }
 
@@ -501,6 +665,8 @@ public class CameraActivity extends AppCompatActivity {
 			actionBar.hide();
 		}
 
+        mEngine = mInference.acquireEngine();
+        mCaptureWriter = new CaptureWriter(CAPTURE_WRITER_THREADS, MAX_PENDING_CAPTURES, mOnCaptureWrittenListener);
         startBackgroundThread();
 
         if (mTextureView.isAvailable() ) {
@@ -513,7 +679,16 @@ public class CameraActivity extends AppCompatActivity {
 
     @Override
     protected void onPause() {
+        // Stop using analysis images before closeCamera releases their reader.
+        try {
+            stopInferencePipeline();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        mEngine = null;
+        mInference.releaseEngine();
         closeCamera();
+        mCaptureWriter.close();
         try {
             stopBackgroundThread();
         } catch (InterruptedException e) {
@@ -522,12 +697,15 @@ public class CameraActivity extends AppCompatActivity {
         super.onPause();
     }
 
-    @Override
-    protected void onDestroy() {
-        if (mClassifier != null) {
-            mClassifier.close();
+    protected void changeModel() {
+        ModelDescriptor model = mInference.getEngine().getModel();
+        if (model == null) {
+            return;
         }
-        super.onDestroy();
+        model = mModelRegistry.next(model);
+        loadModel(model);
+        getPreferences(MODE_PRIVATE).edit().putString(PREFERENCE_MODEL, model.getName()).apply();
+        Toast.makeText(getApplicationContext(), model.getName(), Toast.LENGTH_SHORT).show();
     }
 
     protected void changeRatio() {
@@ -576,9 +754,23 @@ public class CameraActivity extends AppCompatActivity {
     }
 
     // OTHER METHODS
-    private void captureStillImage() throws CameraAccessException {
+    // The preview and the analysis stream keep the whole sensor area, the preview is scaled up instead
+    // and the classifier reads the zoomed share of the high resolution analysis frame.
+    private void applyRegionOfInterest(Rect activeArray) {
+        float[] region = CropGeometry.zoomCrop(activeArray.width(), activeArray.height(), mZoomLevel);
+        Matrix matrix = new Matrix();
+        matrix.setScale(1 / region[2], 1 / region[2], mTextureView.getWidth() / 2f, mTextureView.getHeight() / 2f);
+        mTextureView.setTransform(matrix);
+        mRegion = region;
+    }
 
-        if (mCameraDevice == null) {
+    private void captureStillImage() throws CameraAccessException {
+        final CaptureWriter.Capture capture = mNextCapture;
+        mNextCapture = null;
+        if (mCameraDevice == null || capture == null) {
+            if (capture != null) {
+                mCaptureWriter.cancel(capture);
+            }
             return;
         }
 
@@ -592,57 +784,42 @@ public class CameraActivity extends AppCompatActivity {
 
             @Override
             public void onCaptureStarted(@NonNull CameraCaptureSession session, @NonNull CaptureRequest request, long timestamp, long frameNumber) {
-                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
-                    String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-                    String imageFileName = "JPEG_" + timeStamp + ".jpg";
-                    File storageDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_PICTURES);
-                    File imageFile = new File(storageDir, imageFileName);
-                    mImageFileLocation = imageFile.toString();
-                    try {
-                        mOutputStream = new FileOutputStream(imageFile);
-                    } catch (FileNotFoundException e) {
-                        e.printStackTrace();
-                    }
-                } else {
-                    String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-                    String imageFileName = "JPEG_" + timeStamp;
-                    ContentResolver contentResolver = getContentResolver();
-                    Uri collection = MediaStore.Images.Media.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY);
-                    ContentValues values = new ContentValues();
-                    values.put(MediaStore.MediaColumns.TITLE, imageFileName);
-                    values.put(MediaStore.MediaColumns.DISPLAY_NAME, imageFileName);
-                    values.put(MediaStore.MediaColumns.DATE_ADDED, System.currentTimeMillis());
-                    values.put(MediaStore.MediaColumns.DATE_TAKEN, System.currentTimeMillis());
-                    values.put(MediaStore.MediaColumns.MIME_TYPE, "image/jpeg");
-                    Uri item = contentResolver.insert(collection, values);
-                    if (item != null) {
-                        try {
-                            mOutputStream = contentResolver.openOutputStream(item);
-                        } catch (FileNotFoundException e) {
-                            e.printStackTrace();
-                        }
-                        values.clear();
-                    }
-                }
+                capture.setTimestamp(timestamp);
             }
 
             @Override
             public void onCaptureCompleted(@NonNull CameraCaptureSession session, @NonNull CaptureRequest request, @NonNull TotalCaptureResult result) {
                 finishedCaptureLocked();
-                Toast.makeText(getApplicationContext(), "Image saved", Toast.LENGTH_SHORT).show();
-                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
-                    // Tell the media scanner about the new file so that it is immediately available to the user.
-                    MediaScannerConnection.scanFile(CameraActivity.this,
-                            new String[]{mImageFileLocation}, null,null);
-                }
             }
 
             @Override
             public void onCaptureFailed(@NonNull CameraCaptureSession session, @NonNull CaptureRequest request, @NonNull CaptureFailure failure) {
+                if (!failure.wasImageCaptured()) {
+                    mCaptureWriter.cancel(capture);
+                }
                 finishedCaptureLocked();
             }
         };
-        mCameraCaptureSession.capture(captureStillBuilder.build(), captureCallback, mBackgroundHandler);
+        try {
+            mCameraCaptureSession.capture(captureStillBuilder.build(), captureCallback, mBackgroundHandler);
+        } catch (CameraAccessException | RuntimeException e) {
+            mCaptureWriter.cancel(capture);
+            throw e;
+        }
+    }
+
+    // Saves the frame the camera took when the shutter was pressed, without waiting for 3A to converge.
+    private void captureZsl() {
+        long pressRealtimeNs = SystemClock.elapsedRealtimeNanos();
+        CaptureWriter.Capture capture = mCaptureWriter.begin(CaptureTargets.create(this, ""), System.nanoTime());
+        if (capture == null) {
+            Toast.makeText(getApplicationContext(), "Still saving", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        tagCapture(capture);
+        if (!mZsl.take(mCaptureWriter, capture, pressRealtimeNs, 90)) {
+            mCaptureWriter.cancel(capture);
+        }
     }
 
     private void checkPermissions() {
@@ -664,22 +841,115 @@ public class CameraActivity extends AppCompatActivity {
         }
     }
 
-    private void classifyFrame() {
-        if (mClassifier == null || mCameraDevice == null) {
+    private void classifyFrame(Image image) {
+        Classifier classifier = mEngine.getClassifier();
+        if (classifier == null || mCameraDevice == null) {
             return;
         }
-        Bitmap bitmap = prepareBitmap();
-        String label = mClassifier.classify(bitmap);
-        if (!label.isEmpty()) {
-            label = label.substring(0, 1).toUpperCase() + label.substring(1);
+        if (classifier != mSmoothedClassifier) {
+            // a new model has its own labels, start over
+            synchronized (mCaptureTopK) {
+                mSmoother = new LabelSmoother(classifier.getNumLabels(), SMOOTHING_ALPHA, SMOOTHING_MARGIN,
+                        SMOOTHING_STABLE_FRAMES, classifier.getMinConfidence());
+                mSmoothedClassifier = classifier;
+            }
+            mSceneChangeDetector.reset();
+            classifier.setMetrics(mMetrics);
+            mTileMerger = new TileMerger(mTileLabels.length, TILING_MAX_REGIONS, classifier.getMinConfidence());
+            if (!closeFanOut()) {
+                return;
+            }
+            if (mDisplayedLabel != LabelSmoother.NONE) {
+                mDisplayedLabel = LabelSmoother.NONE;
+                showLabel("");
+            }
         }
-        final String finalLabel = label;
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                mTextView.setText(finalLabel);
+        // another region is another share of the same frame, which the detector cannot tell apart
+        float[] region = mRegion;
+        if (region != mSceneRegion) {
+            mSceneRegion = region;
+            mSceneChangeDetector.reset();
+        }
+        // an unchanged scene keeps the label it already has
+        Image.Plane luma = image.getPlanes()[0];
+        if (!mSceneChangeDetector.hasChanged(luma.getBuffer(), luma.getRowStride(),
+                image.getWidth(), image.getHeight(), image.getTimestamp())) {
+            mMetrics.count(Metrics.SKIPPED);
+            if (!USE_TILING) {
+                repeatLastScores(classifier);
             }
-        });
+            return;
+        }
+        if (USE_TILING) {
+            classifyTiles(classifier, image);
+            return;
+        }
+        classifier.setRegion(region);
+        Classifier secondary = mEngine.getSecondaryClassifier();
+        if (secondary != null) {
+            classifyInParallel(classifier, secondary, image);
+            return;
+        }
+        float[] scores = classifier.score(image, mSensorOrientation);
+        // a cached result keeps only the top labels, folding it in would pull every other average toward 0
+        int index = classifier.isLastCacheHit() ? mSmoother.repeat() : mSmoother.update(scores);
+        if (index == mDisplayedLabel) {
+            return;
+        }
+        mDisplayedLabel = index;
+        showLabel(formatLabel(classifier, index));
+    }
+
+    // Scores the frame with both classifiers at once, sharing the converted input when they take the same one,
+    // and shows the secondary label under the primary one. A model that misses the deadline keeps its label.
+    private void classifyInParallel(Classifier classifier, Classifier secondary, Image image) {
+        if (secondary != mFanOutSecondary) {
+            if (!closeFanOut()) {
+                return;
+            }
+            mSecondarySmoother = new LabelSmoother(secondary.getNumLabels(), SMOOTHING_ALPHA, SMOOTHING_MARGIN,
+                    SMOOTHING_STABLE_FRAMES, secondary.getMinConfidence());
+            mFanOutSecondary = secondary;
+            mDisplayedSecondaryLabel = LabelSmoother.NONE;
+        }
+        secondary.setRegion(mRegion);
+        if (mFanOut == null) {
+            mFanOut = new FanOut<>(Arrays.asList(classifier, secondary), FAN_OUT_THREADS, FAN_OUT_DEADLINE_NS);
+        }
+        try {
+            mFanOut.process(image, mSensorOrientation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        float[] scores = classifier.getLastScores();
+        int index = mDisplayedLabel;
+        if (mFanOut.isFresh(0) && scores != null) {
+            index = classifier.isLastCacheHit() ? mSmoother.repeat() : mSmoother.update(scores);
+        }
+        float[] secondaryScores = secondary.getLastScores();
+        int secondaryIndex = mDisplayedSecondaryLabel;
+        if (mFanOut.isFresh(1) && secondaryScores != null) {
+            secondaryIndex = secondary.isLastCacheHit()
+                    ? mSecondarySmoother.repeat() : mSecondarySmoother.update(secondaryScores);
+        }
+        showLabels(classifier, index, secondary, secondaryIndex);
+    }
+
+    // Classifies the tiles of the grid the scheduler affords and draws the regions they agree on.
+    private void classifyTiles(Classifier classifier, Image image) {
+        int gridSize = mTileScheduler.getGridSize();
+        MultiCrop tiles = mTileGrids[gridSize - 1];
+        long start = SystemClock.elapsedRealtimeNanos();
+        classifier.classifyTiles(image, mSensorOrientation, tiles, mTileLabels, mTileScores);
+        mTileScheduler.update(SystemClock.elapsedRealtimeNanos() - start);
+
+        int count = mTileMerger.merge(tiles, gridSize, mTileLabels, mTileScores);
+        String[] labels = new String[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = classifier.getLabel(mTileMerger.getLabel(i));
+        }
+        showRegions(labels, Arrays.copyOf(mTileMerger.getBoxes(), 4 * count), count);
     }
 
     private void closeCamera() {
@@ -695,9 +965,31 @@ public class CameraActivity extends AppCompatActivity {
                 mCameraDevice = null;
             }
             if (mImageReader != null) {
+                // the pending captures' images belong to the reader
+                Burst burst = mBurst;
+                if (burst != null) {
+                    mBurst = null;
+                    burst.cancel();
+                    Log.i(TAG, burst.format());
+                }
+                if (mNextCapture != null) {
+                    mCaptureWriter.cancel(mNextCapture);
+                    mNextCapture = null;
+                }
+                if (!mCaptureWriter.awaitIdle(CAPTURE_DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    Log.w(TAG, mCaptureWriter.getPending() + " captures not written");
+                }
                 mImageReader.close();
                 mImageReader = null;
             }
+            if (mZsl != null) {
+                mZsl.close();
+                mZsl = null;
+            }
+            if (mAnalysisImageReader != null) {
+                mAnalysisImageReader.close();
+                mAnalysisImageReader = null;
+            }
         } catch (InterruptedException e) {
             throw new RuntimeException("Interrupted while trying to lock camera closing.", e);
         } finally {
@@ -705,6 +997,22 @@ public class CameraActivity extends AppCompatActivity {
         }
     }
 
+    // Waits for the models the fan-out still runs, false if interrupted meanwhile.
+    private boolean closeFanOut() {
+        FanOut<Image, InputSpec> fanOut = mFanOut;
+        if (fanOut == null) {
+            return true;
+        }
+        mFanOut = null;
+        try {
+            fanOut.close();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
     private static boolean contains(int[] modes, int mode) {
         if (modes == null) {
             return false;
@@ -717,15 +1025,32 @@ public class CameraActivity extends AppCompatActivity {
         return false;
     }
 
-    private Bitmap cropToCenterSquare(Bitmap bitmap) {
-        int width  = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        int newDim = Math.min(height, width);
-        int cropW = (width - height) / 2;
-        cropW = Math.max(cropW, 0);
-        int cropH = (height - width) / 2;
-        cropH = Math.max(cropH, 0);
-        return Bitmap.createBitmap(bitmap, cropW, cropH, newDim, newDim);
+    // The crops every classifier takes of a frame, null for the center crop only.
+    private static MultiCrop createMultiCrop() {
+        return USE_MULTI_CROP ? MultiCrop.centerAndCorners(0.8f, MultiCrop.MEAN) : null;
+    }
+
+    // Detects objects in the frame and draws their boxes, the classifier does not run.
+    private void detectFrame(Image image) {
+        Detector detector = mEngine.getDetector();
+        if (detector == null || mCameraDevice == null) {
+            return;
+        }
+        int count = detector.detect(image, mSensorOrientation);
+        String[] labels = new String[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = String.format(Locale.US, "%s %.0f%%", detector.getLabel(i), 100 * detector.getScore(i));
+        }
+        showRegions(labels, Arrays.copyOf(detector.getBoxes(), 4 * count), count);
+    }
+
+    // The label of the index with a capital first letter, empty for none.
+    private static String formatLabel(Classifier classifier, int index) {
+        String label = (index == LabelSmoother.NONE) ? "" : classifier.getLabel(index);
+        if (!label.isEmpty()) {
+            label = label.substring(0, 1).toUpperCase() + label.substring(1);
+        }
+        return label;
     }
 
     private void finishedCaptureLocked() {
@@ -746,6 +1071,22 @@ public class CameraActivity extends AppCompatActivity {
         }
     }
 
+    // 0 for low-end devices, 1 for mid-range and 2 for high-end, compared with the tier of each model.
+    private int getDeviceTier() {
+        ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
+        if (activityManager == null || activityManager.isLowRamDevice()) {
+            return 0;
+        }
+        int memoryClass = activityManager.getMemoryClass();
+        if (memoryClass >= 512) {
+            return 2;
+        } else if (memoryClass >= 256) {
+            return 1;
+        } else {
+            return 0;
+        }
+    }
+
     private float getFingerSpacing(MotionEvent event) {
         float x = event.getX(0) - event.getX(1);
         float y = event.getY(0) - event.getY(1);
@@ -756,6 +1097,19 @@ public class CameraActivity extends AppCompatActivity {
         return (SystemClock.elapsedRealtime() - mCaptureTimer) > PRECAPTURE_TIMEOUT_MS;
     }
 
+    // Adds the photo to the local index under the labels it was taken with. Called on a writer thread.
+    private void indexCapture(CaptureWriter.Capture capture) {
+        String[] labels = capture.getLabels();
+        if (labels == null || labels.length == 0) {
+            return;
+        }
+        try {
+            mInference.getPhotoIndex().add(capture.getTarget().getId(), labels, capture.getScores(), labels.length);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     private boolean isNotLegacyLocked() {
         if (mMobileDevice.getCameraCharacteristics() == null) {
             return true;
@@ -766,6 +1120,10 @@ public class CameraActivity extends AppCompatActivity {
         } else return hardwareLevel != CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_LEGACY;
     }
 
+    private void loadModel(ModelDescriptor model) {
+        mInference.getEngine().load(model, createMultiCrop());
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -798,37 +1156,18 @@ public class CameraActivity extends AppCompatActivity {
         }
     }
 
-    private Bitmap prepareBitmap() {
-        if (!mTextureView.isAvailable() || mCameraDevice == null) {
-            return null;
-        }
-
-        Bitmap bitmap;
-        Rational rational = mMobileDevice.getRatio();
-        float ratio = (float) rational.getNumerator() / rational.getDenominator();
-        if (ratio < 1.5) {
-            // 1:1 or 4:3 --> scale
-            bitmap = mTextureView.getBitmap(mClassifier.getImageSizeX(), mClassifier.getImageSizeY());
-            assert bitmap != null;
-            bitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), mTextureView.getTransform(null), true);
-        } else {
-            // 16:9 or higher --> crop
-            int width = mFinalSize.getWidth();
-            int height = mFinalSize.getHeight();
-            int w = (height > width) ? mClassifier.getImageSizeX() : width * mClassifier.getImageSizeY() / height;
-            int h = (height > width) ? height * mClassifier.getImageSizeX() / width : mClassifier.getImageSizeY();
-            bitmap = mTextureView.getBitmap(w, h);
-            assert bitmap != null;
-            bitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), mTextureView.getTransform(null), true);
-            bitmap = cropToCenterSquare(bitmap);
-        }
-        return bitmap;
-    }
-
     private void prepareForCapture() {
         if (mState != STATE_PREVIEW) {
             return;
         }
+        // Reserve the capture at the shutter, so that a tap is refused while earlier photos are still being
+        // written rather than filling the camera's buffers.
+        mNextCapture = mCaptureWriter.begin(CaptureTargets.create(this, ""), System.nanoTime());
+        if (mNextCapture == null) {
+            Toast.makeText(getApplicationContext(), "Still saving", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        tagCapture(mNextCapture);
         try {
             // Trigger an auto-focus run if camera is capable. If the camera is already focused, this should do nothing.
             if (!mNoAFRun) {
@@ -852,6 +1191,66 @@ public class CameraActivity extends AppCompatActivity {
         }
     }
 
+    // A frame of an unchanged scene counts as one more frame of the scores last seen, so that a label about to
+    // take over does not wait for the next frame that is classified.
+    private void repeatLastScores(Classifier classifier) {
+        int index = mSmoother.repeat();
+        Classifier secondary = mEngine.getSecondaryClassifier();
+        if (secondary != null && secondary == mFanOutSecondary) {
+            showLabels(classifier, index, secondary, mSecondarySmoother.repeat());
+            return;
+        }
+        if (index != mDisplayedLabel) {
+            mDisplayedLabel = index;
+            showLabel(formatLabel(classifier, index));
+        }
+    }
+
+    // Asks the camera for the frames of the burst the writer has room for, and reports the burst once every
+    // frame is written. Called on the background thread.
+    private void requestBurstFrames(Burst burst) {
+        if (burst != mBurst) {
+            return;
+        }
+        if (burst.isDone()) {
+            mBurst = null;
+            final String report = burst.format();
+            Log.i(TAG, report);
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    Toast.makeText(getApplicationContext(), report, Toast.LENGTH_LONG).show();
+                }
+            });
+            return;
+        }
+        List<CaptureWriter.Capture> captures = burst.reserve(System.nanoTime());
+        if (captures.isEmpty()) {
+            return;
+        }
+        try {
+            if (mCameraDevice == null || mCameraCaptureSession == null || mImageReader == null) {
+                throw new CameraAccessException(CameraAccessException.CAMERA_DISCONNECTED);
+            }
+            List<CaptureRequest> requests = new ArrayList<>(captures.size());
+            for (CaptureWriter.Capture capture : captures) {
+                tagCapture(capture);
+                CaptureRequest.Builder builder = mCameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_STILL_CAPTURE);
+                builder.addTarget(mImageReader.getSurface());
+                // keep the 3A state of the preview, a burst does not wait for it to converge again
+                setup3AControlsAndZoom(builder);
+                builder.set(CaptureRequest.JPEG_ORIENTATION, 90);
+                builder.setTag(capture);
+                requests.add(builder.build());
+            }
+            mCameraCaptureSession.captureBurst(requests, mBurstCaptureCallback, mBackgroundHandler);
+        } catch (CameraAccessException | IllegalStateException e) {
+            e.printStackTrace();
+            burst.cancel();
+            requestBurstFrames(burst);
+        }
+    }
+
     private void setup3AControlsAndZoom(CaptureRequest.Builder builder) {
 
         // Enable auto-magical 3A run by camera device
@@ -917,8 +1316,8 @@ public class CameraActivity extends AppCompatActivity {
                     CaptureRequest.CONTROL_AWB_MODE_AUTO);
         }
 
-        //Zoom
-        if (mZoom != null) {
+        //Zoom, a region of interest is cropped from the full preview instead
+        if (mZoom != null && !(USE_REGION_OF_INTEREST && builder == mPreviewCaptureRequestBuilder)) {
             builder.set(CaptureRequest.SCALER_CROP_REGION, mZoom);
         }
     }
@@ -931,9 +1330,33 @@ public class CameraActivity extends AppCompatActivity {
                 largestImageSize.getWidth(),
                 largestImageSize.getHeight(),
                 ImageFormat.JPEG,
-                1);
+                MAX_PENDING_CAPTURES);
         mImageReader.setOnImageAvailableListener(mOnImageAvailableListener, mBackgroundHandler);
 
+        // for zero shutter lag, the last full-resolution frames in place of the JPEG stream
+        if (USE_ZSL) {
+            Integer timestampSource = mMobileDevice.getCameraCharacteristics().get(
+                    CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE);
+            mZsl = new ZslCapture(mMobileDevice.getLargestSize(ImageFormat.YUV_420_888), ZSL_FRAMES,
+                    ZSL_MEMORY_CAP_BYTES, ZSL_SELECTION, ZSL_WINDOW_NS,
+                    timestampSource != null && timestampSource == CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE_REALTIME);
+            if (!mZsl.isAvailable()) {
+                mZsl.close();
+                mZsl = null;
+            }
+        }
+
+        // for classification, one image being classified, one waiting and one arriving,
+        // large enough for a zoomed region of interest to still have native pixels
+        Size analysisSize = mMobileDevice.getAnalysisSize(
+                USE_REGION_OF_INTEREST ? ROI_ANALYSIS_MIN_SIZE : ANALYSIS_MIN_SIZE);
+        mAnalysisImageReader = ImageReader.newInstance(
+                analysisSize.getWidth(),
+                analysisSize.getHeight(),
+                ImageFormat.YUV_420_888,
+                3);
+        mAnalysisImageReader.setOnImageAvailableListener(mOnAnalysisImageAvailableListener, mBackgroundHandler);
+
         // for preview
         Point fullDisplaySize = new Point();
         getWindowManager().getDefaultDisplay().getRealSize(fullDisplaySize);
@@ -986,26 +1409,87 @@ public class CameraActivity extends AppCompatActivity {
 
         ConstraintLayout.LayoutParams params = new ConstraintLayout.LayoutParams(w, h);
         mTextureView.setLayoutParams(params);
+    }
+
+    // Only called when the label changes, so the UI thread is not woken up for every frame.
+    private void showLabel(final String label) {
+        final long start = SystemClock.elapsedRealtimeNanos();
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mTextView.setText(label);
+                if (!label.isEmpty()) {
+                    mStartupTrace.mark(StartupTrace.FIRST_LABEL);
+                }
+                mMetrics.record(Metrics.PUBLISH, SystemClock.elapsedRealtimeNanos() - start);
+            }
+        });
+    }
+
+    // Shows the secondary label under the primary one, when either changed.
+    private void showLabels(Classifier classifier, int index, Classifier secondary, int secondaryIndex) {
+        if (index == mDisplayedLabel && secondaryIndex == mDisplayedSecondaryLabel) {
+            return;
+        }
+        mDisplayedLabel = index;
+        mDisplayedSecondaryLabel = secondaryIndex;
+        String label = formatLabel(classifier, index);
+        String secondaryLabel = formatLabel(secondary, secondaryIndex);
+        showLabel(secondaryLabel.isEmpty() ? label : label + "\n" + secondaryLabel);
+    }
 
-        mFinalSize = new Size(w, h);
+    // Percentiles of every stage, refreshed at most once per interval.
+    private void showMetrics() {
+        long now = SystemClock.elapsedRealtimeNanos();
+        if (now - mMetricsShownNs < METRICS_OVERLAY_INTERVAL_NS) {
+            return;
+        }
+        mMetricsShownNs = now;
+        final String text = mMetrics.format(mInferencePipeline.getAchievedFps());
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mMetricsTextView.setText(text);
+            }
+        });
+    }
+
+    private void showRegions(final String[] labels, final float[] boxes, final int count) {
+        final long start = SystemClock.elapsedRealtimeNanos();
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mRegionOverlay.setRegions(labels, boxes, count);
+                mMetrics.record(Metrics.PUBLISH, SystemClock.elapsedRealtimeNanos() - start);
+            }
+        });
     }
 
     private void startBackgroundThread() {
         mBackgroundThread = new HandlerThread("Camera background thread");
         mBackgroundThread.start();
         mBackgroundHandler = new Handler(mBackgroundThread.getLooper());
+        mInferencePipeline.start();
+    }
+
+    // Takes BURST_FRAMES photos as fast as they can be stored, from the preview's focus and exposure.
+    private void startBurst() {
+        if (mState != STATE_PREVIEW || mBurst != null || mBackgroundHandler == null || mZsl != null) {
+            return;
+        }
+        final Burst burst = new Burst(mCaptureWriter, new Burst.Targets() {
+            @Override
+            public CaptureWriter.Target create(int frame) {
+                return CaptureTargets.create(CameraActivity.this, Burst.suffix(frame));
+            }
+        }, BURST_FRAMES);
+        mBurst = burst;
         mBackgroundHandler.post(new Runnable() {
             @Override
             public void run() {
-                try {
-                    mClassifier = new Classifier(CameraActivity.this);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+                requestBurstFrames(burst);
             }
         });
-        mRunClassifier = true;
-        mBackgroundHandler.post(mPeriodicClassify);
     }
 
     private void startCameraPreview() throws CameraAccessException {
@@ -1016,8 +1500,15 @@ public class CameraActivity extends AppCompatActivity {
 
         mPreviewCaptureRequestBuilder = mCameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
         mPreviewCaptureRequestBuilder.addTarget(previewSurface);
+        mPreviewCaptureRequestBuilder.addTarget(mAnalysisImageReader.getSurface());
+        // three streams, the ZSL frames take the place of the still captures
+        Surface captureSurface = mImageReader.getSurface();
+        if (mZsl != null) {
+            captureSurface = mZsl.getSurface();
+            mPreviewCaptureRequestBuilder.addTarget(captureSurface);
+        }
         mCameraDevice.createCaptureSession(
-                Arrays.asList(previewSurface, mImageReader.getSurface()),
+                Arrays.asList(previewSurface, captureSurface, mAnalysisImageReader.getSurface()),
                 mPreviewSessionCallback,
                 mBackgroundHandler);
     }
@@ -1031,7 +1522,81 @@ public class CameraActivity extends AppCompatActivity {
         mBackgroundThread.join();
         mBackgroundThread = null;
         mBackgroundHandler = null;
-        mRunClassifier = false;
+    }
+
+    private void stopInferencePipeline() throws InterruptedException {
+        float fps = mInferencePipeline.getAchievedFps();
+        mInferencePipeline.stop();
+        Log.d(TAG, String.format(Locale.US, "Classified %d frames at %.1f fps, dropped %d",
+                mInferencePipeline.getProcessedFrames(), fps, mInferencePipeline.getDroppedFrames()));
+        Log.d(TAG, String.format(Locale.US, "Saved %d inferences on unchanged frames, %.0f%% of %d",
+                mSceneChangeDetector.getSkippedFrames(), 100 * mSceneChangeDetector.getSkipRate(),
+                mSceneChangeDetector.getFrames()));
+        Classifier classifier = mSmoothedClassifier;
+        if (classifier != null) {
+            ResultCache cache = classifier.getResultCache();
+            Log.d(TAG, String.format(Locale.US, "Result cache: %d hits, %d misses, %d evicted, %d expired",
+                    cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.getExpirations()));
+        }
+        // taken before the reset, written on the background thread while the camera closes
+        final File metricsFile = new File(getFilesDir(), METRICS_FILE);
+        final String metrics = mMetrics.format(fps);
+        mBackgroundHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Metrics.dump(metricsFile, metrics);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        mMetrics.reset();
+        FanOut<Image, InputSpec> fanOut = mFanOut;
+        if (fanOut != null) {
+            String[] names = {mSmoothedClassifier.getModel().getName(), mFanOutSecondary.getModel().getName()};
+            for (int i = 0; i < names.length; i++) {
+                Log.d(TAG, String.format(Locale.US, "%s: %.1f ms per run, %d deadline misses, %d frames skipped",
+                        names[i], fanOut.getMeanLatencyNs(i) / 1e6, fanOut.getDeadlineMisses(i), fanOut.getSkips(i)));
+            }
+            closeFanOut();
+        }
+    }
+
+    // Tags the photo, before it is taken, with the best smoothed labels of the latest frames that the
+    // classifier is confident of. Nothing is kept per frame: the labels are selected and decoded here, once
+    // per photo. The inference thread may fold a frame in meanwhile, which at worst mixes two frames.
+    private void tagCapture(CaptureWriter.Capture capture) {
+        synchronized (mCaptureTopK) {
+            Classifier classifier = mSmoothedClassifier;
+            if (classifier == null) {
+                return;
+            }
+            int count = mSmoother.select(mCaptureTopK, CAPTURE_LABELS);
+            while (count > 0 && mCaptureTopK.getScore(count - 1) < classifier.getMinConfidence()) {
+                count--;
+            }
+            String[] labels = new String[count];
+            float[] scores = new float[count];
+            for (int i = 0; i < count; i++) {
+                labels[i] = classifier.getLabel(mCaptureTopK.getIndex(i));
+                scores[i] = mCaptureTopK.getScore(i);
+            }
+            capture.setLabels(labels, scores);
+        }
+    }
+
+    // Tags the photos of the device with the current model, or stops the tagging if it runs. A stopped
+    // scan resumes from its index.
+    private void tagGallery() {
+        GalleryTagger tagger = mInference.getGalleryTagger();
+        if (tagger.isRunning()) {
+            tagger.cancel();
+            Toast.makeText(getApplicationContext(), "Gallery tagging stopped", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        tagger.start(mInference.getEngine().getModel(), null);
+        Toast.makeText(getApplicationContext(), "Tagging gallery", Toast.LENGTH_SHORT).show();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.example.aicamera;
+
+class CameraSizes {
+
+    // CONSTANTS
+    // Sizes whose height is this close to the aspect ratio still match it, in pixels.
+    private static final int RATIO_TOLERANCE = 5;
+
+    // CONSTRUCTOR
+    private CameraSizes() {
+    }
+
+    // METHODS
+    // The smallest denominator that makes ratio an integer, and that integer, as {numerator, denominator}.
+    static int[] calculateRatio(double ratio) {
+        int den = 1;
+        double temp;
+        while (true) {
+            temp = den * ratio;
+            if (((int) temp) == temp) {
+                return new int[]{(int) temp, den};
+            }
+            den++;
+        }
+    }
+
+    // Index of the largest (width, height) pair of sizes with the aspect ratio that fits the maximum once
+    // rotated to portrait, or of the smallest one with the ratio if none fits, -1 if none has the ratio.
+    // Equal areas keep the first size.
+    static int chooseOptimalSize(int[] sizes, int maxWidth, int maxHeight, int ratioWidth, int ratioHeight) {
+        int largestFitting = -1;
+        long largestArea = 0;
+        int smallestMatching = -1;
+        long smallestArea = 0;
+        for (int i = 0; i < sizes.length / 2; i++) {
+            int width = sizes[2 * i];
+            int height = sizes[2 * i + 1];
+            if (!hasRatio(width, height, ratioWidth, ratioHeight)) {
+                continue;
+            }
+            long area = (long) width * height;
+            if (smallestMatching < 0 || area < smallestArea) {
+                smallestMatching = i;
+                smallestArea = area;
+            }
+            if (height <= maxWidth && width <= maxHeight && (largestFitting < 0 || area > largestArea)) {
+                largestFitting = i;
+                largestArea = area;
+            }
+        }
+        return (largestFitting >= 0) ? largestFitting : smallestMatching;
+    }
+
+    // Whether a width by height size has the aspect ratio, give or take RATIO_TOLERANCE pixels of height.
+    static boolean hasRatio(int width, int height, int ratioWidth, int ratioHeight) {
+        return Math.abs(height - width * ratioHeight / ratioWidth) <= RATIO_TOLERANCE;
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.example.aicamera;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.media.MediaScannerConnection;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
+
+import androidx.annotation.RequiresApi;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+class CaptureTargets {
+
+    // CONSTRUCTOR
+    private CaptureTargets() {
+    }
+
+    // METHODS
+    // A new JPEG in the shared pictures, named after the current time and the suffix. Milliseconds keep the
+    // names of captures taken within a second apart, the suffix those taken within the same millisecond.
+    static CaptureWriter.Target create(Context context, String suffix) {
+        String imageFileName = "JPEG_" + new SimpleDateFormat("yyyyMMdd_HHmmss_SSS", Locale.getDefault()).format(new Date())
+                + suffix;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            File storageDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_PICTURES);
+            return new FileTarget(context.getApplicationContext(), new File(storageDir, imageFileName + ".jpg"));
+        }
+        return new MediaStoreTarget(context.getContentResolver(), imageFileName, System.currentTimeMillis());
+    }
+
+    // Writes the file directly, then tells the media scanner about it so that it is immediately available
+    // to the user.
+    private static class FileTarget implements CaptureWriter.Target {
+
+        // VARIABLES
+        private final Context mContext;
+        private final File mFile;
+
+        // CONSTRUCTOR
+        FileTarget(Context context, File file) {
+            mContext = context;
+            mFile = file;
+        }
+
+        // METHODS
+        @Override
+        public void discard() {
+            mFile.delete();
+        }
+
+        @Override
+        public String getId() {
+            return mFile.getAbsolutePath();
+        }
+
+        @Override
+        public WritableByteChannel open() throws IOException {
+            return new FileOutputStream(mFile).getChannel();
+        }
+
+        @Override
+        public void publish() {
+            MediaScannerConnection.scanFile(mContext, new String[]{mFile.toString()}, null, null);
+        }
+
+    }
+
+    // Inserts a pending item, which other apps do not see until its bytes are all written.
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private static class MediaStoreTarget implements CaptureWriter.Target {
+
+        // VARIABLES
+        private final String mName;
+        private final ContentResolver mResolver;
+        private final long mTakenMs;
+        private Uri mUri;
+
+        // CONSTRUCTOR
+        MediaStoreTarget(ContentResolver resolver, String name, long takenMs) {
+            mResolver = resolver;
+            mName = name;
+            mTakenMs = takenMs;
+        }
+
+        // METHODS
+        @Override
+        public void discard() {
+            if (mUri != null) {
+                mResolver.delete(mUri, null, null);
+                mUri = null;
+            }
+        }
+
+        // The same URI the gallery tagger names the photo by.
+        @Override
+        public String getId() {
+            return ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                    ContentUris.parseId(mUri)).toString();
+        }
+
+        @Override
+        public WritableByteChannel open() throws IOException {
+            Uri collection = MediaStore.Images.Media.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY);
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.MediaColumns.TITLE, mName);
+            values.put(MediaStore.MediaColumns.DISPLAY_NAME, mName);
+            values.put(MediaStore.MediaColumns.DATE_ADDED, mTakenMs / 1000);
+            values.put(MediaStore.MediaColumns.DATE_TAKEN, mTakenMs);
+            values.put(MediaStore.MediaColumns.MIME_TYPE, "image/jpeg");
+            values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+            mUri = mResolver.insert(collection, values);
+            if (mUri == null) {
+                throw new IOException("Could not insert " + mName);
+            }
+            ParcelFileDescriptor descriptor = mResolver.openFileDescriptor(mUri, "w");
+            if (descriptor == null) {
+                throw new FileNotFoundException(mUri.toString());
+            }
+            // closing the channel closes the stream, which closes the descriptor
+            return new ParcelFileDescriptor.AutoCloseOutputStream(descriptor).getChannel();
+        }
+
+        @Override
+        public void publish() {
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.MediaColumns.IS_PENDING, 0);
+            mResolver.update(mUri, values, null, null);
+        }
+
+    }
+
+}
@@ -0,0 +1,310 @@
+package com.example.aicamera;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+class CaptureWriter {
+
+    interface Listener {
+        // Called on a writer thread once the capture is in storage, or failed to get there, after its room
+        // is freed.
+        void onCaptureWritten(Capture capture, boolean saved);
+    }
+
+    interface Target {
+        // Creates the storage of the capture, called on a writer thread.
+        WritableByteChannel open() throws IOException;
+
+        // Makes the capture visible to other apps once its channel is closed.
+        void publish() throws IOException;
+
+        // Removes what open created after a failed write.
+        void discard();
+
+        // What identifies the capture in storage, valid once published.
+        String getId();
+    }
+
+    // CONSTANTS
+    // 32 buckets per power of two, up to 10 s
+    private static final long MAX_LATENCY_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final int SUB_BUCKET_BITS = 5;
+
+    // VARIABLES
+    private final ThreadPoolExecutor mExecutor;
+    private final Listener mListener;
+    private final int mMaxPending;
+    private final Deque<Capture> mPending = new ArrayDeque<>();
+    private final Semaphore mPermits;
+    private final LatencyHistogram mShutterToReady = new LatencyHistogram(MAX_LATENCY_NS, SUB_BUCKET_BITS);
+    private int mUnmatched;
+    private final LatencyHistogram mWriteLatency = new LatencyHistogram(MAX_LATENCY_NS, SUB_BUCKET_BITS);
+
+    // CONSTRUCTOR
+    // Writes captures on threads I/O threads, with at most maxPending captures between their shutter and
+    // their storage. The images of the pending captures stay in the camera's buffers until they are written,
+    // so maxPending must not exceed the images the camera's reader holds.
+    CaptureWriter(int threads, int maxPending, Listener listener) {
+        mMaxPending = maxPending;
+        mListener = listener;
+        mPermits = new Semaphore(maxPending);
+        mExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(maxPending), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "Capture writer thread");
+            }
+        });
+    }
+
+    // METHODS
+    // Waits for every pending capture to be written or cancelled, false on timeout. Listeners may still run.
+    boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!mPermits.tryAcquire(mMaxPending, timeout, unit)) {
+            return false;
+        }
+        mPermits.release(mMaxPending);
+        return true;
+    }
+
+    // Reserves room for a capture whose shutter was pressed at shutterNs, null while maxPending captures are
+    // still being taken or written. A null target must be set before the image arrives. This is the
+    // back-pressure: a capture that is not reserved must not be requested from the camera.
+    Capture begin(Target target, long shutterNs) {
+        if (!mPermits.tryAcquire()) {
+            return null;
+        }
+        Capture capture = new Capture(target, shutterNs);
+        synchronized (mPending) {
+            mPending.add(capture);
+        }
+        return capture;
+    }
+
+    // Frees the room of a capture whose image will never arrive, false if its image already did.
+    boolean cancel(Capture capture) {
+        boolean removed;
+        synchronized (mPending) {
+            removed = mPending.remove(capture);
+        }
+        if (removed) {
+            mPermits.release();
+        }
+        return removed;
+    }
+
+    // Finishes the pending writes, then stops the writer threads.
+    void close() {
+        mExecutor.shutdown();
+    }
+
+    // The capture whose image was taken at timestamp, or the oldest one that does not know its timestamp.
+    private Capture claim(long timestamp) {
+        synchronized (mPending) {
+            Capture oldest = null;
+            for (Iterator<Capture> it = mPending.iterator(); it.hasNext(); ) {
+                Capture capture = it.next();
+                if (capture.mTimestamp == timestamp) {
+                    it.remove();
+                    return capture;
+                }
+                if (oldest == null && capture.mTimestamp < 0) {
+                    oldest = capture;
+                }
+            }
+            if (oldest != null) {
+                mPending.remove(oldest);
+            }
+            return oldest;
+        }
+    }
+
+    int getPending() {
+        return mMaxPending - mPermits.availablePermits();
+    }
+
+    LatencyHistogram getShutterToReady() {
+        return mShutterToReady;
+    }
+
+    // Images that arrived without a pending capture and were dropped.
+    int getUnmatched() {
+        synchronized (mPending) {
+            return mUnmatched;
+        }
+    }
+
+    LatencyHistogram getWriteLatency() {
+        return mWriteLatency;
+    }
+
+    // Writes the image taken at timestamp straight from its buffer into the target of its capture, then
+    // closes source, which owns the buffer. False if no capture is waiting for the image.
+    boolean write(long timestamp, ByteBuffer data, AutoCloseable source) {
+        Capture capture = claim(timestamp);
+        if (capture == null) {
+            synchronized (mPending) {
+                mUnmatched++;
+            }
+            closeQuietly(source);
+            return false;
+        }
+        // a reserved capture always has room in the queue
+        mExecutor.execute(new Write(capture, data, source));
+        return true;
+    }
+
+    private static void closeQuietly(AutoCloseable source) {
+        try {
+            source.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    // One photo from its shutter to its storage.
+    class Capture {
+
+        // VARIABLES
+        private volatile String[] mLabels;
+        private long mReadyNs;
+        private volatile float[] mScores;
+        private final long mShutterNs;
+        private Target mTarget;
+        private long mTimestamp = -1;
+        private long mWriteNs;
+
+        // CONSTRUCTOR
+        private Capture(Target target, long shutterNs) {
+            mTarget = target;
+            mShutterNs = shutterNs;
+        }
+
+        // METHODS
+        // What the photo shows, most confident first, null if unknown.
+        String[] getLabels() {
+            return mLabels;
+        }
+
+        // When the photo was in storage, valid once written.
+        long getReadyNs() {
+            return mReadyNs;
+        }
+
+        // From the shutter until the photo is in storage, valid once written.
+        long getShutterToReadyNs() {
+            return mReadyNs - mShutterNs;
+        }
+
+        // The confidences of the labels in the same order.
+        float[] getScores() {
+            return mScores;
+        }
+
+        Target getTarget() {
+            synchronized (mPending) {
+                return mTarget;
+            }
+        }
+
+        // Time the writer thread spent storing the photo, valid once written.
+        long getWriteNs() {
+            return mWriteNs;
+        }
+
+        // Tags the photo with what it shows, stored in its metadata when it is written.
+        void setLabels(String[] labels, float[] scores) {
+            mScores = scores;
+            mLabels = labels;
+        }
+
+        // Where the photo is stored, for a capture begun without its target.
+        void setTarget(Target target) {
+            synchronized (mPending) {
+                mTarget = target;
+            }
+        }
+
+        // The sensor timestamp of the image, which the image carries too, as soon as the camera reports it.
+        void setTimestamp(long timestamp) {
+            synchronized (mPending) {
+                mTimestamp = timestamp;
+            }
+        }
+
+    }
+
+    private class Write implements Runnable {
+
+        // VARIABLES
+        private final Capture mCapture;
+        private final ByteBuffer mData;
+        private final AutoCloseable mSource;
+
+        // CONSTRUCTOR
+        Write(Capture capture, ByteBuffer data, AutoCloseable source) {
+            mCapture = capture;
+            mData = data;
+            mSource = source;
+        }
+
+        // METHODS
+        @Override
+        public void run() {
+            long startNs = System.nanoTime();
+            boolean saved = false;
+            Target target = mCapture.getTarget();
+            try {
+                WritableByteChannel channel = target.open();
+                try {
+                    String[] labels = mCapture.mLabels;
+                    int insert = (labels == null || labels.length == 0) ? -1 : JpegMetadata.insertPosition(mData);
+                    if (insert >= 0) {
+                        // the labels go between the header and the rest of the image, still written from
+                        // the camera's buffer
+                        ByteBuffer head = mData.duplicate();
+                        head.limit(insert);
+                        writeFully(channel, head);
+                        writeFully(channel, ByteBuffer.wrap(
+                                JpegMetadata.xmpSegment(labels, mCapture.mScores, labels.length)));
+                        mData.position(insert);
+                    }
+                    writeFully(channel, mData);
+                } finally {
+                    channel.close();
+                }
+                target.publish();
+                saved = true;
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                target.discard();
+            } finally {
+                closeQuietly(mSource);
+                mCapture.mReadyNs = System.nanoTime();
+                mCapture.mWriteNs = mCapture.mReadyNs - startNs;
+                mWriteLatency.record(mCapture.mWriteNs);
+                mShutterToReady.record(mCapture.getShutterToReadyNs());
+                // the listener may already take the next capture
+                mPermits.release();
+                mListener.onCaptureWritten(mCapture, saved);
+            }
+        }
+
+    }
+
+}
@@ -1,133 +1,255 @@
 package com.example.aicamera;
 
-import android.app.Activity;
+import android.content.Context;
 import android.content.res.AssetFileDescriptor;
 import android.graphics.Bitmap;
-import android.os.Build;
+import android.media.Image;
 
+import org.tensorflow.lite.DataType;
 import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.gpu.GpuDelegate;
+import org.tensorflow.lite.Tensor;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
-class Classifier {
+class Classifier implements Closeable, FanOut.Model<Image, InputSpec> {
+
+    // CONSTANTS
+    private static final int CACHE_CAPACITY = 64;
+    private static final int CACHE_TOLERANCE_BITS = 4;
+    private static final long CACHE_TTL_NS = 10_000_000_000L;
+    static final int MAX_BATCH_SIZE = 9;
+    static final int MAX_RESULTS = 10;
 
     // VARIABLES
     private final double mAccuracyValue;
+    private final float[] mAggregatedScores;
+    private MultiCrop mBaseMultiCrop;
     private final int mBatchSize;
-    private ByteBuffer mImageData;
+    private final int[] mCachedIndices = new int[MAX_RESULTS];
+    private final float[] mCachedScores = new float[MAX_RESULTS];
     private final float mImageMean;
     private final int mImageSizeX;
     private final int mImageSizeY;
     private final float mImageStd;
+    private int mInputBatchSize = 1;
+    private volatile InputSpec mInputSpec;
+    private final boolean mIsInputSigned;
     private final boolean mIsModelQuantized;
-    private final List<String> mLabelList;
+    private final boolean mIsOutputSigned;
     private final String mLabelPath;
+    private final LabelTable mLabels;
+    private int mLastBatchSize = 1;
+    private volatile boolean mLastCacheHit;
+    private volatile float[] mLastScores;
+    private volatile Metrics mMetrics;
+    private final ModelDescriptor mModel;
+    private final ModelInterpreter mModelInterpreter;
     private final String mModelPath;
+    private volatile MultiCrop mMultiCrop;
+    private final float mOutputScale;
+    private final int mOutputZeroPoint;
     private final int mPixelSize;
+    private float[] mRegion;
+    private final ResultCache mResultCache;
+    private final float[] mScores;
+    private final Preprocessor mPreprocessor;
+    private final Object mRunLock = new Object();
     private Interpreter mTfLite;
+    private final TopK mTopK;
+    private final YuvConverter mYuvConverter;
 
     // CONSTRUCTOR
-    public Classifier(Activity activity) throws IOException {
+    public Classifier(Context context, ModelDescriptor model, StartupTrace trace) throws IOException {
 
         // model parameters
-        mModelPath = "efficientnet_lite0_224.tflite";
-        mLabelPath = "imagenet_labels_1000.txt";
-        mIsModelQuantized = false;
-        mImageSizeX = 224;
-        mImageSizeY = 224;
-        mPixelSize = 3;
-        mBatchSize = 1;
-        mImageMean = 127.5f;
-        mImageStd = 127.5f;
-
-        // hardware parameters
-        boolean useGPU = false;
-        boolean useNNAPI = false;
-        int numThreads = 2;
+        mModel = model;
+        mModelPath = model.getModelPath();
+        mLabelPath = model.getLabelPath();
+        // input buffers are sized for the largest multi-crop batch or tile grid
+        mBatchSize = MAX_BATCH_SIZE;
+        mImageMean = model.getImageMean();
+        mImageStd = model.getImageStd();
 
         // other parameters
         mAccuracyValue = 0.1;
 
-        Interpreter.Options options = new Interpreter.Options();
-        if (useGPU) {
-            options.addDelegate(new GpuDelegate());
-        }
-        if (useNNAPI) {
-            if (Build.VERSION.SDK_INT > Build.VERSION_CODES.O_MR1) {
-                options.setUseNNAPI(true);
-            }
+        // hardware parameters, tuned once per device and model
+        mModelInterpreter = new ModelInterpreter(context, mModelPath, trace);
+        mTfLite = mModelInterpreter.getInterpreter();
+        mLabels = loadLabels(context, mLabelPath);
+
+        // input shape and type as the model declares them, [batch, height, width, channels]
+        Tensor input = mTfLite.getInputTensor(0);
+        int[] shape = input.shape();
+        Tensor output = mTfLite.getOutputTensor(0);
+        int numOutputs = output.shape()[output.numDimensions() - 1];
+        if (shape.length != 4 || shape[3] != 3 || numOutputs != mLabels.size()) {
+            close();
+            throw new IOException(mModelPath + ": unsupported input shape " + Arrays.toString(shape)
+                    + " or " + numOutputs + " outputs for " + mLabels.size() + " labels");
         }
-        if (numThreads > 0) {
-            options.setNumThreads(numThreads);
+        mImageSizeY = shape[1];
+        mImageSizeX = shape[2];
+        mPixelSize = shape[3];
+        mIsModelQuantized = isQuantized(input.dataType());
+        if (mIsModelQuantized != isQuantized(output.dataType())) {
+            close();
+            throw new IOException(mModelPath + ": unsupported " + input.dataType() + " input with "
+                    + output.dataType() + " output");
         }
-        mTfLite = new Interpreter(loadModelFile(activity), options);
-        mLabelList = loadLabelList(activity);
+        mIsInputSigned = input.dataType() == DataType.INT8;
+        mIsOutputSigned = output.dataType() == DataType.INT8;
+        mOutputScale = output.quantizationParams().getScale();
+        // signed outputs are shifted into the unsigned range after every run, see runInference
+        mOutputZeroPoint = output.quantizationParams().getZeroPoint() + (mIsOutputSigned ? 128 : 0);
+        mPreprocessor = new Preprocessor(mImageSizeX, mImageSizeY, mPixelSize, mBatchSize,
+                mImageMean, mImageStd, mIsModelQuantized, input.quantizationParams().getScale(),
+                input.quantizationParams().getZeroPoint(), mIsInputSigned, mLabels.size());
+        mInputSpec = new InputSpec(mImageSizeX, mImageSizeY, mImageMean, mImageStd, mIsModelQuantized,
+                input.quantizationParams().getScale(), input.quantizationParams().getZeroPoint(),
+                mIsInputSigned, null);
+        mYuvConverter = new YuvConverter(mImageSizeX, mImageSizeY, mBatchSize);
+        mTopK = new TopK(MAX_RESULTS);
+        mAggregatedScores = new float[mLabels.size()];
+        mScores = new float[mLabels.size()];
+        mResultCache = new ResultCache(CACHE_CAPACITY, MAX_RESULTS, CACHE_TOLERANCE_BITS, CACHE_TTL_NS);
+        trace.mark(StartupTrace.INTERPRETER_READY);
     }
 
     // METHODS
-    String classify(Bitmap bitmap) {
-        if (mTfLite == null) {
-            return "";
-        }
-        String textToShow;
-        if (mIsModelQuantized) {
-            convertBitmapToByteBuffer(bitmap);
-            byte[][] labelProbArray = new byte[mBatchSize][mLabelList.size()];
-            mTfLite.run(mImageData, labelProbArray);
-            textToShow = getTopResultByte(labelProbArray);
-        } else {
-            convertBitmapToByteBuffer(bitmap);
-            float[][] labelProbArray = new float[mBatchSize][mLabelList.size()];
-            mTfLite.run(mImageData, labelProbArray);
-            textToShow = getTopResultFloat(labelProbArray);
+    List<Recognition> classify(Bitmap bitmap, int k) {
+        synchronized (mRunLock) {
+            if (mTfLite == null) {
+                return Collections.emptyList();
+            }
+            runInference(convertBitmapToByteBuffer(bitmap), null);
+            return topK(k);
         }
-        return textToShow;
     }
 
-    void close() {
-        mTfLite.close();
-        mTfLite = null;
+    // Classifies a YUV_420_888 frame, rotation is the clockwise angle that makes the frame upright.
+    // With a multi-crop set, all its crops run as one batch and their scores are aggregated.
+    List<Recognition> classify(Image image, int rotation, int k) {
+        synchronized (mRunLock) {
+            if (mTfLite == null) {
+                return Collections.emptyList();
+            }
+            MultiCrop multiCrop = mMultiCrop;
+            long start = System.nanoTime();
+            ByteBuffer input = convertImageToByteBuffer(image, rotation, multiCrop);
+            record(Metrics.PREPROCESS, start);
+            runInference(input, multiCrop);
+            start = System.nanoTime();
+            List<Recognition> recognitions = topK(k);
+            record(Metrics.POSTPROCESS, start);
+            return recognitions;
+        }
     }
 
-    private void convertBitmapToByteBuffer(Bitmap bitmap) {
-
-        if (mIsModelQuantized) {
-            mImageData = ByteBuffer.allocateDirect(mBatchSize * mImageSizeX * mImageSizeY * mPixelSize);
-        } else {
-            mImageData = ByteBuffer.allocateDirect(4 * mBatchSize * mImageSizeX * mImageSizeY * mPixelSize);
+    // Classifies up to MAX_BATCH_SIZE images of getImageSizeX() x getImageSizeY() ARGB pixels in one run, and
+    // writes the k best labels of image i and their probabilities from i * k on, -1 past the last label.
+    void classifyBatch(int[][] images, int count, int k, int[] labels, float[] scores) {
+        if (count > mBatchSize) {
+            throw new IllegalArgumentException("At most " + mBatchSize + " images are supported");
         }
-        mImageData.order(ByteOrder.nativeOrder());
+        synchronized (mRunLock) {
+            if (mTfLite == null) {
+                return;
+            }
+            mPreprocessor.beginFrame();
+            for (int image = 0; image < count; image++) {
+                for (int row = 0; row < mImageSizeY; row++) {
+                    mPreprocessor.putRow(images[image], row * mImageSizeX);
+                }
+            }
+            run(mPreprocessor.endFrame(), count);
+            for (int image = 0; image < count; image++) {
+                int size = mIsModelQuantized
+                        ? mTopK.select(mPreprocessor.getLabelProbArrayByte(count)[image], k)
+                        : mTopK.select(mPreprocessor.getLabelProbArrayFloat(count)[image], k);
+                for (int i = 0; i < k; i++) {
+                    if (i < size) {
+                        labels[image * k + i] = mTopK.getIndex(i);
+                        scores[image * k + i] = mIsModelQuantized
+                                ? mOutputScale * (mTopK.getScore(i) - mOutputZeroPoint) : mTopK.getScore(i);
+                    } else {
+                        labels[image * k + i] = -1;
+                        scores[image * k + i] = 0;
+                    }
+                }
+            }
+        }
+    }
 
-        int[] intValues = new int[mImageSizeX * mImageSizeY];
-        bitmap.getPixels(intValues, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
-        int pixel = 0;
-        for (int i = 0; i < mImageSizeX; ++i) {
-            for (int j = 0; j < mImageSizeY; ++j) {
-                final int val = intValues[pixel++];
+    // Classifies every tile of the frame in one batch, ignoring the multi-crop and the region, and writes
+    // the best label of each tile and its probability into labels and scores. Returns the tile count.
+    int classifyTiles(Image image, int rotation, MultiCrop tiles, int[] labels, float[] scores) {
+        if (tiles.getCount() > mBatchSize) {
+            throw new IllegalArgumentException("At most " + mBatchSize + " tiles are supported");
+        }
+        synchronized (mRunLock) {
+            if (mTfLite == null) {
+                return 0;
+            }
+            int count = tiles.getCount();
+            run(convertImageToByteBuffer(image, rotation, tiles), count);
+            for (int tile = 0; tile < count; tile++) {
                 if (mIsModelQuantized) {
-                    mImageData.put((byte) ((val >> 16) & 0xFF));
-                    mImageData.put((byte) ((val >> 8) & 0xFF));
-                    mImageData.put((byte) (val & 0xFF));
+                    mTopK.select(mPreprocessor.getLabelProbArrayByte(count)[tile], 1);
+                    scores[tile] = mOutputScale * (mTopK.getScore(0) - mOutputZeroPoint);
                 } else {
-                    mImageData.putFloat((((val >> 16) & 0xFF)-mImageMean)/mImageStd);
-                    mImageData.putFloat((((val >> 8) & 0xFF)-mImageMean)/mImageStd);
-                    mImageData.putFloat((((val) & 0xFF)-mImageMean)/mImageStd);
+                    mTopK.select(mPreprocessor.getLabelProbArrayFloat(count)[tile], 1);
+                    scores[tile] = mTopK.getScore(0);
                 }
+                labels[tile] = mTopK.getIndex(0);
             }
+            return count;
+        }
+    }
+
+    // Waits for a run on another thread, closing the interpreter under it would crash. Every run holds
+    // mRunLock.
+    @Override
+    public void close() {
+        synchronized (mRunLock) {
+            mModelInterpreter.close();
+            mTfLite = null;
         }
     }
 
+    private ByteBuffer convertBitmapToByteBuffer(Bitmap bitmap) {
+        bitmap.getPixels(mPreprocessor.getPixels(), 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
+        return mPreprocessor.convertPixels();
+    }
+
+    private ByteBuffer convertImageToByteBuffer(Image image, int rotation, MultiCrop multiCrop) {
+        Image.Plane[] planes = image.getPlanes();
+        if (multiCrop == null) {
+            return mYuvConverter.convert(planes[0].getBuffer(), planes[1].getBuffer(), planes[2].getBuffer(),
+                    planes[0].getRowStride(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                    image.getWidth(), image.getHeight(), rotation, mPreprocessor);
+        }
+        return mYuvConverter.convert(planes[0].getBuffer(), planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[0].getRowStride(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                image.getWidth(), image.getHeight(), rotation, multiCrop.getCrops(), multiCrop.getCount(), mPreprocessor);
+    }
+
+    // What the next input of score is made of, it changes with the multi-crop and the region.
+    @Override
+    public InputSpec getInputSpec() {
+        return mInputSpec;
+    }
+
     int getImageSizeX() {
         return mImageSizeX;
     }
@@ -136,59 +258,285 @@ class Classifier {
         return mImageSizeY;
     }
 
-    private String getTopResultByte(byte[][] labelProbArray) {
-        byte[] array = labelProbArray[0];
-        List<Byte> list = new ArrayList<>(array.length);
-        for (byte b : array) {
-            list.add(b);
+    String getLabel(int index) {
+        return mLabels.get(index);
+    }
+
+    // The scores of the last fan-out run, see run.
+    float[] getLastScores() {
+        return mLastScores;
+    }
+
+    float getMinConfidence() {
+        return (float) mAccuracyValue;
+    }
+
+    ModelDescriptor getModel() {
+        return mModel;
+    }
+
+    int getNumLabels() {
+        return mLabels.size();
+    }
+
+    // The probability of every label for the last inference, dequantized if needed. The array is reused.
+    private float[] getScores() {
+        float[] scores;
+        if (mLastBatchSize > 1) {
+            scores = mAggregatedScores;
+        } else if (mIsModelQuantized) {
+            byte[] row = mPreprocessor.getLabelProbArrayByte(1)[0];
+            for (int i = 0; i < mScores.length; i++) {
+                mScores[i] = row[i] & 0xFF;
+            }
+            scores = mScores;
+        } else {
+            return mPreprocessor.getLabelProbArrayFloat(1)[0];
         }
-        byte value = Collections.max(list);
-        float valueFloat = (value & 0xff) / 255.0f;
-        if (valueFloat > mAccuracyValue) {
-            int index = list.indexOf(value);
-            return mLabelList.get(index);
+        if (mIsModelQuantized) {
+            for (int i = 0; i < mScores.length; i++) {
+                mScores[i] = mOutputScale * (scores[i] - mOutputZeroPoint);
+            }
+            return mScores;
+        }
+        return scores;
+    }
+
+    // Results of recently seen inputs, so that panning back to an object skips its inference.
+    ResultCache getResultCache() {
+        return mResultCache;
+    }
+
+    // Whether the last score came from the cache, which keeps only the top labels.
+    boolean isLastCacheHit() {
+        return mLastCacheHit;
+    }
+
+    // Full integer models take and return uint8 or int8 values.
+    private static boolean isQuantized(DataType type) {
+        return type == DataType.UINT8 || type == DataType.INT8;
+    }
+
+    // The label table converted from the label list at build time, memory-mapped like the model, or the list
+    // itself, one label per line, when it was not converted. Also read by the Detector.
+    static LabelTable loadLabels(Context context, String labelPath) throws IOException {
+        AssetFileDescriptor fileDescriptor;
+        try {
+            fileDescriptor = context.getAssets().openFd(LabelTable.tableName(labelPath));
+        } catch (FileNotFoundException e) {
+            InputStream in = context.getAssets().open(labelPath);
+            try {
+                return LabelTable.wrap(ByteBuffer.wrap(LabelTable.encode(Labels.read(in))));
+            } finally {
+                in.close();
+            }
+        }
+        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+        try {
+            // the mapping outlives the channel
+            return LabelTable.wrap(inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    fileDescriptor.getStartOffset(), fileDescriptor.getDeclaredLength()));
+        } finally {
+            inputStream.close();
+            fileDescriptor.close();
+        }
+    }
+
+    // Converts the frame for the spec, which another classifier with an equal spec may read as well.
+    @Override
+    public ByteBuffer preprocess(Image image, int rotation, InputSpec spec) {
+        long start = System.nanoTime();
+        ByteBuffer input = convertImageToByteBuffer(image, rotation, spec.getMultiCrop());
+        record(Metrics.PREPROCESS, start);
+        return input;
+    }
+
+    private void record(int stage, long startNs) {
+        Metrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.record(stage, System.nanoTime() - startNs);
+        }
+    }
+
+    // Scores the input on a fan-out thread, getLastScores returns the result.
+    @Override
+    public void run(ByteBuffer input, InputSpec spec) {
+        mLastScores = score(input, spec);
+    }
+
+    // Runs a batch of images into the output rows of that batch size and returns how long the interpreter took.
+    private long run(ByteBuffer imageData, int batchSize) {
+        if (batchSize != mInputBatchSize) {
+            // tensors are reallocated on the next run, so only resize when the batch changes
+            mTfLite.resizeInput(0, new int[]{batchSize, mImageSizeY, mImageSizeX, mPixelSize});
+            mInputBatchSize = batchSize;
+        }
+        long start = System.nanoTime();
+        if (mIsModelQuantized) {
+            byte[][] labelProbArray = mPreprocessor.getLabelProbArrayByte(batchSize);
+            mTfLite.run(imageData, labelProbArray);
+            if (mIsOutputSigned) {
+                // flipping the sign bit adds 128, so int8 scores read as unsigned keep their order
+                for (int n = 0; n < batchSize; n++) {
+                    final byte[] row = labelProbArray[n];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] ^= 0x80;
+                    }
+                }
+            }
         } else {
-            return "";
+            mTfLite.run(imageData, mPreprocessor.getLabelProbArrayFloat(batchSize));
+        }
+        long latencyNs = System.nanoTime() - start;
+        Metrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.record(Metrics.INTERPRETER, latencyNs);
+        }
+        return latencyNs;
+    }
+
+    // Same as run, aggregating the crops of the multi-crop.
+    private long runInference(ByteBuffer imageData, MultiCrop multiCrop) {
+        int batchSize = (multiCrop == null) ? 1 : multiCrop.getCount();
+        long latencyNs = run(imageData, batchSize);
+        if (multiCrop != null) {
+            if (mIsModelQuantized) {
+                multiCrop.aggregate(mPreprocessor.getLabelProbArrayByte(batchSize), batchSize, mAggregatedScores);
+            } else {
+                multiCrop.aggregate(mPreprocessor.getLabelProbArrayFloat(batchSize), batchSize, mAggregatedScores);
+            }
+        }
+        mLastBatchSize = batchSize;
+        return latencyNs;
+    }
+
+    // Like classify, but returns the probability of every label instead of the top ones.
+    // The array is overwritten by the next call. An input that looks like a recent one gets the
+    // cached top labels back without inference, every other label then scores 0, see isLastCacheHit.
+    float[] score(Image image, int rotation) {
+        if (mTfLite == null) {
+            return null;
+        }
+        InputSpec spec = mInputSpec;
+        return score(preprocess(image, rotation, spec), spec);
+    }
+
+    // Same as above for an input already converted for the spec, possibly by another classifier.
+    float[] score(ByteBuffer input, InputSpec spec) {
+        synchronized (mRunLock) {
+            if (mTfLite == null) {
+                return null;
+            }
+            MultiCrop multiCrop = spec.getMultiCrop();
+            // hashing, the cache and top-K count as postprocessing, the interpreter in between does not
+            long start = System.nanoTime();
+            long hash = PerceptualHash.dHash(input, mImageSizeX, mImageSizeY, mIsModelQuantized,
+                    mIsInputSigned);
+            int count = mResultCache.get(hash, System.nanoTime(), mCachedIndices, mCachedScores);
+            mLastCacheHit = count != ResultCache.MISS;
+            if (mLastCacheHit) {
+                Arrays.fill(mScores, 0);
+                for (int i = 0; i < count; i++) {
+                    mScores[mCachedIndices[i]] = mCachedScores[i];
+                }
+                record(Metrics.POSTPROCESS, start);
+                return mScores;
+            }
+            long interpreterNs = runInference(input, multiCrop);
+            float[] scores = getScores();
+            count = mTopK.select(scores, MAX_RESULTS);
+            for (int i = 0; i < count; i++) {
+                mCachedIndices[i] = mTopK.getIndex(i);
+                mCachedScores[i] = mTopK.getScore(i);
+            }
+            mResultCache.put(hash, System.nanoTime(), mCachedIndices, mCachedScores, count);
+            record(Metrics.POSTPROCESS, start + interpreterNs);
+            return scores;
+        }
+    }
+
+    // Stage latencies of the next inferences go there, null to stop recording.
+    void setMetrics(Metrics metrics) {
+        mMetrics = metrics;
+    }
+
+    // Null goes back to classifying the single center crop.
+    synchronized void setMultiCrop(MultiCrop multiCrop) {
+        if (multiCrop != null && multiCrop.getCount() > mBatchSize) {
+            throw new IllegalArgumentException("At most " + mBatchSize + " crops are supported");
         }
+        mBaseMultiCrop = multiCrop;
+        updateMultiCrop();
     }
 
-    private String getTopResultFloat(float[][] labelProbArray) {
-        float[] array = labelProbArray[0];
-        List<Float> list = new ArrayList<>(array.length);
-        for (float f : array) {
-            list.add(f);
+    // Classifies only the (left, top, scale) crop of the center region, see MultiCrop, null for all of it.
+    // The multi-crop, if any, is then taken inside the region. The array must not change afterwards.
+    synchronized void setRegion(float[] region) {
+        if (region == mRegion) {
+            return;
         }
-        float value = Collections.max(list);
-        if (value > mAccuracyValue) {
-            int index = list.indexOf(value);
-            return mLabelList.get(index);
+        mRegion = region;
+        updateMultiCrop();
+    }
+
+    // The k most confident labels of the last inference, leaving out those under the accuracy threshold.
+    List<Recognition> topK(int k) {
+        int size;
+        if (mLastBatchSize > 1) {
+            size = mTopK.select(mAggregatedScores, k);
+        } else if (mIsModelQuantized) {
+            size = mTopK.select(mPreprocessor.getLabelProbArrayByte(1)[0], k);
         } else {
-            return "";
+            size = mTopK.select(mPreprocessor.getLabelProbArrayFloat(1)[0], k);
         }
+        List<Recognition> recognitions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            float confidence = mIsModelQuantized
+                    ? mOutputScale * (mTopK.getScore(i) - mOutputZeroPoint) : mTopK.getScore(i);
+            if (confidence <= mAccuracyValue) {
+                break;
+            }
+            int index = mTopK.getIndex(i);
+            recognitions.add(new Recognition(index, mLabels.get(index), confidence));
+        }
+        return recognitions;
     }
 
-    private List<String> loadLabelList(Activity activity) throws IOException {
-        List<String> labelList = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(activity.getAssets().open(mLabelPath)));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            labelList.add(line);
+    private void updateMultiCrop() {
+        if (mRegion == null) {
+            mMultiCrop = mBaseMultiCrop;
+        } else if (mBaseMultiCrop == null) {
+            mMultiCrop = new MultiCrop(mRegion, MultiCrop.MEAN);
+        } else {
+            mMultiCrop = mBaseMultiCrop.within(mRegion[0], mRegion[1], mRegion[2]);
+        }
+        // a fan-out run may still read the cache on its own thread
+        synchronized (mRunLock) {
+            mInputSpec = mInputSpec.withMultiCrop(mMultiCrop);
+            // cached results were computed over the old crops
+            mResultCache.clear();
         }
-        reader.close();
-        return labelList;
     }
 
-    private ByteBuffer loadModelFile(Activity activity) throws IOException {
-        AssetFileDescriptor fileDescriptor = activity.getAssets().openFd(mModelPath);
-        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
-        FileChannel fileChannel = inputStream.getChannel();
-        long startOffset = fileDescriptor.getStartOffset();
-        long declaredLength = fileDescriptor.getDeclaredLength();
-        MappedByteBuffer mbb = fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
-        fileChannel.close();
-        inputStream.close();
-        fileDescriptor.close();
-        return mbb;
+    // Runs blank frames, batched like the current multi-crop, so that the first camera frame is not the slow one.
+    void warmUp(int runs) {
+        synchronized (mRunLock) {
+            if (mTfLite == null) {
+                return;
+            }
+            MultiCrop multiCrop = mMultiCrop;
+            int batchSize = (multiCrop == null) ? 1 : multiCrop.getCount();
+            int[] pixels = mPreprocessor.getPixels();
+            for (int run = 0; run < runs; run++) {
+                mPreprocessor.beginFrame();
+                for (int image = 0; image < batchSize; image++) {
+                    for (int row = 0; row < mImageSizeY; row++) {
+                        mPreprocessor.putRow(pixels, row * mImageSizeX);
+                    }
+                }
+                runInference(mPreprocessor.endFrame(), multiCrop);
+            }
+        }
     }
 
 }
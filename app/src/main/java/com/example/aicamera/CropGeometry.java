@@ -0,0 +1,30 @@
+package com.example.aicamera;
+
+class CropGeometry {
+
+    // CONSTRUCTOR
+    private CropGeometry() {
+    }
+
+    // METHODS
+    // The (left, top, scale) crop of the model's center region, see MultiCrop, that keeps the same share
+    // of the frame as zoomRegion does of the sensor.
+    static float[] zoomCrop(int width, int height, float zoomLevel) {
+        int[] region = zoomRegion(width, height, zoomLevel);
+        float scale = (float) (region[2] - region[0]) / width;
+        float margin = (1.0f - scale) / 2;
+        return new float[]{margin, margin, scale};
+    }
+
+    // The centered area of a width x height sensor that a digital zoom keeps, as {left, top, right, bottom}
+    // for SCALER_CROP_REGION.
+    static int[] zoomRegion(int width, int height, float zoomLevel) {
+        // This ratio is the ratio of cropped Rect to Camera's original (Maximum) Rect
+        float ratio = (float) 1 / zoomLevel;
+        // croppedWidth and croppedHeight are the pixels cropped away, not pixels after cropped
+        int croppedWidth = width - Math.round((float) width * ratio);
+        int croppedHeight = height - Math.round((float) height * ratio);
+        return new int[]{croppedWidth / 2, croppedHeight / 2, width - croppedWidth / 2, height - croppedHeight / 2};
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.example.aicamera;
+
+class DetectionDecoder {
+
+    // VARIABLES
+    private final float[] mBoxes;
+    private final int[] mCandidateClasses;
+    private final float[] mCandidateScores;
+    private final float[] mCandidates;
+    private final int[] mClasses;
+    private int mCount;
+    private final NonMaxSuppression mNms;
+    private final float[] mScores;
+
+    // CONSTRUCTOR
+    // Keeps up to maxDetections of up to maxCandidates boxes, see NonMaxSuppression.
+    DetectionDecoder(int maxCandidates, int maxDetections, float scoreThreshold, float iouThreshold) {
+        mCandidates = new float[4 * maxCandidates];
+        mCandidateScores = new float[maxCandidates];
+        mCandidateClasses = new int[maxCandidates];
+        mBoxes = new float[4 * maxDetections];
+        mScores = new float[maxDetections];
+        mClasses = new int[maxDetections];
+        mNms = new NonMaxSuppression(maxCandidates, maxDetections, scoreThreshold, iouThreshold);
+    }
+
+    // METHODS
+    // Output of a model without post-processing: a {top, left, bottom, right} box per anchor, already decoded
+    // and relative to the input, and a score per class. Every box takes its best class from firstClass on,
+    // the ones before are background.
+    int decode(float[][] locations, float[][] classScores, int count, int firstClass) {
+        count = Math.min(count, mCandidateScores.length);
+        for (int i = 0; i < count; i++) {
+            final float[] row = classScores[i];
+            int best = firstClass;
+            for (int c = firstClass + 1; c < row.length; c++) {
+                if (row[c] > row[best]) {
+                    best = c;
+                }
+            }
+            putCandidate(i, locations[i], best, row[best]);
+        }
+        return suppress(count);
+    }
+
+    // Output of a model with the detection post-processing op: boxes, classes and scores of count detections.
+    // classOffset is added to the classes, for label files that start with a background entry.
+    int decode(float[][] locations, float[] classes, float[] scores, int count, int classOffset) {
+        count = Math.min(count, mCandidateScores.length);
+        for (int i = 0; i < count; i++) {
+            putCandidate(i, locations[i], (int) classes[i] + classOffset, scores[i]);
+        }
+        return suppress(count);
+    }
+
+    // {left, top, right, bottom} of every detection relative to the model input, the best first.
+    float[] getBoxes() {
+        return mBoxes;
+    }
+
+    int getClass(int detection) {
+        return mClasses[detection];
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    float getScore(int detection) {
+        return mScores[detection];
+    }
+
+    // Swaps the model's {top, left, bottom, right} order to the one the overlays draw.
+    private void putCandidate(int i, float[] location, int clazz, float score) {
+        mCandidates[4 * i] = location[1];
+        mCandidates[4 * i + 1] = location[0];
+        mCandidates[4 * i + 2] = location[3];
+        mCandidates[4 * i + 3] = location[2];
+        mCandidateClasses[i] = clazz;
+        mCandidateScores[i] = score;
+    }
+
+    private int suppress(int count) {
+        mCount = mNms.select(mCandidates, mCandidateScores, mCandidateClasses, count);
+        for (int d = 0; d < mCount; d++) {
+            int candidate = mNms.getIndex(d);
+            System.arraycopy(mCandidates, 4 * candidate, mBoxes, 4 * d, 4);
+            mScores[d] = mCandidateScores[candidate];
+            mClasses[d] = mCandidateClasses[candidate];
+        }
+        return mCount;
+    }
+
+}
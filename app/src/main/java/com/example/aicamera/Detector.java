@@ -0,0 +1,156 @@
+package com.example.aicamera;
+
+import android.content.Context;
+import android.media.Image;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+class Detector implements Closeable {
+
+    // CONSTANTS
+    private static final String BACKGROUND_LABEL = "???";
+    private static final float IOU_THRESHOLD = 0.5f;
+    static final int MAX_DETECTIONS = 10;
+    private static final float MIN_CONFIDENCE = 0.5f;
+
+    // VARIABLES
+    private final float[][] mClassScores;
+    private final float[] mClasses;
+    private final float[] mCount;
+    private final DetectionDecoder mDecoder;
+    private final int mImageSizeX;
+    private final int mImageSizeY;
+    private final Object[] mInputs = new Object[1];
+    private final boolean mIsPostProcessed;
+    private final int mLabelOffset;
+    private final LabelTable mLabels;
+    private final float[][] mLocations;
+    private final ModelDescriptor mModel;
+    private final ModelInterpreter mModelInterpreter;
+    private final Map<Integer, Object> mOutputs = new HashMap<>();
+    private final Preprocessor mPreprocessor;
+    private final float[] mScores;
+    private Interpreter mTfLite;
+    private final YuvConverter mYuvConverter;
+
+    // CONSTRUCTOR
+    // Models either end with the detection post-processing op, with locations, classes, scores and count
+    // outputs in this order, or output decoded locations and a score per class for every anchor.
+    Detector(Context context, ModelDescriptor model, StartupTrace trace) throws IOException {
+        mModel = model;
+        mModelInterpreter = new ModelInterpreter(context, model.getModelPath(), trace);
+        mTfLite = mModelInterpreter.getInterpreter();
+        mLabels = Classifier.loadLabels(context, model.getLabelPath());
+        // label files of detection models start with a background entry the classes do not count
+        mLabelOffset = (mLabels.size() > 0 && BACKGROUND_LABEL.equals(mLabels.get(0))) ? 1 : 0;
+
+        Tensor input = mTfLite.getInputTensor(0);
+        int[] shape = input.shape();
+        if (shape.length != 4 || shape[3] != 3) {
+            close();
+            throw new IOException(model.getModelPath() + ": unsupported input shape " + Arrays.toString(shape));
+        }
+        mImageSizeY = shape[1];
+        mImageSizeX = shape[2];
+        boolean isQuantized = input.dataType() == DataType.UINT8 || input.dataType() == DataType.INT8;
+        mPreprocessor = new Preprocessor(mImageSizeX, mImageSizeY, shape[3], 1, model.getImageMean(),
+                model.getImageStd(), isQuantized, input.quantizationParams().getScale(),
+                input.quantizationParams().getZeroPoint(), input.dataType() == DataType.INT8, 1);
+        mYuvConverter = new YuvConverter(mImageSizeX, mImageSizeY);
+
+        // the outputs are written straight into these arrays on every run
+        int[] locationShape = mTfLite.getOutputTensor(0).shape();
+        int anchors = locationShape[1];
+        mLocations = new float[anchors][4];
+        mOutputs.put(0, new float[][][]{mLocations});
+        mIsPostProcessed = mTfLite.getOutputTensorCount() == 4;
+        if (mIsPostProcessed) {
+            mClasses = new float[anchors];
+            mScores = new float[anchors];
+            mCount = new float[1];
+            mClassScores = null;
+            mOutputs.put(1, new float[][]{mClasses});
+            mOutputs.put(2, new float[][]{mScores});
+            mOutputs.put(3, mCount);
+        } else {
+            int[] scoreShape = mTfLite.getOutputTensor(1).shape();
+            mClassScores = new float[anchors][scoreShape[scoreShape.length - 1]];
+            mClasses = null;
+            mScores = null;
+            mCount = null;
+            mOutputs.put(1, new float[][][]{mClassScores});
+        }
+        for (int i = 0; i < mTfLite.getOutputTensorCount(); i++) {
+            if (mTfLite.getOutputTensor(i).dataType() != DataType.FLOAT32) {
+                close();
+                throw new IOException(model.getModelPath() + ": unsupported " + mTfLite.getOutputTensor(i).dataType()
+                        + " output " + i);
+            }
+        }
+        mDecoder = new DetectionDecoder(anchors, MAX_DETECTIONS, MIN_CONFIDENCE, IOU_THRESHOLD);
+        trace.mark(StartupTrace.INTERPRETER_READY);
+    }
+
+    // METHODS
+    @Override
+    public void close() {
+        mModelInterpreter.close();
+        mTfLite = null;
+    }
+
+    // Detects objects in a YUV_420_888 frame, rotation is the clockwise angle that makes the frame upright.
+    // Returns the number of detections, their boxes are relative to the center region of the frame.
+    int detect(Image image, int rotation) {
+        if (mTfLite == null) {
+            return 0;
+        }
+        Image.Plane[] planes = image.getPlanes();
+        ByteBuffer input = mYuvConverter.convert(planes[0].getBuffer(), planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[0].getRowStride(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                image.getWidth(), image.getHeight(), rotation, mPreprocessor);
+        return run(input);
+    }
+
+    // {left, top, right, bottom} of every detection, the most confident first. Overwritten by the next call.
+    float[] getBoxes() {
+        return mDecoder.getBoxes();
+    }
+
+    String getLabel(int detection) {
+        return mLabels.get(mDecoder.getClass(detection));
+    }
+
+    ModelDescriptor getModel() {
+        return mModel;
+    }
+
+    float getScore(int detection) {
+        return mDecoder.getScore(detection);
+    }
+
+    private int run(ByteBuffer input) {
+        mInputs[0] = input;
+        mTfLite.runForMultipleInputsOutputs(mInputs, mOutputs);
+        if (mIsPostProcessed) {
+            return mDecoder.decode(mLocations, mClasses, mScores, (int) mCount[0], mLabelOffset);
+        }
+        return mDecoder.decode(mLocations, mClassScores, mLocations.length, mLabelOffset);
+    }
+
+    // Runs blank frames so that the first camera frame is not the slow one.
+    void warmUp(int runs) {
+        for (int run = 0; run < runs; run++) {
+            run(mPreprocessor.convertPixels());
+        }
+    }
+
+}
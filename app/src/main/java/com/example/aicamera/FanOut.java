@@ -0,0 +1,212 @@
+package com.example.aicamera;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+class FanOut<F, S> {
+
+    interface Model<F, S> {
+        // Models whose specs are equal read the same preprocessed input.
+        S getInputSpec();
+
+        // Converts the frame into an input buffer of the spec, called on the thread of process.
+        ByteBuffer preprocess(F frame, int rotation, S spec);
+
+        // Runs the model on the input and keeps the result, called on an executor thread. The input
+        // must only be read.
+        void run(ByteBuffer input, S spec);
+    }
+
+    // VARIABLES
+    private final AtomicBoolean[] mBusy;
+    private final long mDeadlineNs;
+    private final long[] mDeadlineMisses;
+    private final ExecutorService mExecutor;
+    private final boolean[] mFresh;
+    private final ByteBuffer[] mInputs;
+    private final AtomicLongArray mLatencyNs;
+    private final List<Model<F, S>> mModels;
+    private final int[] mOwners;
+    private final AtomicLongArray mRuns;
+    private final long[] mSkips;
+    private final boolean[] mSkipped;
+    private final List<S> mSpecs;
+    private final List<Task> mTasks;
+
+    // CONSTRUCTOR
+    // Runs the models on at most threads executor threads, and waits at most deadlineNs per frame for them.
+    FanOut(List<? extends Model<F, S>> models, int threads, long deadlineNs) {
+        if (models.isEmpty()) {
+            throw new IllegalArgumentException("No models to run");
+        }
+        mModels = new ArrayList<>(models);
+        mDeadlineNs = deadlineNs;
+        int count = mModels.size();
+        mBusy = new AtomicBoolean[count];
+        mTasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            mBusy[i] = new AtomicBoolean();
+            mTasks.add(new Task(i));
+        }
+        mDeadlineMisses = new long[count];
+        mFresh = new boolean[count];
+        mInputs = new ByteBuffer[count];
+        mLatencyNs = new AtomicLongArray(count);
+        mOwners = new int[count];
+        mRuns = new AtomicLongArray(count);
+        mSkips = new long[count];
+        mSkipped = new boolean[count];
+        mSpecs = new ArrayList<>(count);
+        mExecutor = Executors.newFixedThreadPool(Math.min(threads, count), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "Fan-out thread");
+            }
+        });
+    }
+
+    // METHODS
+    // Waits for late models to finish, so that their interpreters can be closed afterwards.
+    void close() throws InterruptedException {
+        mExecutor.shutdown();
+        mExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    // How many frames the model did not finish within the deadline.
+    long getDeadlineMisses(int model) {
+        return mDeadlineMisses[model];
+    }
+
+    // Average time of the finished runs of the model, late ones included.
+    long getMeanLatencyNs(int model) {
+        long runs = mRuns.get(model);
+        return (runs == 0) ? 0 : mLatencyNs.get(model) / runs;
+    }
+
+    // How many frames the model sat out because it, or a model sharing its input, was still running late.
+    long getSkips(int model) {
+        return mSkips[model];
+    }
+
+    // Whether the model finished the last frame within the deadline, only then its result may be read.
+    boolean isFresh(int model) {
+        return mFresh[model];
+    }
+
+    // Preprocesses the frame once per distinct input spec and runs every model on its input in parallel,
+    // returning the number of models that finished within the deadline. A late model keeps running and
+    // reads its input until it is done, so every model sharing that input sits out the next frames until then.
+    int process(F frame, int rotation) throws InterruptedException {
+        long deadline = System.nanoTime() + mDeadlineNs;
+        int count = mModels.size();
+
+        // the first model of each spec owns the input of the others
+        mSpecs.clear();
+        for (int i = 0; i < count; i++) {
+            S spec = mModels.get(i).getInputSpec();
+            mSpecs.add(spec);
+            mOwners[i] = i;
+            mSkipped[i] = false;
+            mFresh[i] = false;
+            for (int j = 0; j < i; j++) {
+                if (mOwners[j] == j && mSpecs.get(j).equals(spec)) {
+                    mOwners[i] = j;
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (mBusy[i].get()) {
+                mSkipped[mOwners[i]] = true;
+            }
+        }
+        int submitted = 0;
+        for (int i = 0; i < count; i++) {
+            if (mSkipped[mOwners[i]]) {
+                mSkips[i]++;
+            } else {
+                submitted++;
+            }
+        }
+        if (submitted == 0) {
+            return 0;
+        }
+
+        // models start as soon as their input is ready, while the next spec is preprocessed
+        CountDownLatch latch = new CountDownLatch(submitted);
+        for (int owner = 0; owner < count; owner++) {
+            if (mOwners[owner] != owner || mSkipped[owner]) {
+                continue;
+            }
+            ByteBuffer input = mModels.get(owner).preprocess(frame, rotation, mSpecs.get(owner));
+            for (int i = owner; i < count; i++) {
+                if (mOwners[i] == owner) {
+                    mInputs[i] = input;
+                    mBusy[i].set(true);
+                    Task task = mTasks.get(i);
+                    task.start(latch, mSpecs.get(i));
+                    mExecutor.execute(task);
+                }
+            }
+        }
+        latch.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+        int fresh = 0;
+        for (int i = 0; i < count; i++) {
+            if (mSkipped[mOwners[i]]) {
+                continue;
+            }
+            mFresh[i] = !mBusy[i].get();
+            if (mFresh[i]) {
+                fresh++;
+            } else {
+                mDeadlineMisses[i]++;
+            }
+        }
+        return fresh;
+    }
+
+    // Runs one model, reused for every frame.
+    private class Task implements Runnable {
+
+        // VARIABLES
+        private final int mIndex;
+        private CountDownLatch mLatch;
+        private S mSpec;
+
+        // CONSTRUCTOR
+        Task(int index) {
+            mIndex = index;
+        }
+
+        // METHODS
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                mModels.get(mIndex).run(mInputs[mIndex], mSpec);
+            } finally {
+                mLatencyNs.addAndGet(mIndex, System.nanoTime() - start);
+                mRuns.incrementAndGet(mIndex);
+                mBusy[mIndex].set(false);
+                mLatch.countDown();
+            }
+        }
+
+        // Called before the task is handed to the executor, which publishes the fields to it.
+        void start(CountDownLatch latch, S spec) {
+            mLatch = latch;
+            mSpec = spec;
+        }
+
+    }
+
+}
@@ -0,0 +1,250 @@
+package com.example.aicamera;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+class GalleryScan {
+
+    interface Decoder {
+        // Decodes the image into width x height ARGB pixels of its center, subsampled while decoding so that
+        // the full resolution is never held. False if it is not a readable image. Called from several threads.
+        boolean decode(String id, int[] pixels, int width, int height) throws IOException;
+    }
+
+    interface Model {
+        int getBatchSize();
+
+        int getImageSizeX();
+
+        int getImageSizeY();
+
+        String getLabel(int index);
+
+        float getMinConfidence();
+
+        // Classifies the first count images, writing the k best labels of image i and their scores from i * k on.
+        void classify(int[][] images, int count, int k, int[] labels, float[] scores);
+    }
+
+    // VARIABLES
+    private final BlockingQueue<int[]> mBuffers;
+    private volatile boolean mCancelled;
+    private int mClassified;
+    private final Decoder mDecoder;
+    private final BlockingQueue<Decoded> mDecoded = new LinkedBlockingQueue<>();
+    private int mFailed;
+    private final int[][] mImages;
+    private final PhotoIndex mIndex;
+    private final int mK;
+    private final float[] mKeptScores;
+    private final int[] mLabels;
+    private final Model mModel;
+    private final String[] mNames;
+    private final float[] mScores;
+    private int mSkipped;
+    private final int mThreads;
+
+    // CONSTRUCTOR
+    // Decodes on threads worker threads and classifies on the thread calling run, writing the k best labels
+    // of every image to the index. Twice a batch of decoded images is held at most: decoding waits for the
+    // model to free their buffers, which bounds the memory however large the gallery.
+    GalleryScan(Model model, Decoder decoder, PhotoIndex index, int threads, int k) {
+        mModel = model;
+        mDecoder = decoder;
+        mIndex = index;
+        mThreads = threads;
+        mK = k;
+        int batchSize = model.getBatchSize();
+        mBuffers = new ArrayBlockingQueue<>(2 * batchSize);
+        for (int i = 0; i < 2 * batchSize; i++) {
+            mBuffers.add(new int[model.getImageSizeX() * model.getImageSizeY()]);
+        }
+        mImages = new int[batchSize][];
+        mLabels = new int[batchSize * k];
+        mScores = new float[batchSize * k];
+        mNames = new String[k];
+        mKeptScores = new float[k];
+    }
+
+    // METHODS
+    // Stops the scan after the images being decoded, run then returns with everything before in the index.
+    void cancel() {
+        mCancelled = true;
+    }
+
+    // Classifies the images of a batch and adds them to the index, which writes every record through so that
+    // it doubles as the checkpoint.
+    private void classify(List<Decoded> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int count = batch.size();
+        for (int i = 0; i < count; i++) {
+            mImages[i] = batch.get(i).mPixels;
+        }
+        mModel.classify(mImages, count, mK, mLabels, mScores);
+        float minConfidence = mModel.getMinConfidence();
+        for (int i = 0; i < count; i++) {
+            int found = 0;
+            for (int rank = 0; rank < mK; rank++) {
+                int label = mLabels[i * mK + rank];
+                float score = mScores[i * mK + rank];
+                if (label >= 0 && score > minConfidence) {
+                    mNames[found] = mModel.getLabel(label);
+                    mKeptScores[found++] = score;
+                }
+            }
+            mIndex.add(batch.get(i).mId, mNames, mKeptScores, found);
+            mBuffers.add(batch.get(i).mPixels);
+        }
+        mClassified += count;
+        batch.clear();
+    }
+
+    // Scales the center of the source image that has the aspect ratio of the target into the target,
+    // taking the nearest source pixel to the center of every target pixel.
+    static void cropAndScale(int[] source, int sourceWidth, int sourceHeight, int[] target, int targetWidth,
+                             int targetHeight) {
+        float scale = Math.min((float) sourceWidth / targetWidth, (float) sourceHeight / targetHeight);
+        float left = (sourceWidth - scale * targetWidth) / 2;
+        float top = (sourceHeight - scale * targetHeight) / 2;
+        for (int i = 0; i < targetHeight; i++) {
+            int y = Math.min((int) (top + (i + 0.5f) * scale), sourceHeight - 1);
+            int row = y * sourceWidth;
+            for (int j = 0; j < targetWidth; j++) {
+                int x = Math.min((int) (left + (j + 0.5f) * scale), sourceWidth - 1);
+                target[i * targetWidth + j] = source[row + x];
+            }
+        }
+    }
+
+    int getClassified() {
+        return mClassified;
+    }
+
+    // Images that could not be decoded, they are left out of the index and tried again by the next scan.
+    int getFailed() {
+        return mFailed;
+    }
+
+    // Images already in the index when the scan started.
+    int getSkipped() {
+        return mSkipped;
+    }
+
+    // The JPEG and PNG files of the directory, sorted by name.
+    static List<String> listImages(File directory) {
+        List<String> images = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return images;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName().toLowerCase(Locale.US);
+            if (file.isFile() && (name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png"))) {
+                images.add(file.getPath());
+            }
+        }
+        return images;
+    }
+
+    // Classifies every image that is not in the index yet, in order. Returns how many were classified.
+    int run(List<String> ids) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(mThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Gallery decoder thread");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        int batchSize = mModel.getBatchSize();
+        List<Decoded> batch = new ArrayList<>(batchSize);
+        int next = 0;
+        int inFlight = 0;
+        try {
+            while (true) {
+                // hand out every free buffer, the rest of the images wait for the model
+                int[] buffer;
+                while (!mCancelled && next < ids.size() && (buffer = mBuffers.poll()) != null) {
+                    String id = ids.get(next++);
+                    if (mIndex.contains(id)) {
+                        mSkipped++;
+                        mBuffers.add(buffer);
+                        continue;
+                    }
+                    executor.execute(new Decoded(id, buffer));
+                    inFlight++;
+                }
+                boolean done = inFlight == 0 && (mCancelled || next == ids.size());
+                if (done || batch.size() == batchSize) {
+                    classify(batch);
+                    if (done) {
+                        return mClassified;
+                    }
+                    continue;
+                }
+                Decoded decoded = mDecoded.take();
+                inFlight--;
+                if (decoded.mIsDecoded) {
+                    batch.add(decoded);
+                } else {
+                    mFailed++;
+                    mBuffers.add(decoded.mPixels);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    // Largest power of two to subsample the image by that keeps it at least as large as the target.
+    static int sampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        while (width / (2 * sampleSize) >= targetWidth && height / (2 * sampleSize) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // Decodes one image on a worker thread and queues itself for the model.
+    private class Decoded implements Runnable {
+
+        // VARIABLES
+        private final String mId;
+        private boolean mIsDecoded;
+        private final int[] mPixels;
+
+        // CONSTRUCTOR
+        Decoded(String id, int[] pixels) {
+            mId = id;
+            mPixels = pixels;
+        }
+
+        // METHODS
+        @Override
+        public void run() {
+            try {
+                mIsDecoded = mDecoder.decode(mId, mPixels, mModel.getImageSizeX(), mModel.getImageSizeY());
+            } catch (IOException | RuntimeException e) {
+                mIsDecoded = false;
+            }
+            mDecoded.add(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.example.aicamera;
+
+import android.content.ContentUris;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+class GalleryTagger {
+
+    // CONSTANTS
+    private static final String TAG = "GalleryTagger";
+    private static final int DECODER_THREADS = 2;
+    private static final int TOP_K = 3;
+
+    // VARIABLES
+    private final Context mContext;
+    private final PhotoIndex mIndex;
+    private volatile GalleryScan mScan;
+    private Thread mThread;
+
+    // CONSTRUCTOR
+    // Tags into the index of the photos taken, so that one query finds them and the photos of the gallery.
+    GalleryTagger(Context context, PhotoIndex index) {
+        mContext = context.getApplicationContext();
+        mIndex = index;
+    }
+
+    // METHODS
+    // Stops the running scan, the next one resumes from its index.
+    synchronized void cancel() {
+        if (mThread != null) {
+            mThread.interrupt();
+            mThread = null;
+        }
+        GalleryScan scan = mScan;
+        if (scan != null) {
+            scan.cancel();
+        }
+    }
+
+    private static Bitmap decode(ContentResolver resolver, String id, BitmapFactory.Options options)
+            throws IOException {
+        InputStream in = id.startsWith("/") ? new FileInputStream(id) : resolver.openInputStream(Uri.parse(id));
+        if (in == null) {
+            return null;
+        }
+        try {
+            return BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            in.close();
+        }
+    }
+
+    synchronized boolean isRunning() {
+        return mThread != null && mThread.isAlive();
+    }
+
+    // Every photo of the shared image collection, oldest first so that a resumed scan starts where it stopped.
+    private List<String> listMediaStoreImages() {
+        List<String> ids = new ArrayList<>();
+        Cursor cursor = mContext.getContentResolver().query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                new String[]{MediaStore.Images.Media._ID}, null, null, MediaStore.Images.Media._ID);
+        if (cursor == null) {
+            return ids;
+        }
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                        cursor.getLong(0)).toString());
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    private void run(ModelDescriptor model, File directory) {
+        Classifier classifier = null;
+        try {
+            classifier = new Classifier(mContext, model, new StartupTrace(System.nanoTime(), null));
+            List<String> ids = (directory == null) ? listMediaStoreImages() : GalleryScan.listImages(directory);
+            GalleryScan scan = new GalleryScan(wrap(classifier), new GalleryScan.Decoder() {
+                @Override
+                public boolean decode(String id, int[] pixels, int width, int height) throws IOException {
+                    return decodeInto(id, pixels, width, height);
+                }
+            }, mIndex, DECODER_THREADS, TOP_K);
+            mScan = scan;
+            long start = System.nanoTime();
+            scan.run(ids);
+            Log.i(TAG, String.format(Locale.US, "Tagged %d of %d photos in %d s, %d already done, %d unreadable",
+                    scan.getClassified(), ids.size(), (System.nanoTime() - start) / 1_000_000_000L,
+                    scan.getSkipped(), scan.getFailed()));
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Log.i(TAG, "Tagging interrupted, it resumes from the index");
+        } finally {
+            mScan = null;
+            if (classifier != null) {
+                classifier.close();
+            }
+        }
+    }
+
+    // Reads the size first, so that the decoder subsamples to the smallest power of two above the model input.
+    private boolean decodeInto(String id, int[] pixels, int width, int height) throws IOException {
+        ContentResolver resolver = mContext.getContentResolver();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decode(resolver, id, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return false;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = GalleryScan.sampleSize(options.outWidth, options.outHeight, width, height);
+        Bitmap bitmap = decode(resolver, id, options);
+        if (bitmap == null) {
+            return false;
+        }
+        int[] source = new int[bitmap.getWidth() * bitmap.getHeight()];
+        bitmap.getPixels(source, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
+        GalleryScan.cropAndScale(source, bitmap.getWidth(), bitmap.getHeight(), pixels, width, height);
+        bitmap.recycle();
+        return true;
+    }
+
+    // Tags the photos of the directory, or of the device if null, with a classifier of its own off the
+    // inference thread. Does nothing while a scan runs.
+    synchronized void start(final ModelDescriptor model, final File directory) {
+        if (model == null || isRunning()) {
+            return;
+        }
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                GalleryTagger.this.run(model, directory);
+            }
+        }, "Gallery thread");
+        mThread.setPriority(Thread.MIN_PRIORITY);
+        mThread.start();
+    }
+
+    private static GalleryScan.Model wrap(final Classifier classifier) {
+        return new GalleryScan.Model() {
+            @Override
+            public int getBatchSize() {
+                return Classifier.MAX_BATCH_SIZE;
+            }
+
+            @Override
+            public int getImageSizeX() {
+                return classifier.getImageSizeX();
+            }
+
+            @Override
+            public int getImageSizeY() {
+                return classifier.getImageSizeY();
+            }
+
+            @Override
+            public String getLabel(int index) {
+                return classifier.getLabel(index);
+            }
+
+            @Override
+            public float getMinConfidence() {
+                return classifier.getMinConfidence();
+            }
+
+            @Override
+            public void classify(int[][] images, int count, int k, int[] labels, float[] scores) {
+                classifier.classifyBatch(images, count, k, labels, scores);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.example.aicamera;
+
+import android.content.Context;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+class InferenceEngine {
+
+    // VARIABLES
+    private volatile Classifier mClassifier;
+    private volatile Detector mDetector;
+    private volatile ModelDescriptor mDetectorModel;
+    private volatile ModelDescriptor mModel;
+    private final ModelLoader mModelLoader;
+    private final AtomicReference<Future<Classifier>> mPendingClassifier = new AtomicReference<>();
+    private final AtomicReference<Future<Detector>> mPendingDetector = new AtomicReference<>();
+    private final AtomicReference<Future<Classifier>> mPendingSecondary = new AtomicReference<>();
+    private volatile Classifier mSecondaryClassifier;
+    private volatile ModelDescriptor mSecondaryModel;
+
+    // CONSTRUCTOR
+    InferenceEngine(Context context, int warmUpRuns, StartupTrace trace) {
+        this(new ModelLoader(context, warmUpRuns, trace));
+    }
+
+    InferenceEngine(ModelLoader modelLoader) {
+        mModelLoader = modelLoader;
+    }
+
+    // METHODS
+    // Only once nothing classifies anymore, the interpreter native memory is freed here.
+    void close() {
+        Future<Classifier> pending = mPendingClassifier.getAndSet(null);
+        if (pending != null) {
+            mModelLoader.discard(pending);
+        }
+        Future<Detector> pendingDetector = mPendingDetector.getAndSet(null);
+        if (pendingDetector != null) {
+            mModelLoader.discard(pendingDetector);
+        }
+        Future<Classifier> pendingSecondary = mPendingSecondary.getAndSet(null);
+        if (pendingSecondary != null) {
+            mModelLoader.discard(pendingSecondary);
+        }
+        mModelLoader.shutdown();
+        if (mClassifier != null) {
+            mClassifier.close();
+            mClassifier = null;
+        }
+        if (mDetector != null) {
+            mDetector.close();
+            mDetector = null;
+        }
+        if (mSecondaryClassifier != null) {
+            mSecondaryClassifier.close();
+            mSecondaryClassifier = null;
+        }
+    }
+
+    // Loads the detection model unless one was asked for already, see ensureLoaded.
+    boolean ensureDetectorLoaded(ModelDescriptor model) {
+        if (mDetectorModel != null) {
+            return false;
+        }
+        loadDetector(model);
+        return true;
+    }
+
+    // Loads the model unless one was asked for already, by an earlier activity the engine outlived or a model
+    // change. Returns whether it started a load.
+    boolean ensureLoaded(ModelDescriptor model, MultiCrop multiCrop) {
+        if (mModel != null) {
+            return false;
+        }
+        load(model, multiCrop);
+        return true;
+    }
+
+    // Loads the secondary model unless one was asked for already, see ensureLoaded.
+    boolean ensureSecondaryLoaded(ModelDescriptor model, MultiCrop multiCrop) {
+        if (mSecondaryModel != null) {
+            return false;
+        }
+        loadSecondary(model, multiCrop);
+        return true;
+    }
+
+    // Called on the inference thread for every frame, it switches to a classifier the loader has finished,
+    // so frames keep flowing while a model loads. Null until the first model is ready.
+    Classifier getClassifier() {
+        Future<Classifier> pending = mPendingClassifier.get();
+        if (pending == null || !pending.isDone() || !mPendingClassifier.compareAndSet(pending, null)) {
+            return mClassifier;
+        }
+        Classifier replacement = ModelLoader.getLoaded(pending);
+        Classifier classifier = mClassifier;
+        if (replacement == null) {
+            // Keep classifying with the current model.
+            if (classifier != null) {
+                mModel = classifier.getModel();
+            }
+            return classifier;
+        }
+        mClassifier = replacement;
+        if (classifier != null) {
+            classifier.close();
+        }
+        return replacement;
+    }
+
+    // Same as getClassifier for the detector, which runs on the same inference thread.
+    Detector getDetector() {
+        Future<Detector> pending = mPendingDetector.get();
+        if (pending == null || !pending.isDone() || !mPendingDetector.compareAndSet(pending, null)) {
+            return mDetector;
+        }
+        Detector replacement = ModelLoader.getLoaded(pending);
+        Detector detector = mDetector;
+        if (replacement == null) {
+            return detector;
+        }
+        mDetector = replacement;
+        if (detector != null) {
+            detector.close();
+        }
+        return replacement;
+    }
+
+    // The detection model last asked for, even if it is still loading.
+    ModelDescriptor getDetectorModel() {
+        return mDetectorModel;
+    }
+
+    // The model last asked for, even if it is still loading.
+    ModelDescriptor getModel() {
+        return mModel;
+    }
+
+    // Same as getClassifier for the classifier that runs next to it on the same frames.
+    Classifier getSecondaryClassifier() {
+        Future<Classifier> pending = mPendingSecondary.get();
+        if (pending == null || !pending.isDone() || !mPendingSecondary.compareAndSet(pending, null)) {
+            return mSecondaryClassifier;
+        }
+        Classifier replacement = ModelLoader.getLoaded(pending);
+        Classifier classifier = mSecondaryClassifier;
+        if (replacement == null) {
+            return classifier;
+        }
+        mSecondaryClassifier = replacement;
+        if (classifier != null) {
+            classifier.close();
+        }
+        return replacement;
+    }
+
+    // The secondary model last asked for, even if it is still loading.
+    ModelDescriptor getSecondaryModel() {
+        return mSecondaryModel;
+    }
+
+    // Loads the model on the loader thread, the inference thread switches to it once it is warmed up.
+    void load(ModelDescriptor model, MultiCrop multiCrop) {
+        if (model == null) {
+            return;
+        }
+        mModel = model;
+        Future<Classifier> previous = mPendingClassifier.getAndSet(mModelLoader.load(model, multiCrop));
+        if (previous != null) {
+            mModelLoader.discard(previous);
+        }
+    }
+
+    // Loads a detection model next to the classifier.
+    void loadDetector(ModelDescriptor model) {
+        if (model == null) {
+            return;
+        }
+        mDetectorModel = model;
+        Future<Detector> previous = mPendingDetector.getAndSet(mModelLoader.loadDetector(model));
+        if (previous != null) {
+            mModelLoader.discard(previous);
+        }
+    }
+
+    // Loads a second classifier that scores the same frames as the first one.
+    void loadSecondary(ModelDescriptor model, MultiCrop multiCrop) {
+        if (model == null) {
+            return;
+        }
+        mSecondaryModel = model;
+        Future<Classifier> previous = mPendingSecondary.getAndSet(mModelLoader.load(model, multiCrop));
+        if (previous != null) {
+            mModelLoader.discard(previous);
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.example.aicamera;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class InferencePipeline<T> {
+
+    interface FrameProcessor<T> {
+        void onFrame(T frame);
+
+        void onFrameDropped(T frame);
+    }
+
+    // CONSTANTS
+    static final int UNLIMITED = 0;
+    private static final long FPS_WINDOW_NS = TimeUnit.SECONDS.toNanos(1);
+
+    // VARIABLES
+    private volatile float mAchievedFps;
+    private final AtomicLong mDroppedFrames = new AtomicLong();
+    private T mFrame;
+    private final Object mLock = new Object();
+    private volatile long mMinFrameIntervalNs;
+    private final String mName;
+    private final AtomicLong mProcessedFrames = new AtomicLong();
+    private final FrameProcessor<T> mProcessor;
+    private boolean mRunning;
+    private Thread mThread;
+
+    // CONSTRUCTOR
+    InferencePipeline(String name, FrameProcessor<T> processor) {
+        mName = name;
+        mProcessor = processor;
+    }
+
+    // METHODS
+    float getAchievedFps() {
+        return mAchievedFps;
+    }
+
+    long getDroppedFrames() {
+        return mDroppedFrames.get();
+    }
+
+    long getProcessedFrames() {
+        return mProcessedFrames.get();
+    }
+
+    // Only the latest frame is kept, an older frame still waiting in the slot is dropped.
+    void offer(T frame) {
+        T dropped;
+        synchronized (mLock) {
+            if (!mRunning) {
+                dropped = frame;
+            } else {
+                dropped = mFrame;
+                mFrame = frame;
+                mLock.notifyAll();
+            }
+        }
+        if (dropped != null) {
+            mDroppedFrames.incrementAndGet();
+            mProcessor.onFrameDropped(dropped);
+        }
+    }
+
+    private void run() {
+        long lastFrameStart = 0;
+        long windowStart = System.nanoTime();
+        int windowFrames = 0;
+        try {
+            while (true) {
+                T frame;
+                synchronized (mLock) {
+                    while (mRunning && mFrame == null) {
+                        mLock.wait();
+                    }
+                    // Hold the rate down without taking the frame, newer frames keep replacing it meanwhile.
+                    long waitNs;
+                    while (mRunning && (waitNs = lastFrameStart + mMinFrameIntervalNs - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(mLock, waitNs);
+                    }
+                    if (!mRunning) {
+                        break;
+                    }
+                    frame = mFrame;
+                    mFrame = null;
+                }
+                lastFrameStart = System.nanoTime();
+                try {
+                    mProcessor.onFrame(frame);
+                } catch (RuntimeException e) {
+                    // a frame that fails, say of a camera being closed, must not take the thread down with it
+                    e.printStackTrace();
+                    continue;
+                }
+                mProcessedFrames.incrementAndGet();
+
+                windowFrames++;
+                long now = System.nanoTime();
+                if (now - windowStart >= FPS_WINDOW_NS) {
+                    mAchievedFps = windowFrames * (float) FPS_WINDOW_NS / (now - windowStart);
+                    windowStart = now;
+                    windowFrames = 0;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void setMaxFps(int maxFps) {
+        mMinFrameIntervalNs = (maxFps == UNLIMITED) ? 0 : FPS_WINDOW_NS / maxFps;
+    }
+
+    void start() {
+        synchronized (mLock) {
+            if (mRunning) {
+                return;
+            }
+            mRunning = true;
+        }
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                InferencePipeline.this.run();
+            }
+        }, mName);
+        mThread.start();
+    }
+
+    // Drops the frame still waiting and returns once the frame being processed is done.
+    void stop() throws InterruptedException {
+        T dropped;
+        synchronized (mLock) {
+            mRunning = false;
+            dropped = mFrame;
+            mFrame = null;
+            mLock.notifyAll();
+        }
+        if (dropped != null) {
+            mDroppedFrames.incrementAndGet();
+            mProcessor.onFrameDropped(dropped);
+        }
+        if (mThread != null) {
+            mThread.join();
+            mThread = null;
+        }
+        mAchievedFps = 0;
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.example.aicamera;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.lifecycle.ViewModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+public class InferenceViewModel extends ViewModel {
+
+    // CONSTANTS
+    private static final String TAG = "InferenceViewModel";
+    private static final String PHOTO_INDEX_FILE = "photos.idx";
+
+    // VARIABLES
+    private final InferenceEngine mEngine;
+    private final RefCounted<InferenceEngine> mEngineRef;
+    private final GalleryTagger mGalleryTagger;
+    private final ModelRegistry mModelRegistry;
+    private final PhotoIndex mPhotoIndex;
+    private final ExecutorService mPhotoIndexCompactor;
+    private final StartupTrace mStartupTrace;
+
+    // CONSTRUCTOR
+    // Outlives configuration changes, so the model is loaded once for as long as the activity is in use.
+    InferenceViewModel(Context context, final int warmUpRuns) {
+        final Context appContext = context.getApplicationContext();
+        mStartupTrace = new StartupTrace(System.nanoTime(), new StartupTrace.Listener() {
+            @Override
+            public void onMilestone(String milestone, long elapsedMs) {
+                Log.i(TAG, "Cold start: " + milestone + " after " + elapsedMs + " ms");
+            }
+        });
+
+        ModelRegistry modelRegistry;
+        try {
+            modelRegistry = ModelRegistry.fromAssets(appContext.getAssets());
+        } catch (IOException e) {
+            e.printStackTrace();
+            modelRegistry = new ModelRegistry(Collections.<ModelDescriptor>emptyList());
+        }
+        mModelRegistry = modelRegistry;
+
+        mEngineRef = new RefCounted<>(new RefCounted.Factory<InferenceEngine>() {
+            @Override
+            public InferenceEngine create() {
+                return new InferenceEngine(appContext, warmUpRuns, mStartupTrace);
+            }
+
+            @Override
+            public void destroy(InferenceEngine engine) {
+                engine.close();
+            }
+        });
+        // held until onCleared, resumed screens add their own reference on top
+        mEngine = mEngineRef.acquire();
+        // the index is only read once a photo is added or looked up
+        mPhotoIndexCompactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "Photo index compaction thread");
+            }
+        });
+        mPhotoIndex = new PhotoIndex(new File(appContext.getFilesDir(), PHOTO_INDEX_FILE), mPhotoIndexCompactor);
+        mGalleryTagger = new GalleryTagger(appContext, mPhotoIndex);
+    }
+
+    // METHODS
+    InferenceEngine acquireEngine() {
+        return mEngineRef.acquire();
+    }
+
+    InferenceEngine getEngine() {
+        return mEngine;
+    }
+
+    // Tags the photo library in the background, surviving configuration changes like the engine.
+    GalleryTagger getGalleryTagger() {
+        return mGalleryTagger;
+    }
+
+    ModelRegistry getModelRegistry() {
+        return mModelRegistry;
+    }
+
+    // The labels of the photos taken, to find them by what they show.
+    PhotoIndex getPhotoIndex() {
+        return mPhotoIndex;
+    }
+
+    StartupTrace getStartupTrace() {
+        return mStartupTrace;
+    }
+
+    @Override
+    protected void onCleared() {
+        mGalleryTagger.cancel();
+        // closed first, so that no photo added meanwhile can queue a compaction on the stopped compactor
+        try {
+            mPhotoIndex.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        mPhotoIndexCompactor.shutdown();
+        mEngineRef.release();
+        super.onCleared();
+    }
+
+    void releaseEngine() {
+        mEngineRef.release();
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.example.aicamera;
+
+class InputSpec {
+
+    // VARIABLES
+    private final float mImageMean;
+    private final int mImageSizeX;
+    private final int mImageSizeY;
+    private final float mImageStd;
+    private final float mInputScale;
+    private final int mInputZeroPoint;
+    private final boolean mIsQuantized;
+    private final boolean mIsSigned;
+    private final MultiCrop mMultiCrop;
+
+    // CONSTRUCTOR
+    // Everything that decides the bytes of a model input, so that models with equal specs can share one
+    // preprocessed frame. The quantization parameters only matter for quantized inputs, the normalization
+    // only for float ones, and a null multi-crop is the single center crop.
+    InputSpec(int imageSizeX, int imageSizeY, float imageMean, float imageStd, boolean isQuantized,
+              float inputScale, int inputZeroPoint, boolean isSigned, MultiCrop multiCrop) {
+        mImageSizeX = imageSizeX;
+        mImageSizeY = imageSizeY;
+        mImageMean = imageMean;
+        mImageStd = imageStd;
+        mIsQuantized = isQuantized;
+        mInputScale = inputScale;
+        mInputZeroPoint = inputZeroPoint;
+        mIsSigned = isSigned;
+        mMultiCrop = multiCrop;
+    }
+
+    // METHODS
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof InputSpec)) {
+            return false;
+        }
+        InputSpec other = (InputSpec) o;
+        return mImageSizeX == other.mImageSizeX && mImageSizeY == other.mImageSizeY
+                && mImageMean == other.mImageMean && mImageStd == other.mImageStd
+                && mIsQuantized == other.mIsQuantized && mInputScale == other.mInputScale
+                && mInputZeroPoint == other.mInputZeroPoint && mIsSigned == other.mIsSigned
+                && (mMultiCrop == null ? other.mMultiCrop == null : mMultiCrop.equals(other.mMultiCrop));
+    }
+
+    MultiCrop getMultiCrop() {
+        return mMultiCrop;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 31 * mImageSizeX + mImageSizeY;
+        hash = 31 * hash + Float.floatToIntBits(mImageMean);
+        hash = 31 * hash + Float.floatToIntBits(mImageStd);
+        hash = 31 * hash + (mIsQuantized ? 1 : 0);
+        hash = 31 * hash + Float.floatToIntBits(mInputScale);
+        hash = 31 * hash + mInputZeroPoint;
+        hash = 31 * hash + (mIsSigned ? 1 : 0);
+        return 31 * hash + (mMultiCrop == null ? 0 : mMultiCrop.hashCode());
+    }
+
+    // A spec like this one for other crops.
+    InputSpec withMultiCrop(MultiCrop multiCrop) {
+        return new InputSpec(mImageSizeX, mImageSizeY, mImageMean, mImageStd, mIsQuantized, mInputScale,
+                mInputZeroPoint, mIsSigned, multiCrop);
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.example.aicamera;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+class JpegMetadata {
+
+    // CONSTANTS
+    private static final int APP0 = 0xE0;
+    private static final int APP1 = 0xE1;
+    private static final int MAX_SEGMENT_LENGTH = 0xFFFF;
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final int TYPE_SHORT = 3;
+    private static final String XMP_NAMESPACE = "http://ns.adobe.com/xap/1.0/\u0000";
+
+    // CONSTRUCTOR
+    private JpegMetadata() {
+    }
+
+    // METHODS
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    // The EXIF orientation of an image to rotate clockwise by degrees for display.
+    static int exifOrientation(int degrees) {
+        switch (((degrees % 360) + 360) % 360) {
+            case 90:
+                return 6;
+            case 180:
+                return 3;
+            case 270:
+                return 8;
+            default:
+                return 1;
+        }
+    }
+
+    // Where metadata can be added to the JPEG from its position: after the start of image marker and the JFIF
+    // and EXIF segments that must come first. -1 if it does not start like a JPEG.
+    static int insertPosition(ByteBuffer jpeg) {
+        int start = jpeg.position();
+        int end = jpeg.limit();
+        if (end - start < 2 || (jpeg.get(start) & 0xFF) != 0xFF || (jpeg.get(start + 1) & 0xFF) != 0xD8) {
+            return -1;
+        }
+        int position = start + 2;
+        while (position + 4 <= end && (jpeg.get(position) & 0xFF) == 0xFF) {
+            int marker = jpeg.get(position + 1) & 0xFF;
+            if (marker != APP0 && marker != APP1) {
+                break;
+            }
+            int length = ((jpeg.get(position + 2) & 0xFF) << 8) | (jpeg.get(position + 3) & 0xFF);
+            if (position + 2 + length > end) {
+                break;
+            }
+            position += 2 + length;
+        }
+        return position;
+    }
+
+    // The first length bytes of the JPEG with an EXIF segment holding its orientation right after the start
+    // of image marker, for encoders that do not rotate or tag what they encode.
+    static byte[] withOrientation(byte[] jpeg, int length, int degrees) {
+        if (length < 2 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) {
+            throw new IllegalArgumentException("Not a JPEG");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length + 64);
+        out.write(jpeg, 0, 2);
+        // APP1 "Exif", a big-endian TIFF header and one IFD with the orientation alone
+        ByteArrayOutputStream tiff = new ByteArrayOutputStream();
+        tiff.write('M');
+        tiff.write('M');
+        writeShort(tiff, 42);
+        writeInt(tiff, 8);
+        writeShort(tiff, 1);
+        writeShort(tiff, TAG_ORIENTATION);
+        writeShort(tiff, TYPE_SHORT);
+        writeInt(tiff, 1);
+        writeShort(tiff, exifOrientation(degrees));
+        writeShort(tiff, 0);
+        writeInt(tiff, 0);
+        out.write(0xFF);
+        out.write(APP1);
+        writeShort(out, 2 + 6 + tiff.size());
+        out.write('E');
+        out.write('x');
+        out.write('i');
+        out.write('f');
+        out.write(0);
+        out.write(0);
+        byte[] segment = tiff.toByteArray();
+        out.write(segment, 0, segment.length);
+        out.write(jpeg, 2, length - 2);
+        return out.toByteArray();
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        writeShort(out, value >>> 16);
+        writeShort(out, value);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write((value >> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    // An XMP segment with the labels as the subject of the photo, the keywords galleries search, and their
+    // confidences in the same order.
+    static byte[] xmpSegment(String[] labels, float[] scores, int count) {
+        StringBuilder xmp = new StringBuilder("<?xpacket begin=\"\uFEFF\" id=\"W5M0MpCehiHzreSzNTczkc9d\"?>")
+                .append("<x:xmpmeta xmlns:x=\"adobe:ns:meta/\">")
+                .append("<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\">")
+                .append("<rdf:Description rdf:about=\"\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\"")
+                .append(" xmlns:aicamera=\"http://ns.example.com/aicamera/1.0/\">")
+                .append("<dc:subject><rdf:Bag>");
+        for (int i = 0; i < count; i++) {
+            xmp.append("<rdf:li>").append(escapeXml(labels[i])).append("</rdf:li>");
+        }
+        xmp.append("</rdf:Bag></dc:subject><aicamera:confidence><rdf:Seq>");
+        for (int i = 0; i < count; i++) {
+            xmp.append(String.format(Locale.US, "<rdf:li>%.4f</rdf:li>", scores[i]));
+        }
+        xmp.append("</rdf:Seq></aicamera:confidence></rdf:Description></rdf:RDF></x:xmpmeta>")
+                .append("<?xpacket end=\"w\"?>");
+        byte[] namespace = XMP_NAMESPACE.getBytes(StandardCharsets.US_ASCII);
+        byte[] packet = xmp.toString().getBytes(StandardCharsets.UTF_8);
+        int length = 2 + namespace.length + packet.length;
+        if (length > MAX_SEGMENT_LENGTH) {
+            throw new IllegalArgumentException("Too many labels for one segment");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + length);
+        out.write(0xFF);
+        out.write(APP1);
+        writeShort(out, length);
+        out.write(namespace, 0, namespace.length);
+        out.write(packet, 0, packet.length);
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.example.aicamera;
+
+class LabelSmoother {
+
+    // CONSTANTS
+    static final int NONE = -1;
+
+    // VARIABLES
+    private final float mAlpha;
+    private int mCandidate = NONE;
+    private int mCandidateFrames;
+    private int mCurrent = NONE;
+    private boolean mEmpty = true;
+    // the scores of the last frame, the classifier reuses the array it returns them in
+    private final float[] mLast;
+    private final float mMargin;
+    private final float mMinConfidence;
+    private final float[] mSmoothed;
+    private final int mStableFrames;
+
+    // CONSTRUCTOR
+    // alpha weighs the newest frame in the moving average. Another label takes over once its smoothed score
+    // beats the current one by margin for stableFrames frames in a row.
+    LabelSmoother(int numLabels, float alpha, float margin, int stableFrames, float minConfidence) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]");
+        }
+        mSmoothed = new float[numLabels];
+        mLast = new float[numLabels];
+        mAlpha = alpha;
+        mMargin = margin;
+        mStableFrames = Math.max(stableFrames, 1);
+        mMinConfidence = minConfidence;
+    }
+
+    // METHODS
+    // Smoothed score of the label, 0 before the first frame.
+    float getScore(int index) {
+        return mSmoothed[index];
+    }
+
+    // Folds the scores of the last frame in again, for a frame of the same scene that was not classified,
+    // so that it counts toward the stable frames too. NONE before the first frame.
+    int repeat() {
+        return mEmpty ? NONE : update(mLast);
+    }
+
+    void reset() {
+        mEmpty = true;
+        mCurrent = NONE;
+        mCandidate = NONE;
+        mCandidateFrames = 0;
+    }
+
+    // Selects the k labels with the highest smoothed scores into topK, returns how many.
+    int select(TopK topK, int k) {
+        return topK.select(mSmoothed, k);
+    }
+
+    // Folds the scores of one frame into the average and returns the stable label,
+    // or NONE while its smoothed score is at or under the minimum confidence.
+    int update(float[] scores) {
+        final float[] smoothed = mSmoothed;
+        int best = 0;
+        if (scores != mLast) {
+            System.arraycopy(scores, 0, mLast, 0, mLast.length);
+        }
+        if (mEmpty) {
+            System.arraycopy(scores, 0, smoothed, 0, smoothed.length);
+            mEmpty = false;
+        } else {
+            final float alpha = mAlpha;
+            for (int i = 0; i < smoothed.length; i++) {
+                smoothed[i] += alpha * (scores[i] - smoothed[i]);
+            }
+        }
+        for (int i = 1; i < smoothed.length; i++) {
+            if (smoothed[i] > smoothed[best]) {
+                best = i;
+            }
+        }
+
+        if (mCurrent == NONE) {
+            mCurrent = best;
+        } else if (best != mCurrent && smoothed[best] > smoothed[mCurrent] + mMargin) {
+            if (best == mCandidate) {
+                mCandidateFrames++;
+            } else {
+                mCandidate = best;
+                mCandidateFrames = 1;
+            }
+            if (mCandidateFrames >= mStableFrames) {
+                mCurrent = best;
+                mCandidate = NONE;
+                mCandidateFrames = 0;
+            }
+        } else {
+            mCandidate = NONE;
+            mCandidateFrames = 0;
+        }
+        return (smoothed[mCurrent] > mMinConfidence) ? mCurrent : NONE;
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.example.aicamera;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class LabelTable {
+
+    // CONSTANTS
+    static final String EXTENSION = ".lbl";
+    // "LBL1"
+    private static final int MAGIC = 0x4C424C31;
+    private static final int HEADER_BYTES = 8;
+
+    // VARIABLES
+    private final int mBlob;
+    private final ByteBuffer mBuffer;
+    private final int mSize;
+
+    // CONSTRUCTOR
+    private LabelTable(ByteBuffer buffer, int size) {
+        mBuffer = buffer;
+        mSize = size;
+        mBlob = HEADER_BYTES + 4 * (size + 1);
+    }
+
+    // METHODS
+    // The table of the labels: the magic number and the count, the offsets of the labels in the blob and
+    // the offset of its end, then the blob of the UTF-8 labels one after the other, all big-endian.
+    static byte[] encode(List<String> labels) {
+        byte[][] encoded = new byte[labels.size()][];
+        int blobBytes = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = labels.get(i).getBytes(StandardCharsets.UTF_8);
+            blobBytes += encoded[i].length;
+        }
+        ByteBuffer table = ByteBuffer.allocate(HEADER_BYTES + 4 * (encoded.length + 1) + blobBytes);
+        table.putInt(MAGIC).putInt(encoded.length);
+        int offset = 0;
+        for (byte[] label : encoded) {
+            table.putInt(offset);
+            offset += label.length;
+        }
+        table.putInt(offset);
+        for (byte[] label : encoded) {
+            table.put(label);
+        }
+        return table.array();
+    }
+
+    // Decodes the label, which is not kept: labels are only looked up for the few results shown.
+    String get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Label " + index + " of " + mSize);
+        }
+        int start = mBuffer.getInt(HEADER_BYTES + 4 * index);
+        int end = mBuffer.getInt(HEADER_BYTES + 4 * (index + 1));
+        if (start < 0 || end < start || mBlob + end > mBuffer.limit()) {
+            throw new IllegalStateException("Corrupt label table at label " + index);
+        }
+        if (mBuffer.hasArray()) {
+            return new String(mBuffer.array(), mBuffer.arrayOffset() + mBlob + start, end - start,
+                    StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[end - start];
+        ByteBuffer label = mBuffer.duplicate();
+        label.position(mBlob + start);
+        label.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    // The name of the table converted from the label list of that name.
+    static String tableName(String labelPath) {
+        String base = labelPath.endsWith(".txt") ? labelPath.substring(0, labelPath.length() - 4) : labelPath;
+        return base + EXTENSION;
+    }
+
+    // Reads the labels straight from the buffer from its position, typically a memory-mapped table, which
+    // it keeps. Only the header is checked here.
+    static LabelTable wrap(ByteBuffer buffer) throws IOException {
+        ByteBuffer table = buffer.slice();
+        if (table.remaining() < HEADER_BYTES || table.getInt(0) != MAGIC) {
+            throw new IOException("Not a label table");
+        }
+        int size = table.getInt(4);
+        long blob = HEADER_BYTES + 4L * (size + 1L);
+        if (size < 0 || blob > table.limit() || blob + table.getInt((int) blob - 4) > table.limit()) {
+            throw new IOException("Truncated label table of " + size + " labels");
+        }
+        return new LabelTable(table, size);
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.example.aicamera;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class Labels {
+
+    // CONSTRUCTOR
+    private Labels() {
+    }
+
+    // METHODS
+    // One label per line, the stream is left open.
+    static List<String> read(InputStream in) throws IOException {
+        List<String> labelList = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            labelList.add(line);
+        }
+        return labelList;
+    }
+
+}
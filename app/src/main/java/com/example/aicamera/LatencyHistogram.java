@@ -0,0 +1,108 @@
+package com.example.aicamera;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+class LatencyHistogram {
+
+    // VARIABLES
+    private final AtomicLongArray mCounts;
+    private final AtomicLong mMax = new AtomicLong();
+    private final long mMaxValue;
+    private final int mSubBucketBits;
+    private final int mSubBuckets;
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mTotal = new AtomicLong();
+
+    // CONSTRUCTOR
+    // Counts values from 0 to maxValue in buckets whose width is at most 1 / 2^subBucketBits of their
+    // value, like an HDR histogram: every power of two is split into 2^subBucketBits linear buckets.
+    // Larger values count in the last bucket. Recording never locks or allocates.
+    LatencyHistogram(long maxValue, int subBucketBits) {
+        if (maxValue < 1 || subBucketBits < 1 || subBucketBits > 16) {
+            throw new IllegalArgumentException("Bad range " + maxValue + " or precision " + subBucketBits);
+        }
+        mMaxValue = maxValue;
+        mSubBucketBits = subBucketBits;
+        mSubBuckets = 1 << subBucketBits;
+        mCounts = new AtomicLongArray(indexOf(maxValue) + 1);
+    }
+
+    // METHODS
+    long getCount() {
+        return mTotal.get();
+    }
+
+    long getMax() {
+        return mMax.get();
+    }
+
+    double getMean() {
+        long total = mTotal.get();
+        return (total == 0) ? 0 : (double) mSum.get() / total;
+    }
+
+    // The smallest value that percentile percent of the recorded values are at or below, up to the bucket
+    // width, 0 if nothing was recorded. Values recorded meanwhile may or may not be taken into account.
+    long getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < mCounts.length(); i++) {
+            total += mCounts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < mCounts.length(); i++) {
+            seen += mCounts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueIn(i), mMax.get());
+            }
+        }
+        return mMax.get();
+    }
+
+    // The largest value that counts in the bucket.
+    private long highestValueIn(int index) {
+        if (index < mSubBuckets) {
+            return index;
+        }
+        int shift = index / mSubBuckets - 1;
+        long subBucket = index % mSubBuckets + mSubBuckets;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    // Values below 2^subBucketBits have a bucket each, above that the top subBucketBits + 1 bits pick it.
+    private int indexOf(long value) {
+        if (value < mSubBuckets) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - mSubBucketBits;
+        return (shift + 1) * mSubBuckets + (int) (value >>> shift) - mSubBuckets;
+    }
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mCounts.incrementAndGet(indexOf(Math.min(value, mMaxValue)));
+        mTotal.incrementAndGet();
+        mSum.addAndGet(value);
+        long max;
+        while (value > (max = mMax.get()) && !mMax.compareAndSet(max, value)) {
+            // another thread raised the maximum, compare again
+        }
+    }
+
+    // Not atomic with concurrent recording, a value recorded meanwhile may be half forgotten.
+    void reset() {
+        for (int i = 0; i < mCounts.length(); i++) {
+            mCounts.set(i, 0);
+        }
+        mTotal.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+}
@@ -15,9 +15,11 @@ import android.util.Size;
 import androidx.lifecycle.ViewModel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 public class MDSpecs extends ViewModel {
 
@@ -48,18 +50,8 @@ public class MDSpecs extends ViewModel {
 
     // METHODS
     private Rational calculateRatio(double ratio) {
-        int den = 1;
-        int num;
-        double temp;
-        while (true) {
-            temp = den * ratio;
-            if (((int) temp) == temp) {
-                num = (int) temp;
-                break;
-            }
-            den++;
-        }
-        return new Rational(num, den);
+        int[] fraction = CameraSizes.calculateRatio(ratio);
+        return new Rational(fraction[0], fraction[1]);
     }
 
     Integer changeFlashMode() {
@@ -109,39 +101,17 @@ public class MDSpecs extends ViewModel {
     }
 
     Size chooseOptimalSize(Size[] choices, int maxWidth, int maxHeight, Size aspectRatio) {
-
-        int w = aspectRatio.getWidth();
-        int h = aspectRatio.getHeight();
-
-        List<Size> matching = new ArrayList<>();
-        for (Size option : choices) {
-            int exp = option.getHeight() - option.getWidth() * h / w;
-            if (Math.abs(exp) <= 5) {
-                matching.add(option);
-            }
+        int[] sizes = new int[2 * choices.length];
+        for (int i = 0; i < choices.length; i++) {
+            sizes[2 * i] = choices[i].getWidth();
+            sizes[2 * i + 1] = choices[i].getHeight();
         }
-        List<Size> finalMatching = new ArrayList<>();
-        for (Size option : matching) {
-            if (option.getHeight() <= maxWidth && option.getWidth() <= maxHeight) {
-                finalMatching.add(option);
-            }
-        }
-
-        if (finalMatching.isEmpty()) {
-            return Collections.min(matching, new Comparator<Size>() {
-                @Override
-                public int compare(Size lhs, Size rhs) {
-                    return Long.signum(lhs.getWidth() * lhs.getHeight() - rhs.getWidth() * rhs.getHeight());
-                }
-            });
-        } else {
-            return Collections.max(finalMatching, new Comparator<Size>() {
-                @Override
-                public int compare(Size lhs, Size rhs) {
-                    return Long.signum(lhs.getWidth() * lhs.getHeight() - rhs.getWidth() * rhs.getHeight());
-                }
-            });
+        int index = CameraSizes.chooseOptimalSize(sizes, maxWidth, maxHeight,
+                aspectRatio.getWidth(), aspectRatio.getHeight());
+        if (index < 0) {
+            throw new NoSuchElementException("No size with the aspect ratio " + aspectRatio);
         }
+        return choices[index];
     }
 
     private static boolean contains(int[] modes, int mode) {
@@ -156,6 +126,39 @@ public class MDSpecs extends ViewModel {
         return false;
     }
 
+    // Smallest YUV size of the preferred ratio that still covers minSize in both dimensions.
+    Size getAnalysisSize(int minSize) {
+        List<Size> covering = new ArrayList<>();
+        List<Size> matching = new ArrayList<>();
+        StreamConfigurationMap map = mCameraCharacteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        assert map != null;
+        Size[] options = map.getOutputSizes(ImageFormat.YUV_420_888);
+        Rational preferredRatio = mRatios[mRatio];
+        int width = preferredRatio.getNumerator();
+        int height = preferredRatio.getDenominator();
+        for (Size option : options) {
+            if (option.getWidth() >= minSize && option.getHeight() >= minSize) {
+                covering.add(option);
+                if (CameraSizes.hasRatio(option.getWidth(), option.getHeight(), width, height)) {
+                    matching.add(option);
+                }
+            }
+        }
+        Comparator<Size> byArea = new Comparator<Size>() {
+            @Override
+            public int compare(Size o1, Size o2) {
+                return Long.signum((long) o1.getHeight() * o1.getWidth() - (long) o2.getHeight() * o2.getWidth());
+            }
+        };
+        if (!matching.isEmpty()) {
+            return Collections.min(matching, byArea);
+        } else if (!covering.isEmpty()) {
+            return Collections.min(covering, byArea);
+        } else {
+            return Collections.max(Arrays.asList(options), byArea);
+        }
+    }
+
     CameraCharacteristics getCameraCharacteristics() {
         return mCameraCharacteristics;
     }
@@ -196,10 +199,15 @@ public class MDSpecs extends ViewModel {
     }
 
     Size getLargestSize() {
+        return getLargestSize(ImageFormat.JPEG);
+    }
+
+    // Largest size of the preferred ratio in the format.
+    Size getLargestSize(int format) {
         List<Size> matching = new ArrayList<>();
         StreamConfigurationMap map = mCameraCharacteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
         assert map != null;
-        Size[] options = map.getOutputSizes(ImageFormat.JPEG);
+        Size[] options = map.getOutputSizes(format);
         Rational preferredRatio = mRatios[mRatio];
         int width = preferredRatio.getNumerator();
         int height = preferredRatio.getDenominator();
@@ -0,0 +1,98 @@
+package com.example.aicamera;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+class Metrics {
+
+    // CONSTANTS
+    // the acquireLatestImage call only, not the time the frame waited in the reader before it
+    static final int ACQUIRE_CALL = 0;
+    static final int PREPROCESS = 1;
+    static final int INTERPRETER = 2;
+    static final int POSTPROCESS = 3;
+    static final int PUBLISH = 4;
+    private static final String[] STAGE_NAMES = {"acquire call", "preprocess", "interpreter", "postprocess", "publish"};
+    static final int DROPPED = 0;
+    static final int SKIPPED = 1;
+    private static final String[] COUNTER_NAMES = {"dropped", "skipped"};
+    // 32 buckets per power of two keep percentiles within 3%, up to 10 s
+    private static final long MAX_LATENCY_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final int SUB_BUCKET_BITS = 5;
+
+    // VARIABLES
+    private final AtomicLongArray mCounters = new AtomicLongArray(COUNTER_NAMES.length);
+    private final LatencyHistogram[] mStages = new LatencyHistogram[STAGE_NAMES.length];
+
+    // CONSTRUCTOR
+    // Latencies of the stages a frame goes through and counters of the frames that never made it, recorded
+    // from any thread without locking.
+    Metrics() {
+        for (int stage = 0; stage < mStages.length; stage++) {
+            mStages[stage] = new LatencyHistogram(MAX_LATENCY_NS, SUB_BUCKET_BITS);
+        }
+    }
+
+    // METHODS
+    void count(int counter) {
+        mCounters.incrementAndGet(counter);
+    }
+
+    // Writes text taken from format to the file, replacing what it held. Static, so that the file can be
+    // written off the thread that resets the metrics.
+    static void dump(File file, String text) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+
+    // One line per stage with its p50, p95, p99 and maximum in milliseconds, then the counters.
+    String format(float fps) {
+        StringBuilder text = new StringBuilder(String.format(Locale.US, "%.1f fps", fps));
+        for (int stage = 0; stage < mStages.length; stage++) {
+            LatencyHistogram histogram = mStages[stage];
+            text.append(String.format(Locale.US, "\n%s: p50 %.1f  p95 %.1f  p99 %.1f  max %.1f ms (%d)",
+                    STAGE_NAMES[stage], toMs(histogram.getValueAtPercentile(50)),
+                    toMs(histogram.getValueAtPercentile(95)), toMs(histogram.getValueAtPercentile(99)),
+                    toMs(histogram.getMax()), histogram.getCount()));
+        }
+        for (int counter = 0; counter < COUNTER_NAMES.length; counter++) {
+            text.append(String.format(Locale.US, "\n%s: %d", COUNTER_NAMES[counter], mCounters.get(counter)));
+        }
+        return text.toString();
+    }
+
+    long getCount(int counter) {
+        return mCounters.get(counter);
+    }
+
+    LatencyHistogram getStage(int stage) {
+        return mStages[stage];
+    }
+
+    void record(int stage, long latencyNs) {
+        mStages[stage].record(latencyNs);
+    }
+
+    void reset() {
+        for (LatencyHistogram histogram : mStages) {
+            histogram.reset();
+        }
+        for (int counter = 0; counter < COUNTER_NAMES.length; counter++) {
+            mCounters.set(counter, 0);
+        }
+    }
+
+    private static double toMs(long ns) {
+        return ns / 1e6;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.example.aicamera;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+class ModelDescriptor {
+
+    // CONSTANTS
+    static final String CLASSIFIER = "classifier";
+    static final String DETECTOR = "detector";
+    static final String EXTENSION = ".properties";
+    private static final float DEFAULT_IMAGE_MEAN = 127.5f;
+    private static final float DEFAULT_IMAGE_STD = 127.5f;
+
+    // VARIABLES
+    private final float mImageMean;
+    private final float mImageStd;
+    private final String mLabelPath;
+    private final String mModelPath;
+    private final String mName;
+    private final int mTier;
+    private final String mType;
+
+    // CONSTRUCTOR
+    ModelDescriptor(String name, String modelPath, String labelPath, float imageMean, float imageStd, int tier) {
+        this(name, modelPath, labelPath, imageMean, imageStd, tier, CLASSIFIER);
+    }
+
+    // type is CLASSIFIER or DETECTOR.
+    ModelDescriptor(String name, String modelPath, String labelPath, float imageMean, float imageStd, int tier,
+                    String type) {
+        mName = name;
+        mModelPath = modelPath;
+        mLabelPath = labelPath;
+        mImageMean = imageMean;
+        mImageStd = imageStd;
+        mTier = tier;
+        mType = type;
+    }
+
+    // METHODS
+    float getImageMean() {
+        return mImageMean;
+    }
+
+    float getImageStd() {
+        return mImageStd;
+    }
+
+    String getLabelPath() {
+        return mLabelPath;
+    }
+
+    String getModelPath() {
+        return mModelPath;
+    }
+
+    String getName() {
+        return mName;
+    }
+
+    int getTier() {
+        return mTier;
+    }
+
+    String getType() {
+        return mType;
+    }
+
+    // Reads a descriptor such as efficientnet_lite0_224.properties, the model defaults to the file with the same base name.
+    static ModelDescriptor parse(String fileName, InputStream in) throws IOException {
+        Properties properties = new Properties();
+        properties.load(in);
+        String baseName = fileName.endsWith(EXTENSION)
+                ? fileName.substring(0, fileName.length() - EXTENSION.length()) : fileName;
+        String labelPath = properties.getProperty("labels");
+        if (labelPath == null) {
+            throw new IOException(fileName + ": missing labels");
+        }
+        String type = properties.getProperty("type", CLASSIFIER);
+        if (!type.equals(CLASSIFIER) && !type.equals(DETECTOR)) {
+            throw new IOException(fileName + ": unknown type " + type);
+        }
+        try {
+            return new ModelDescriptor(
+                    properties.getProperty("name", baseName),
+                    properties.getProperty("model", baseName + ".tflite"),
+                    labelPath,
+                    Float.parseFloat(properties.getProperty("mean", String.valueOf(DEFAULT_IMAGE_MEAN))),
+                    Float.parseFloat(properties.getProperty("std", String.valueOf(DEFAULT_IMAGE_STD))),
+                    Integer.parseInt(properties.getProperty("tier", "0")),
+                    type);
+        } catch (NumberFormatException e) {
+            throw new IOException(fileName + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.example.aicamera;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.content.pm.PackageInfoCompat;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.gpu.GpuDelegate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+class ModelInterpreter {
+
+    // CONSTANTS
+    private static final String TAG = "ModelInterpreter";
+    private static final String BACKEND_STORE_FILE = "backends.properties";
+    private static final int DEFAULT_NUM_THREADS = 2;
+    private static final int MAX_TUNING_THREADS = 4;
+
+    // VARIABLES
+    private GpuDelegate mGpuDelegate;
+    private Interpreter mInterpreter;
+    private final String mModelPath;
+
+    // CONSTRUCTOR
+    // Maps the model from the assets and runs it on the backend tuned for this device, shared by every engine.
+    ModelInterpreter(Context context, String modelPath, StartupTrace trace) throws IOException {
+        mModelPath = modelPath;
+        ByteBuffer modelBuffer = loadModelFile(context);
+        trace.mark(StartupTrace.MODEL_MAPPED);
+        Backend backend = selectBackend(context, modelBuffer);
+        Interpreter.Options options = backend.createOptions();
+        if (backend.getType() == Backend.GPU) {
+            mGpuDelegate = new GpuDelegate();
+            options.addDelegate(mGpuDelegate);
+        }
+        mInterpreter = new Interpreter(modelBuffer, options);
+    }
+
+    // METHODS
+    void close() {
+        mInterpreter.close();
+        mInterpreter = null;
+        if (mGpuDelegate != null) {
+            mGpuDelegate.close();
+            mGpuDelegate = null;
+        }
+    }
+
+    // Trials for every backend, with the GPU delegate that the plain interpreter trials leave out.
+    private static BackendTuner.TrialFactory createTrials(final ByteBuffer model) {
+        final BackendTuner.TrialFactory interpreterTrials =
+                BackendTuner.interpreterTrials(model, BackendTuner.TFLITE);
+        return new BackendTuner.TrialFactory() {
+            @Override
+            public BackendTuner.Trial open(Backend backend) throws IOException {
+                if (backend.getType() != Backend.GPU) {
+                    return interpreterTrials.open(backend);
+                }
+                GpuDelegate delegate = new GpuDelegate();
+                Interpreter.Options options = backend.createOptions();
+                options.addDelegate(delegate);
+                return BackendTuner.interpreterTrial(model, options, delegate);
+            }
+        };
+    }
+
+    // The version of the app, which ships the models in its assets.
+    private static long getVersionCode(Context context) {
+        try {
+            return PackageInfoCompat.getLongVersionCode(
+                    context.getPackageManager().getPackageInfo(context.getPackageName(), 0));
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    // Null once closed.
+    Interpreter getInterpreter() {
+        return mInterpreter;
+    }
+
+    private ByteBuffer loadModelFile(Context context) throws IOException {
+        AssetFileDescriptor fileDescriptor = context.getAssets().openFd(mModelPath);
+        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+        FileChannel fileChannel = inputStream.getChannel();
+        long startOffset = fileDescriptor.getStartOffset();
+        long declaredLength = fileDescriptor.getDeclaredLength();
+        MappedByteBuffer mbb = fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+        fileChannel.close();
+        inputStream.close();
+        fileDescriptor.close();
+        return mbb;
+    }
+
+    // The backend stored for this device and model, or the fastest one after benchmarking them all on first use.
+    private Backend selectBackend(Context context, ByteBuffer model) {
+        String device = Build.MANUFACTURER + " " + Build.MODEL;
+        String modelKey = BackendTuner.modelKey(mModelPath, model.capacity(), getVersionCode(context));
+        BackendStore store = new BackendStore(new File(context.getFilesDir(), BACKEND_STORE_FILE));
+        int maxThreads = Math.min(MAX_TUNING_THREADS, Runtime.getRuntime().availableProcessors());
+        boolean withNnapi = Build.VERSION.SDK_INT > Build.VERSION_CODES.O_MR1;
+        BackendTuner tuner = new BackendTuner(createTrials(model),
+                BackendTuner.DEFAULT_WARM_UP_RUNS, BackendTuner.DEFAULT_RUNS);
+        BackendTuner.Result result = tuner.select(store, device, modelKey,
+                BackendTuner.candidates(maxThreads, withNnapi, true));
+        if (result == null) {
+            return new Backend(Backend.CPU, DEFAULT_NUM_THREADS);
+        }
+        Log.i(TAG, mModelPath + " runs on " + result);
+        return result.getBackend();
+    }
+
+}
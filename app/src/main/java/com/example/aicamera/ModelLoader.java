@@ -0,0 +1,130 @@
+package com.example.aicamera;
+
+import android.content.Context;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+class ModelLoader {
+
+    interface Factory {
+        // Maps the model and creates its interpreter, on the loader thread.
+        Classifier createClassifier(ModelDescriptor model) throws IOException;
+
+        Detector createDetector(ModelDescriptor model) throws IOException;
+    }
+
+    // VARIABLES
+    private final ExecutorService mExecutor;
+    private final Factory mFactory;
+    private final StartupTrace mTrace;
+    private final int mWarmUpRuns;
+
+    // CONSTRUCTOR
+    ModelLoader(Context context, int warmUpRuns, StartupTrace trace) {
+        this(createFactory(context.getApplicationContext(), trace), warmUpRuns, trace);
+    }
+
+    ModelLoader(Factory factory, int warmUpRuns, StartupTrace trace) {
+        mFactory = factory;
+        mWarmUpRuns = warmUpRuns;
+        mTrace = trace;
+        // one model at a time, so loads finish in the order they were asked for
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "Model loader thread");
+            }
+        });
+    }
+
+    // METHODS
+    private static Factory createFactory(final Context context, final StartupTrace trace) {
+        return new Factory() {
+            @Override
+            public Classifier createClassifier(ModelDescriptor model) throws IOException {
+                return new Classifier(context, model, trace);
+            }
+
+            @Override
+            public Detector createDetector(ModelDescriptor model) throws IOException {
+                return new Detector(context, model, trace);
+            }
+        };
+    }
+
+    // Closes the classifier or detector of a load that is no longer wanted, once it has finished.
+    void discard(final Future<? extends Closeable> future) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Closeable engine = getLoaded(future);
+                if (engine != null) {
+                    try {
+                        engine.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        });
+    }
+
+    // The classifier or detector of a finished load, or null if it failed.
+    static <T> T getLoaded(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // Maps the model, creates its interpreter and warms it up off the camera and inference threads.
+    Future<Classifier> load(final ModelDescriptor model, final MultiCrop multiCrop) {
+        return mExecutor.submit(new Callable<Classifier>() {
+            @Override
+            public Classifier call() throws IOException {
+                Classifier classifier = mFactory.createClassifier(model);
+                if (multiCrop != null) {
+                    classifier.setMultiCrop(multiCrop);
+                }
+                if (mWarmUpRuns > 0) {
+                    classifier.warmUp(mWarmUpRuns);
+                    mTrace.mark(StartupTrace.FIRST_WARM_INFERENCE);
+                }
+                return classifier;
+            }
+        });
+    }
+
+    // Same as load for a detection model.
+    Future<Detector> loadDetector(final ModelDescriptor model) {
+        return mExecutor.submit(new Callable<Detector>() {
+            @Override
+            public Detector call() throws IOException {
+                Detector detector = mFactory.createDetector(model);
+                if (mWarmUpRuns > 0) {
+                    detector.warmUp(mWarmUpRuns);
+                    mTrace.mark(StartupTrace.FIRST_WARM_INFERENCE);
+                }
+                return detector;
+            }
+        });
+    }
+
+    // Pending loads still run, so whatever they return can be discarded first.
+    void shutdown() {
+        mExecutor.shutdown();
+    }
+
+}
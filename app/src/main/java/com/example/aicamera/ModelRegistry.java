@@ -0,0 +1,95 @@
+package com.example.aicamera;
+
+import android.content.res.AssetManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+class ModelRegistry {
+
+    // VARIABLES
+    private final List<ModelDescriptor> mModels;
+
+    // CONSTRUCTOR
+    ModelRegistry(List<ModelDescriptor> models) {
+        mModels = new ArrayList<>(models);
+        Collections.sort(mModels, new Comparator<ModelDescriptor>() {
+            @Override
+            public int compare(ModelDescriptor o1, ModelDescriptor o2) {
+                if (o1.getTier() != o2.getTier()) {
+                    return o1.getTier() < o2.getTier() ? -1 : 1;
+                }
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+    }
+
+    // METHODS
+    ModelDescriptor find(String name) {
+        for (ModelDescriptor model : mModels) {
+            if (model.getName().equals(name)) {
+                return model;
+            }
+        }
+        return null;
+    }
+
+    // Every descriptor in the assets root whose model file is present as well.
+    static ModelRegistry fromAssets(AssetManager assets) throws IOException {
+        List<String> files = Arrays.asList(assets.list(""));
+        List<ModelDescriptor> models = new ArrayList<>();
+        for (String file : files) {
+            if (!file.endsWith(ModelDescriptor.EXTENSION)) {
+                continue;
+            }
+            InputStream in = assets.open(file);
+            try {
+                ModelDescriptor model = ModelDescriptor.parse(file, in);
+                if (files.contains(model.getModelPath()) && files.contains(model.getLabelPath())) {
+                    models.add(model);
+                }
+            } finally {
+                in.close();
+            }
+        }
+        return new ModelRegistry(models);
+    }
+
+    // The most demanding classifier the device tier can run, or the lightest one if none fits.
+    ModelDescriptor getDefault(int deviceTier) {
+        return getDefault(deviceTier, ModelDescriptor.CLASSIFIER);
+    }
+
+    // Same as above for models of the given type, null if there are none.
+    ModelDescriptor getDefault(int deviceTier, String type) {
+        ModelDescriptor best = null;
+        for (ModelDescriptor model : mModels) {
+            if (model.getType().equals(type) && (best == null || model.getTier() <= deviceTier)) {
+                best = model;
+            }
+        }
+        return best;
+    }
+
+    List<ModelDescriptor> getModels() {
+        return Collections.unmodifiableList(mModels);
+    }
+
+    // The model after this one of the same type, wrapping around.
+    ModelDescriptor next(ModelDescriptor model) {
+        int index = mModels.indexOf(model);
+        for (int i = 1; i <= mModels.size(); i++) {
+            ModelDescriptor candidate = mModels.get((index + i) % mModels.size());
+            if (candidate.getType().equals(model.getType())) {
+                return candidate;
+            }
+        }
+        return model;
+    }
+
+}
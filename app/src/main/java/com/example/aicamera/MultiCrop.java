@@ -0,0 +1,149 @@
+package com.example.aicamera;
+
+import java.util.Arrays;
+
+class MultiCrop {
+
+    // CONSTANTS
+    static final int MEAN = 0;
+    static final int MAX = 1;
+
+    // VARIABLES
+    private final int mAggregation;
+    private final int mCount;
+    private final float[] mCrops;
+
+    // CONSTRUCTOR
+    // Crops are (left, top, scale) triples relative to the center region, see YuvConverter.
+    MultiCrop(float[] crops, int aggregation) {
+        if (crops.length == 0 || crops.length % 3 != 0) {
+            throw new IllegalArgumentException("Crops must be (left, top, scale) triples");
+        }
+        mCrops = crops.clone();
+        mCount = crops.length / 3;
+        mAggregation = aggregation;
+    }
+
+    // METHODS
+    // Averages or takes the maximum of the first count rows into out.
+    void aggregate(float[][] rows, int count, float[] out) {
+        System.arraycopy(rows[0], 0, out, 0, out.length);
+        for (int r = 1; r < count; r++) {
+            final float[] row = rows[r];
+            if (mAggregation == MAX) {
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = Math.max(out[i], row[i]);
+                }
+            } else {
+                for (int i = 0; i < out.length; i++) {
+                    out[i] += row[i];
+                }
+            }
+        }
+        if (mAggregation == MEAN && count > 1) {
+            final float scale = 1.0f / count;
+            for (int i = 0; i < out.length; i++) {
+                out[i] *= scale;
+            }
+        }
+    }
+
+    // Same as above for unsigned quantized rows, the result stays in the quantized scale.
+    void aggregate(byte[][] rows, int count, float[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = rows[0][i] & 0xFF;
+        }
+        for (int r = 1; r < count; r++) {
+            final byte[] row = rows[r];
+            if (mAggregation == MAX) {
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = Math.max(out[i], row[i] & 0xFF);
+                }
+            } else {
+                for (int i = 0; i < out.length; i++) {
+                    out[i] += row[i] & 0xFF;
+                }
+            }
+        }
+        if (mAggregation == MEAN && count > 1) {
+            final float scale = 1.0f / count;
+            for (int i = 0; i < out.length; i++) {
+                out[i] *= scale;
+            }
+        }
+    }
+
+    // The center crop and the four corners, each covering scale of the center region.
+    static MultiCrop centerAndCorners(float scale, int aggregation) {
+        float margin = 1.0f - scale;
+        return new MultiCrop(new float[]{
+                margin / 2, margin / 2, scale,
+                0f, 0f, scale,
+                margin, 0f, scale,
+                0f, margin, scale,
+                margin, margin, scale}, aggregation);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof MultiCrop)) {
+            return false;
+        }
+        MultiCrop other = (MultiCrop) o;
+        return mAggregation == other.mAggregation && Arrays.equals(mCrops, other.mCrops);
+    }
+
+    // size x size tiles covering the center region, neighbours sharing overlap of their side.
+    static MultiCrop grid(int size, float overlap, int aggregation) {
+        float scale = 1.0f / (size - (size - 1) * overlap);
+        float step = scale * (1.0f - overlap);
+        float[] crops = new float[3 * size * size];
+        int i = 0;
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                crops[i++] = column * step;
+                crops[i++] = row * step;
+                crops[i++] = scale;
+            }
+        }
+        return new MultiCrop(crops, aggregation);
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    float[] getCrops() {
+        return mCrops;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * mAggregation + Arrays.hashCode(mCrops);
+    }
+
+    // The same crops taken inside the (left, top, scale) crop instead of the whole center region.
+    MultiCrop within(float left, float top, float scale) {
+        float[] crops = new float[mCrops.length];
+        for (int c = 0; c < mCount; c++) {
+            crops[3 * c] = left + mCrops[3 * c] * scale;
+            crops[3 * c + 1] = top + mCrops[3 * c + 1] * scale;
+            crops[3 * c + 2] = mCrops[3 * c + 2] * scale;
+        }
+        return new MultiCrop(crops, mAggregation);
+    }
+
+    // Centered crops zooming in by step at every level, starting from the whole center region.
+    static MultiCrop zoomPyramid(int levels, float step, int aggregation) {
+        float[] crops = new float[3 * levels];
+        float scale = 1.0f;
+        for (int i = 0; i < levels; i++) {
+            crops[3 * i] = (1.0f - scale) / 2;
+            crops[3 * i + 1] = (1.0f - scale) / 2;
+            crops[3 * i + 2] = scale;
+            scale *= step;
+        }
+        return new MultiCrop(crops, aggregation);
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.example.aicamera;
+
+class NonMaxSuppression {
+
+    // VARIABLES
+    private final int[] mHeap;
+    private final float mIouThreshold;
+    private final float[] mKeptAreas;
+    private final int[] mKept;
+    private final float mScoreThreshold;
+    private float[] mScores;
+    private int mSize;
+
+    // CONSTRUCTOR
+    // Candidates at or under scoreThreshold are dropped, and a candidate overlapping a better one of the same
+    // class by more than iouThreshold intersection over union is suppressed.
+    NonMaxSuppression(int maxCandidates, int maxDetections, float scoreThreshold, float iouThreshold) {
+        mHeap = new int[maxCandidates];
+        mKept = new int[maxDetections];
+        mKeptAreas = new float[maxDetections];
+        mScoreThreshold = scoreThreshold;
+        mIouThreshold = iouThreshold;
+    }
+
+    // METHODS
+    private static float area(float[] boxes, int i) {
+        return Math.max(0, boxes[4 * i + 2] - boxes[4 * i]) * Math.max(0, boxes[4 * i + 3] - boxes[4 * i + 1]);
+    }
+
+    // Candidate of the given rank among the kept ones, the best first.
+    int getIndex(int rank) {
+        return mKept[rank];
+    }
+
+    // Heap order: higher score first, on equal scores the earlier candidate first.
+    private boolean higher(int a, int b) {
+        return mScores[a] > mScores[b] || (mScores[a] == mScores[b] && a < b);
+    }
+
+    // Greedy suppression over the first count candidates with {left, top, right, bottom} boxes. Classes may be
+    // null to suppress across classes. Candidates come out of a heap in score order, so only as many are
+    // ranked as it takes to keep maxDetections. Returns the number kept.
+    int select(float[] boxes, float[] scores, int[] classes, int count) {
+        mScores = scores;
+        mSize = 0;
+        final int[] heap = mHeap;
+        for (int i = 0; i < count && mSize < heap.length; i++) {
+            if (scores[i] > mScoreThreshold) {
+                heap[mSize++] = i;
+            }
+        }
+        for (int parent = mSize / 2 - 1; parent >= 0; parent--) {
+            siftDown(parent);
+        }
+
+        int kept = 0;
+        while (mSize > 0 && kept < mKept.length) {
+            int candidate = heap[0];
+            heap[0] = heap[--mSize];
+            siftDown(0);
+
+            float area = area(boxes, candidate);
+            boolean suppressed = false;
+            for (int k = 0; k < kept && !suppressed; k++) {
+                int other = mKept[k];
+                if (classes != null && classes[other] != classes[candidate]) {
+                    continue;
+                }
+                float width = Math.min(boxes[4 * candidate + 2], boxes[4 * other + 2])
+                        - Math.max(boxes[4 * candidate], boxes[4 * other]);
+                float height = Math.min(boxes[4 * candidate + 3], boxes[4 * other + 3])
+                        - Math.max(boxes[4 * candidate + 1], boxes[4 * other + 1]);
+                if (width <= 0 || height <= 0) {
+                    continue;
+                }
+                float intersection = width * height;
+                suppressed = intersection > mIouThreshold * (area + mKeptAreas[k] - intersection);
+            }
+            if (!suppressed) {
+                mKept[kept] = candidate;
+                mKeptAreas[kept] = area;
+                kept++;
+            }
+        }
+        mScores = null;
+        return kept;
+    }
+
+    private void siftDown(int parent) {
+        final int[] heap = mHeap;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= mSize) {
+                break;
+            }
+            if (child + 1 < mSize && higher(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!higher(heap[child], heap[parent])) {
+                break;
+            }
+            int swap = heap[child];
+            heap[child] = heap[parent];
+            heap[parent] = swap;
+            parent = child;
+        }
+    }
+
+}
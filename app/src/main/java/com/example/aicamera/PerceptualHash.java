@@ -0,0 +1,62 @@
+package com.example.aicamera;
+
+import java.nio.ByteBuffer;
+
+class PerceptualHash {
+
+    // CONSTANTS
+    private static final int BYTES_PER_FLOAT = 4;
+    private static final int COLUMNS = 9;
+    private static final int PIXEL_SIZE = 3;
+    private static final int ROWS = 8;
+    private static final int SAMPLES_PER_CELL = 4;
+
+    // CONSTRUCTOR
+    private PerceptualHash() {
+    }
+
+    // METHODS
+    // Difference hash of the first image in a model input buffer of RGB pixels: the image is shrunk to 9x8
+    // brightness cells and every bit tells whether a cell is brighter than its right neighbour. Similar
+    // images differ in few bits, and the hash does not depend on the normalization of the input.
+    static long dHash(ByteBuffer input, int width, int height, boolean isQuantized) {
+        return dHash(input, width, height, isQuantized, false);
+    }
+
+    // Same as above, a signed quantized input holds int8 instead of uint8 values.
+    static long dHash(ByteBuffer input, int width, int height, boolean isQuantized, boolean isSigned) {
+        final int sign = isSigned ? 0x80 : 0;
+        long hash = 0;
+        float previous = 0;
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                float brightness = 0;
+                for (int sy = 0; sy < SAMPLES_PER_CELL; sy++) {
+                    int y = (2 * (row * SAMPLES_PER_CELL + sy) + 1) * height / (2 * ROWS * SAMPLES_PER_CELL);
+                    for (int sx = 0; sx < SAMPLES_PER_CELL; sx++) {
+                        int x = (2 * (column * SAMPLES_PER_CELL + sx) + 1) * width / (2 * COLUMNS * SAMPLES_PER_CELL);
+                        int offset = (y * width + x) * PIXEL_SIZE;
+                        if (isQuantized) {
+                            brightness += ((input.get(offset) ^ sign) & 0xFF)
+                                    + ((input.get(offset + 1) ^ sign) & 0xFF) + ((input.get(offset + 2) ^ sign) & 0xFF);
+                        } else {
+                            int byteOffset = offset * BYTES_PER_FLOAT;
+                            brightness += input.getFloat(byteOffset) + input.getFloat(byteOffset + BYTES_PER_FLOAT)
+                                    + input.getFloat(byteOffset + 2 * BYTES_PER_FLOAT);
+                        }
+                    }
+                }
+                if (column > 0) {
+                    hash = (hash << 1) | (previous > brightness ? 1 : 0);
+                }
+                previous = brightness;
+            }
+        }
+        return hash;
+    }
+
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+}
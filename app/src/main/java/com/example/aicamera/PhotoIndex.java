@@ -0,0 +1,412 @@
+package com.example.aicamera;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+class PhotoIndex implements Closeable {
+
+    // CONSTANTS
+    // a compaction rewrites every live record, so it waits until most of the log is dead
+    static final int MIN_DEAD_TO_COMPACT = 256;
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+
+    // VARIABLES
+    private FileChannel mChannel;
+    private boolean mClosed;
+    private boolean mCompacting;
+    private final Executor mCompactor;
+    private int mDead;
+    private final File mFile;
+    private long mLength;
+    private MappedByteBuffer mMapped;
+    private final Map<String, Postings> mPostings = new HashMap<>();
+    // the offset of the live record of every photo
+    private final Map<String, Integer> mRecords = new HashMap<>();
+
+    // CONSTRUCTOR
+    // The labels of the photos taken, in a log that is only appended to: a record adds or replaces the labels
+    // of a photo, or removes it. Nothing is read until the index is first used, then the log is mapped and
+    // scanned once into a map from every label to the records that carry it. Superseded records are rewritten
+    // away on the compactor once they outnumber the live ones. A record cut short by a crash is dropped.
+    PhotoIndex(File file, Executor compactor) {
+        mFile = file;
+        mCompactor = compactor;
+    }
+
+    // METHODS
+    // Indexes the first count labels of the photo, replacing those it had.
+    synchronized void add(String id, String[] labels, float[] scores, int count) throws IOException {
+        if (count > 0xFF) {
+            throw new IllegalArgumentException("Too many labels");
+        }
+        load();
+        byte[] idBytes = encode(id);
+        byte[][] labelBytes = new byte[count][];
+        int length = 1 + 2 + idBytes.length + 1;
+        for (int i = 0; i < count; i++) {
+            labelBytes[i] = encode(labels[i]);
+            length += 2 + labelBytes[i].length + 4;
+        }
+        ByteBuffer record = ByteBuffer.allocate(4 + length);
+        record.putInt(length).put(ADD).putShort((short) idBytes.length).put(idBytes).put((byte) count);
+        for (int i = 0; i < count; i++) {
+            record.putShort((short) labelBytes[i].length).put(labelBytes[i]).putFloat(scores[i]);
+        }
+        int offset = append(record);
+        index(id, offset);
+        for (int i = 0; i < count; i++) {
+            post(labels[i], offset);
+        }
+        compactIfMostlyDead();
+    }
+
+    private int append(ByteBuffer record) throws IOException {
+        if (mLength + record.capacity() > Integer.MAX_VALUE) {
+            throw new IOException("Index full");
+        }
+        int offset = (int) mLength;
+        record.flip();
+        while (record.hasRemaining()) {
+            mChannel.write(record, offset + record.position());
+        }
+        mLength += record.capacity();
+        return offset;
+    }
+
+    // Stops compacting, later calls fail.
+    @Override
+    public synchronized void close() throws IOException {
+        mClosed = true;
+        if (mChannel != null) {
+            mChannel.close();
+            mChannel = null;
+        }
+        mMapped = null;
+    }
+
+    // Rewrites the live records into a new log, which replaces the old one once complete. The records are
+    // copied without holding the index, only those added meanwhile are copied with it held. Called by one
+    // thread at a time, the compactor.
+    void compact() throws IOException {
+        Compaction compaction = startCompaction();
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.copy();
+        } catch (IOException e) {
+            compaction.abort();
+            throw e;
+        }
+        finishCompaction(compaction);
+    }
+
+    private void compactIfMostlyDead() {
+        if (mCompacting || mDead < MIN_DEAD_TO_COMPACT || mDead <= mRecords.size()) {
+            return;
+        }
+        mCompacting = true;
+        mCompactor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    synchronized (PhotoIndex.this) {
+                        mCompacting = false;
+                    }
+                }
+            }
+        });
+    }
+
+    // Whether the photo is indexed, with labels or without.
+    synchronized boolean contains(String id) throws IOException {
+        load();
+        return mRecords.containsKey(id);
+    }
+
+    private static byte[] encode(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Too long: " + text);
+        }
+        return bytes;
+    }
+
+    // Appends the records added since the compaction started to the new log, then puts it in place of the
+    // old one and reads it. Nothing is replaced if the index was closed meanwhile.
+    synchronized void finishCompaction(Compaction compaction) throws IOException {
+        if (mClosed) {
+            compaction.abort();
+            return;
+        }
+        try {
+            map();
+            compaction.copyFrom(mMapped, compaction.mEnd, (int) mLength);
+            compaction.complete();
+        } catch (IOException e) {
+            compaction.abort();
+            throw e;
+        }
+        mChannel.close();
+        mChannel = null;
+        mMapped = null;
+        if (!compaction.mFile.renameTo(mFile)) {
+            compaction.mFile.delete();
+            throw new IOException("Could not replace " + mFile);
+        }
+        load();
+    }
+
+    // Records that no longer count, they are dropped by the next compaction.
+    synchronized int getDeadRecords() throws IOException {
+        load();
+        return mDead;
+    }
+
+    // The labels of the photo, most confident first, or null if it is not indexed.
+    synchronized String[] getLabels(String id) throws IOException {
+        load();
+        Integer offset = mRecords.get(id);
+        if (offset == null) {
+            return null;
+        }
+        map();
+        int position = offset + 5;
+        position += 2 + (mMapped.getShort(position) & 0xFFFF);
+        String[] labels = new String[mMapped.get(position++) & 0xFF];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = readString(position);
+            position += 2 + (mMapped.getShort(position) & 0xFFFF) + 4;
+        }
+        return labels;
+    }
+
+    private void index(String id, int offset) {
+        if (mRecords.put(id, offset) != null) {
+            mDead++;
+        }
+    }
+
+    // Opens and scans the log the first time the index is used.
+    private void load() throws IOException {
+        if (mClosed) {
+            throw new IOException("Index closed");
+        }
+        if (mChannel != null) {
+            return;
+        }
+        mRecords.clear();
+        mPostings.clear();
+        mDead = 0;
+        mChannel = new RandomAccessFile(mFile, "rw").getChannel();
+        mLength = mChannel.size();
+        map();
+        int offset = 0;
+        while (offset + 4 <= mLength) {
+            int length = mMapped.getInt(offset);
+            if (length < 4 || offset + 4L + length > mLength) {
+                break;
+            }
+            String id = readString(offset + 5);
+            if (mMapped.get(offset + 4) == REMOVE) {
+                // the remove record is dead as soon as it is read, and so is the record it removes
+                mDead += (mRecords.remove(id) != null) ? 2 : 1;
+            } else {
+                index(id, offset);
+                int position = offset + 5 + 2 + (mMapped.getShort(offset + 5) & 0xFFFF);
+                int count = mMapped.get(position++) & 0xFF;
+                for (int i = 0; i < count; i++) {
+                    post(readString(position), offset);
+                    position += 2 + (mMapped.getShort(position) & 0xFFFF) + 4;
+                }
+            }
+            offset += 4 + length;
+        }
+        if (offset < mLength) {
+            mChannel.truncate(offset);
+            mLength = offset;
+        }
+    }
+
+    // Maps what the log holds, again only once it has grown.
+    private void map() throws IOException {
+        if (mMapped == null || mMapped.capacity() < mLength) {
+            mMapped = mChannel.map(FileChannel.MapMode.READ_ONLY, 0, mLength);
+        }
+    }
+
+    private void post(String label, int offset) {
+        Postings postings = mPostings.get(label);
+        if (postings == null) {
+            postings = new Postings();
+            mPostings.put(label, postings);
+        }
+        postings.add(offset);
+    }
+
+    // The photos labelled label, oldest first. Only the records that carry the label are read, and the
+    // superseded ones among them are dropped on the way.
+    synchronized List<String> query(String label) throws IOException {
+        load();
+        Postings postings = mPostings.get(label);
+        if (postings == null) {
+            return Collections.emptyList();
+        }
+        map();
+        List<String> ids = new ArrayList<>(postings.mSize);
+        int kept = 0;
+        for (int i = 0; i < postings.mSize; i++) {
+            int offset = postings.mOffsets[i];
+            String id = readString(offset + 5);
+            Integer live = mRecords.get(id);
+            if (live != null && live == offset) {
+                ids.add(id);
+                postings.mOffsets[kept++] = offset;
+            }
+        }
+        postings.mSize = kept;
+        return ids;
+    }
+
+    private String readString(int position) {
+        byte[] bytes = new byte[mMapped.getShort(position) & 0xFFFF];
+        ByteBuffer data = mMapped.duplicate();
+        data.position(position + 2);
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Unindexes the photo, false if it was not indexed.
+    synchronized boolean remove(String id) throws IOException {
+        load();
+        if (!mRecords.containsKey(id)) {
+            return false;
+        }
+        byte[] idBytes = encode(id);
+        int length = 1 + 2 + idBytes.length + 1;
+        ByteBuffer record = ByteBuffer.allocate(4 + length);
+        record.putInt(length).put(REMOVE).putShort((short) idBytes.length).put(idBytes).put((byte) 0);
+        append(record);
+        mRecords.remove(id);
+        mDead += 2;
+        compactIfMostlyDead();
+        return true;
+    }
+
+    // Photos indexed.
+    synchronized int size() throws IOException {
+        load();
+        return mRecords.size();
+    }
+
+    // Takes the live records in the order they were added, so that queries keep listing the oldest first,
+    // and the end of the log they are in. Null if the index is closed.
+    synchronized Compaction startCompaction() throws IOException {
+        if (mClosed) {
+            return null;
+        }
+        load();
+        map();
+        int[] live = new int[mRecords.size()];
+        int i = 0;
+        for (int offset : mRecords.values()) {
+            live[i++] = offset;
+        }
+        Arrays.sort(live);
+        return new Compaction(new File(mFile.getPath() + ".tmp"), mMapped, live, (int) mLength);
+    }
+
+    // A new log being written from the records of the old one, mapped when the compaction started.
+    static class Compaction {
+
+        // VARIABLES
+        private final int mEnd;
+        private final File mFile;
+        private final int[] mLive;
+        private final MappedByteBuffer mMapped;
+        private FileChannel mOut;
+
+        // CONSTRUCTOR
+        Compaction(File file, MappedByteBuffer mapped, int[] live, int end) throws IOException {
+            mFile = file;
+            mMapped = mapped;
+            mLive = live;
+            mEnd = end;
+            mOut = new FileOutputStream(file).getChannel();
+        }
+
+        // METHODS
+        // Drops the new log.
+        void abort() {
+            try {
+                mOut.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            mFile.delete();
+        }
+
+        // Syncs the new log, which is complete.
+        private void complete() throws IOException {
+            try {
+                mOut.force(true);
+            } finally {
+                mOut.close();
+            }
+        }
+
+        // Writes the live records.
+        void copy() throws IOException {
+            for (int offset : mLive) {
+                copyFrom(mMapped, offset, offset + 4 + mMapped.getInt(offset));
+            }
+        }
+
+        private void copyFrom(ByteBuffer log, int start, int end) throws IOException {
+            ByteBuffer records = log.duplicate();
+            records.limit(end);
+            records.position(start);
+            while (records.hasRemaining()) {
+                mOut.write(records);
+            }
+        }
+
+    }
+
+    // The offsets of the records that carry a label, in the order they were added.
+    private static class Postings {
+
+        // VARIABLES
+        private int[] mOffsets = new int[4];
+        private int mSize;
+
+        // METHODS
+        void add(int offset) {
+            if (mSize == mOffsets.length) {
+                mOffsets = Arrays.copyOf(mOffsets, mSize * 2);
+            }
+            mOffsets[mSize++] = offset;
+        }
+
+    }
+
+}
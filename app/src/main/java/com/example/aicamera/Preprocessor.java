@@ -0,0 +1,189 @@
+package com.example.aicamera;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+class Preprocessor {
+
+    // CONSTANTS
+    private static final int BYTES_PER_FLOAT = 4;
+
+    // VARIABLES
+    private final int mBatchSize;
+    private final ByteBuffer[] mBatchViews;
+    private final byte[] mByteImage;
+    private final byte[] mByteRow;
+    private final float[] mFloatRow;
+    private final int mImageBytes;
+    private final ByteBuffer mImageData;
+    private final FloatBuffer mImageDataFloat;
+    private final int mImageSizeX;
+    private final int mImageSizeY;
+    private final int[] mIntValues;
+    private final boolean mIsModelQuantized;
+    private final byte[][][] mLabelProbArraysByte;
+    private final float[][][] mLabelProbArraysFloat;
+    private final float[] mNormalizationTable = new float[256];
+    private final int mPixelSize;
+    private final byte[] mQuantizationTable = new byte[256];
+
+    // CONSTRUCTOR
+    // A quantized input takes the raw channel values.
+    Preprocessor(int imageSizeX, int imageSizeY, int pixelSize, int batchSize, float imageMean, float imageStd,
+                 boolean isModelQuantized, int numLabels) {
+        this(imageSizeX, imageSizeY, pixelSize, batchSize, imageMean, imageStd, isModelQuantized, 0, 0, false,
+                numLabels);
+    }
+
+    // A quantized input with a scale takes the normalized channel values quantized to uint8, or to int8
+    // if isInputSigned. Without a scale it takes the raw channel values.
+    Preprocessor(int imageSizeX, int imageSizeY, int pixelSize, int batchSize, float imageMean, float imageStd,
+                 boolean isModelQuantized, float inputScale, int inputZeroPoint, boolean isInputSigned,
+                 int numLabels) {
+        mImageSizeX = imageSizeX;
+        mImageSizeY = imageSizeY;
+        mPixelSize = pixelSize;
+        mBatchSize = batchSize;
+        mIsModelQuantized = isModelQuantized;
+
+        // buffers live as long as the interpreter, so nothing is allocated per frame
+        int values = mBatchSize * mImageSizeX * mImageSizeY * mPixelSize;
+        mIntValues = new int[mImageSizeX * mImageSizeY];
+        if (mIsModelQuantized) {
+            mImageData = ByteBuffer.allocateDirect(values);
+            mImageData.order(ByteOrder.nativeOrder());
+            mImageDataFloat = null;
+            mByteImage = new byte[mImageSizeX * mImageSizeY * mPixelSize];
+            mByteRow = new byte[mImageSizeX * mPixelSize];
+            mFloatRow = null;
+            mImageBytes = mImageSizeX * mImageSizeY * mPixelSize;
+            mLabelProbArraysByte = new byte[mBatchSize][][];
+            byte[][] rows = new byte[mBatchSize][numLabels];
+            for (int n = 1; n <= mBatchSize; n++) {
+                mLabelProbArraysByte[n - 1] = Arrays.copyOf(rows, n);
+            }
+            mLabelProbArraysFloat = null;
+        } else {
+            mImageData = ByteBuffer.allocateDirect(BYTES_PER_FLOAT * values);
+            mImageData.order(ByteOrder.nativeOrder());
+            mImageDataFloat = mImageData.asFloatBuffer();
+            mByteImage = null;
+            mByteRow = null;
+            mFloatRow = new float[mImageSizeX * mPixelSize];
+            mImageBytes = BYTES_PER_FLOAT * mImageSizeX * mImageSizeY * mPixelSize;
+            mLabelProbArraysByte = null;
+            mLabelProbArraysFloat = new float[mBatchSize][][];
+            float[][] rows = new float[mBatchSize][numLabels];
+            for (int n = 1; n <= mBatchSize; n++) {
+                mLabelProbArraysFloat[n - 1] = Arrays.copyOf(rows, n);
+            }
+        }
+
+        // the interpreter wants an input buffer sized exactly for the batch, one view per batch size
+        mBatchViews = new ByteBuffer[mBatchSize];
+        for (int n = 1; n <= mBatchSize; n++) {
+            ByteBuffer view = mImageData.duplicate();
+            view.limit(n * mImageBytes);
+            mBatchViews[n - 1] = view.slice().order(ByteOrder.nativeOrder());
+        }
+
+        // (value - mean) / std for every possible channel value
+        for (int i = 0; i < mNormalizationTable.length; i++) {
+            mNormalizationTable[i] = (i - imageMean) / imageStd;
+        }
+
+        // the quantized value for every possible channel value, so no float is touched per pixel
+        int min = isInputSigned ? Byte.MIN_VALUE : 0;
+        int max = isInputSigned ? Byte.MAX_VALUE : 255;
+        for (int i = 0; i < mQuantizationTable.length; i++) {
+            int value = (inputScale > 0) ? Math.round(mNormalizationTable[i] / inputScale) + inputZeroPoint : i;
+            mQuantizationTable[i] = (byte) Math.max(min, Math.min(max, value));
+        }
+    }
+
+    // METHODS
+    void beginFrame() {
+        if (mIsModelQuantized) {
+            mImageData.clear();
+        } else {
+            mImageDataFloat.clear();
+        }
+    }
+
+    ByteBuffer convertPixels() {
+        beginFrame();
+        if (mIsModelQuantized) {
+            // the whole image in one pass and one copy
+            final byte[] image = mByteImage;
+            final byte[] table = mQuantizationTable;
+            final int[] pixels = mIntValues;
+            int k = 0;
+            for (int i = 0; i < pixels.length; ++i) {
+                final int val = pixels[i];
+                image[k++] = table[(val >> 16) & 0xFF];
+                image[k++] = table[(val >> 8) & 0xFF];
+                image[k++] = table[val & 0xFF];
+            }
+            mImageData.put(image);
+            return endFrame();
+        }
+        for (int i = 0; i < mImageSizeY; ++i) {
+            putRow(mIntValues, i * mImageSizeX);
+        }
+        return endFrame();
+    }
+
+    // Returns the input for all the images put since beginFrame.
+    ByteBuffer endFrame() {
+        int written = mIsModelQuantized ? mImageData.position() : BYTES_PER_FLOAT * mImageDataFloat.position();
+        ByteBuffer view = mBatchViews[Math.max(written / mImageBytes, 1) - 1];
+        view.rewind();
+        return view;
+    }
+
+    int getBatchSize() {
+        return mBatchSize;
+    }
+
+    // Output arrays of the given batch size, all of them share the same rows.
+    byte[][] getLabelProbArrayByte(int batchSize) {
+        return mLabelProbArraysByte[batchSize - 1];
+    }
+
+    float[][] getLabelProbArrayFloat(int batchSize) {
+        return mLabelProbArraysFloat[batchSize - 1];
+    }
+
+    int[] getPixels() {
+        return mIntValues;
+    }
+
+    // Normalizes one row of ARGB pixels into the input buffer, rows must be put in order between beginFrame and endFrame.
+    void putRow(int[] pixels, int offset) {
+        int k = 0;
+        if (mIsModelQuantized) {
+            final byte[] row = mByteRow;
+            final byte[] table = mQuantizationTable;
+            for (int j = 0; j < mImageSizeX; ++j) {
+                final int val = pixels[offset + j];
+                row[k++] = table[(val >> 16) & 0xFF];
+                row[k++] = table[(val >> 8) & 0xFF];
+                row[k++] = table[val & 0xFF];
+            }
+            mImageData.put(row);
+        } else {
+            final float[] row = mFloatRow;
+            final float[] table = mNormalizationTable;
+            for (int j = 0; j < mImageSizeX; ++j) {
+                final int val = pixels[offset + j];
+                row[k++] = table[(val >> 16) & 0xFF];
+                row[k++] = table[(val >> 8) & 0xFF];
+                row[k++] = table[val & 0xFF];
+            }
+            mImageDataFloat.put(row);
+        }
+    }
+
+}
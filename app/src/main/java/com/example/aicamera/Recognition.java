@@ -0,0 +1,37 @@
+package com.example.aicamera;
+
+import java.util.Locale;
+
+class Recognition {
+
+    // VARIABLES
+    private final float mConfidence;
+    private final int mIndex;
+    private final String mLabel;
+
+    // CONSTRUCTOR
+    Recognition(int index, String label, float confidence) {
+        mIndex = index;
+        mLabel = label;
+        mConfidence = confidence;
+    }
+
+    // METHODS
+    float getConfidence() {
+        return mConfidence;
+    }
+
+    int getIndex() {
+        return mIndex;
+    }
+
+    String getLabel() {
+        return mLabel;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s (%.1f%%)", mLabel, mConfidence * 100.0f);
+    }
+
+}
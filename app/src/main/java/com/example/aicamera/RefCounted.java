@@ -0,0 +1,48 @@
+package com.example.aicamera;
+
+class RefCounted<T> {
+
+    interface Factory<T> {
+        T create();
+
+        void destroy(T value);
+    }
+
+    // VARIABLES
+    private final Factory<T> mFactory;
+    private int mRefCount;
+    private T mValue;
+
+    // CONSTRUCTOR
+    RefCounted(Factory<T> factory) {
+        mFactory = factory;
+    }
+
+    // METHODS
+    // The first user creates the value, later users share it.
+    synchronized T acquire() {
+        if (mRefCount == 0) {
+            mValue = mFactory.create();
+        }
+        mRefCount++;
+        return mValue;
+    }
+
+    synchronized int getRefCount() {
+        return mRefCount;
+    }
+
+    // The last user destroys the value, a later acquire creates a new one.
+    synchronized void release() {
+        if (mRefCount == 0) {
+            throw new IllegalStateException("Released more often than acquired");
+        }
+        mRefCount--;
+        if (mRefCount == 0) {
+            T value = mValue;
+            mValue = null;
+            mFactory.destroy(value);
+        }
+    }
+
+}
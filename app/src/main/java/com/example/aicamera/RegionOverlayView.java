@@ -0,0 +1,63 @@
+package com.example.aicamera;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+public class RegionOverlayView extends View {
+
+    // CONSTANTS
+    private static final float STROKE_WIDTH_DP = 2;
+    private static final float TEXT_SIZE_SP = 14;
+
+    // VARIABLES
+    private final Paint mBoxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private float[] mBoxes = new float[0];
+    private int mCount;
+    private String[] mLabels = new String[0];
+    private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // CONSTRUCTOR
+    public RegionOverlayView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mBoxPaint.setStyle(Paint.Style.STROKE);
+        mBoxPaint.setColor(Color.WHITE);
+        mBoxPaint.setStrokeWidth(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, STROKE_WIDTH_DP,
+                getResources().getDisplayMetrics()));
+        mTextPaint.setColor(Color.WHITE);
+        mTextPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, TEXT_SIZE_SP,
+                getResources().getDisplayMetrics()));
+        mTextPaint.setShadowLayer(2, 0, 0, Color.BLACK);
+    }
+
+    // METHODS
+    // Boxes are {left, top, right, bottom} relative to the center region of the frame, see MultiCrop.
+    // Must be called on the UI thread.
+    void setRegions(String[] labels, float[] boxes, int count) {
+        mLabels = labels;
+        mBoxes = boxes;
+        mCount = count;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        // the view shows the whole frame, its center region is the largest centered square
+        float side = Math.min(getWidth(), getHeight());
+        float left = (getWidth() - side) / 2;
+        float top = (getHeight() - side) / 2;
+        for (int i = 0; i < mCount; i++) {
+            float boxLeft = left + mBoxes[4 * i] * side;
+            float boxTop = top + mBoxes[4 * i + 1] * side;
+            canvas.drawRect(boxLeft, boxTop, left + mBoxes[4 * i + 2] * side, top + mBoxes[4 * i + 3] * side, mBoxPaint);
+            canvas.drawText(mLabels[i], boxLeft + mBoxPaint.getStrokeWidth() * 2,
+                    boxTop - mTextPaint.ascent() + mBoxPaint.getStrokeWidth(), mTextPaint);
+        }
+    }
+
+}
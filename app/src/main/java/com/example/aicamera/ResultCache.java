@@ -0,0 +1,258 @@
+package com.example.aicamera;
+
+import java.util.Arrays;
+
+class ResultCache {
+
+    // CONSTANTS
+    static final int MISS = -1;
+    private static final int EMPTY = -1;
+
+    // VARIABLES
+    private final int mCapacity;
+    private final int[] mCounts;
+    private long mEvictions;
+    private long mExpirations;
+    private final long[] mExpiresNs;
+    private int mFreeSlot;
+    private int mHead = EMPTY;
+    private long mHits;
+    private final int[] mIndices;
+    private final int mK;
+    private final long[] mKeys;
+    private long mMisses;
+    private final int[] mNewer;
+    private final int[] mOlder;
+    private final float[] mScores;
+    private int mSize;
+    private final int[] mTable;
+    private final int mTableBits;
+    private int mTail = EMPTY;
+    private final int mTolerance;
+    private final long mTtlNs;
+    private final boolean[] mUsed;
+
+    // CONSTRUCTOR
+    // Holds up to capacity results of at most k labels each. A lookup also matches a key that differs in
+    // up to tolerance bits, and results older than ttlNs are dropped.
+    ResultCache(int capacity, int k, int tolerance, long ttlNs) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        mCapacity = capacity;
+        mK = k;
+        mTolerance = tolerance;
+        mTtlNs = ttlNs;
+
+        // entries live in fixed slots linked from most to least recently used
+        mKeys = new long[capacity];
+        mExpiresNs = new long[capacity];
+        mCounts = new int[capacity];
+        mIndices = new int[capacity * k];
+        mScores = new float[capacity * k];
+        mNewer = new int[capacity];
+        mOlder = new int[capacity];
+        mUsed = new boolean[capacity];
+
+        // open addressing index from key to slot, at most half full
+        int bits = 1;
+        while ((1 << bits) < 2 * capacity) {
+            bits++;
+        }
+        mTableBits = bits;
+        mTable = new int[1 << bits];
+        Arrays.fill(mTable, EMPTY);
+    }
+
+    // METHODS
+    synchronized void clear() {
+        Arrays.fill(mTable, EMPTY);
+        Arrays.fill(mUsed, false);
+        mHead = EMPTY;
+        mTail = EMPTY;
+        mSize = 0;
+        mFreeSlot = 0;
+    }
+
+    // Scans every entry for the key with the fewest differing bits, the cache is small enough for that.
+    private int findNearestSlot(long key) {
+        int best = EMPTY;
+        int bestDistance = mTolerance + 1;
+        for (int slot = 0; slot < mCapacity; slot++) {
+            if (mUsed[slot]) {
+                int distance = Long.bitCount(mKeys[slot] ^ key);
+                if (distance < bestDistance) {
+                    best = slot;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    private int findSlot(long key) {
+        int mask = mTable.length - 1;
+        for (int i = home(key); mTable[i] != EMPTY; i = (i + 1) & mask) {
+            if (mKeys[mTable[i]] == key) {
+                return mTable[i];
+            }
+        }
+        return EMPTY;
+    }
+
+    // Copies the cached labels and scores of the key, or of the closest key within the tolerance, into
+    // indices and scores and returns their count, or MISS.
+    synchronized int get(long key, long nowNs, int[] indices, float[] scores) {
+        int slot = findSlot(key);
+        if (slot == EMPTY && mTolerance > 0) {
+            slot = findNearestSlot(key);
+        }
+        if (slot != EMPTY && nowNs - mExpiresNs[slot] >= 0) {
+            remove(slot);
+            mExpirations++;
+            slot = EMPTY;
+        }
+        if (slot == EMPTY) {
+            mMisses++;
+            return MISS;
+        }
+        mHits++;
+        moveToHead(slot);
+        int count = mCounts[slot];
+        System.arraycopy(mIndices, slot * mK, indices, 0, count);
+        System.arraycopy(mScores, slot * mK, scores, 0, count);
+        return count;
+    }
+
+    synchronized long getEvictions() {
+        return mEvictions;
+    }
+
+    synchronized long getExpirations() {
+        return mExpirations;
+    }
+
+    synchronized long getHits() {
+        return mHits;
+    }
+
+    synchronized long getMisses() {
+        return mMisses;
+    }
+
+    private int home(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - mTableBits));
+    }
+
+    private void insertIntoTable(int slot) {
+        int mask = mTable.length - 1;
+        int i = home(mKeys[slot]);
+        while (mTable[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        mTable[i] = slot;
+    }
+
+    private void moveToHead(int slot) {
+        if (slot != mHead) {
+            unlink(slot);
+            pushHead(slot);
+        }
+    }
+
+    private void pushHead(int slot) {
+        mNewer[slot] = EMPTY;
+        mOlder[slot] = mHead;
+        if (mHead != EMPTY) {
+            mNewer[mHead] = slot;
+        }
+        mHead = slot;
+        if (mTail == EMPTY) {
+            mTail = slot;
+        }
+    }
+
+    // Stores the first count labels and scores under the key, evicting the least recently used entry when full.
+    synchronized void put(long key, long nowNs, int[] indices, float[] scores, int count) {
+        count = Math.min(count, mK);
+        int slot = findSlot(key);
+        if (slot == EMPTY) {
+            if (mSize == mCapacity) {
+                slot = mTail;
+                remove(slot);
+                mEvictions++;
+            } else {
+                slot = takeFreeSlot();
+            }
+            mKeys[slot] = key;
+            mUsed[slot] = true;
+            mSize++;
+            insertIntoTable(slot);
+            pushHead(slot);
+        } else {
+            moveToHead(slot);
+        }
+        mExpiresNs[slot] = nowNs + mTtlNs;
+        mCounts[slot] = count;
+        System.arraycopy(indices, 0, mIndices, slot * mK, count);
+        System.arraycopy(scores, 0, mScores, slot * mK, count);
+    }
+
+    private void remove(int slot) {
+        removeFromTable(slot);
+        unlink(slot);
+        mUsed[slot] = false;
+        mSize--;
+    }
+
+    // Backward shift deletion, so linear probing needs no tombstones.
+    private void removeFromTable(int slot) {
+        int mask = mTable.length - 1;
+        int i = home(mKeys[slot]);
+        while (mTable[i] != slot) {
+            i = (i + 1) & mask;
+        }
+        int j = i;
+        while (true) {
+            mTable[i] = EMPTY;
+            int k;
+            do {
+                j = (j + 1) & mask;
+                if (mTable[j] == EMPTY) {
+                    return;
+                }
+                k = home(mKeys[mTable[j]]);
+                // an entry whose home lies cyclically in (i, j] is still reachable and stays
+            } while ((i <= j) ? (i < k && k <= j) : (i < k || k <= j));
+            mTable[i] = mTable[j];
+            i = j;
+        }
+    }
+
+    synchronized int size() {
+        return mSize;
+    }
+
+    private int takeFreeSlot() {
+        while (mUsed[mFreeSlot]) {
+            mFreeSlot = (mFreeSlot + 1) % mCapacity;
+        }
+        return mFreeSlot;
+    }
+
+    private void unlink(int slot) {
+        int newer = mNewer[slot];
+        int older = mOlder[slot];
+        if (newer != EMPTY) {
+            mOlder[newer] = older;
+        } else {
+            mHead = older;
+        }
+        if (older != EMPTY) {
+            mNewer[older] = newer;
+        } else {
+            mTail = newer;
+        }
+    }
+
+}
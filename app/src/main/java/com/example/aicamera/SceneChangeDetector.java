@@ -0,0 +1,112 @@
+package com.example.aicamera;
+
+import java.nio.ByteBuffer;
+
+class SceneChangeDetector {
+
+    // VARIABLES
+    private final int[] mColumns;
+    private long mFrames;
+    private final int mGridSize;
+    private boolean mHasReference;
+    private int mLayoutHeight;
+    private int mLayoutRowStride;
+    private int mLayoutWidth;
+    private final long mMaxAgeNs;
+    private final int[] mReference;
+    private long mReferenceTimestampNs;
+    private final int[] mRows;
+    private final int mSamplesPerCell;
+    private long mSkippedFrames;
+    private final float mThreshold;
+    private final int[] mThumbnail;
+
+    // CONSTRUCTOR
+    // The frame is shrunk to gridSize x gridSize cells, each the sum of samplesPerCell x samplesPerCell luma
+    // samples. A frame has changed when its cells differ from the reference by more than threshold luma
+    // levels on average, or when the reference is older than maxAgeNs.
+    SceneChangeDetector(int gridSize, int samplesPerCell, float threshold, long maxAgeNs) {
+        mGridSize = gridSize;
+        mSamplesPerCell = samplesPerCell;
+        mThreshold = threshold;
+        mMaxAgeNs = maxAgeNs;
+        mThumbnail = new int[gridSize * gridSize];
+        mReference = new int[gridSize * gridSize];
+        mColumns = new int[gridSize * samplesPerCell];
+        mRows = new int[gridSize * samplesPerCell];
+    }
+
+    // METHODS
+    long getFrames() {
+        return mFrames;
+    }
+
+    // Mean absolute difference per luma sample between the thumbnail and the reference.
+    private float getDifference() {
+        long sum = 0;
+        for (int i = 0; i < mThumbnail.length; i++) {
+            sum += Math.abs(mThumbnail[i] - mReference[i]);
+        }
+        return (float) sum / (mThumbnail.length * mSamplesPerCell * mSamplesPerCell);
+    }
+
+    float getSkipRate() {
+        return (mFrames == 0) ? 0 : (float) mSkippedFrames / mFrames;
+    }
+
+    // Frames whose inference was saved since the scene had not changed.
+    long getSkippedFrames() {
+        return mSkippedFrames;
+    }
+
+    // Compares the luma plane with the last frame that was reported as changed, which becomes the new
+    // reference whenever this returns true. Slow drifts add up until they count as a change.
+    boolean hasChanged(ByteBuffer luma, int rowStride, int width, int height, long timestampNs) {
+        mFrames++;
+        shrink(luma, rowStride, width, height);
+        if (mHasReference && timestampNs - mReferenceTimestampNs < mMaxAgeNs && getDifference() <= mThreshold) {
+            mSkippedFrames++;
+            return false;
+        }
+        System.arraycopy(mThumbnail, 0, mReference, 0, mThumbnail.length);
+        mReferenceTimestampNs = timestampNs;
+        mHasReference = true;
+        return true;
+    }
+
+    // The next frame counts as changed, for instance after switching models.
+    void reset() {
+        mHasReference = false;
+    }
+
+    // Sums an evenly spaced grid of samples in every cell, the image is never read in full.
+    private void shrink(ByteBuffer luma, int rowStride, int width, int height) {
+        if (width != mLayoutWidth || height != mLayoutHeight || rowStride != mLayoutRowStride) {
+            // sample positions at the center of their share of the frame, computed once per frame size
+            for (int s = 0; s < mColumns.length; s++) {
+                mColumns[s] = (int) ((2L * s + 1) * width / (2L * mColumns.length));
+                mRows[s] = (int) ((2L * s + 1) * height / (2L * mRows.length)) * rowStride;
+            }
+            mLayoutWidth = width;
+            mLayoutHeight = height;
+            mLayoutRowStride = rowStride;
+        }
+        final int[] thumbnail = mThumbnail;
+        final int[] columns = mColumns;
+        final int samplesPerCell = mSamplesPerCell;
+        int cell = 0;
+        for (int cellY = 0; cellY < mGridSize; cellY++) {
+            for (int cellX = 0; cellX < mGridSize; cellX++) {
+                int sum = 0;
+                for (int sy = cellY * samplesPerCell; sy < (cellY + 1) * samplesPerCell; sy++) {
+                    final int rowOffset = mRows[sy];
+                    for (int sx = cellX * samplesPerCell; sx < (cellX + 1) * samplesPerCell; sx++) {
+                        sum += luma.get(rowOffset + columns[sx]) & 0xFF;
+                    }
+                }
+                thumbnail[cell++] = sum;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.example.aicamera;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+class StartupTrace {
+
+    interface Listener {
+        void onMilestone(String milestone, long elapsedMs);
+    }
+
+    // CONSTANTS
+    static final String MODEL_MAPPED = "model mapped";
+    static final String INTERPRETER_READY = "interpreter ready";
+    static final String FIRST_WARM_INFERENCE = "first warm inference";
+    static final String FIRST_LABEL = "first label displayed";
+
+    // VARIABLES
+    private final Listener mListener;
+    private final Map<String, Long> mMilestones = new HashMap<>();
+    private final long mStartNs;
+
+    // CONSTRUCTOR
+    // startNs is the System.nanoTime the milestones are measured from.
+    StartupTrace(long startNs, Listener listener) {
+        mStartNs = startNs;
+        mListener = listener;
+    }
+
+    // METHODS
+    // Milestones in milliseconds since the start, or -1 if not reached yet.
+    synchronized long getElapsedMs(String milestone) {
+        Long elapsedMs = mMilestones.get(milestone);
+        return (elapsedMs == null) ? -1 : elapsedMs;
+    }
+
+    // Only the first time a milestone is reached counts, later models and frames reach it again.
+    boolean mark(String milestone) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mStartNs);
+        synchronized (this) {
+            if (mMilestones.containsKey(milestone)) {
+                return false;
+            }
+            mMilestones.put(milestone, elapsedMs);
+        }
+        if (mListener != null) {
+            mListener.onMilestone(milestone, elapsedMs);
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.example.aicamera;
+
+class TileMerger {
+
+    // VARIABLES
+    private final float[] mBoxes;
+    private int mCount;
+    private final int[] mLabels;
+    private final int mMaxRegions;
+    private final float mMinConfidence;
+    private final int[] mParents;
+    private final float[] mScores;
+
+    // CONSTRUCTOR
+    // Tiles whose best score is at or under minConfidence are left out.
+    TileMerger(int maxTiles, int maxRegions, float minConfidence) {
+        mMaxRegions = maxRegions;
+        mMinConfidence = minConfidence;
+        mParents = new int[maxTiles];
+        mLabels = new int[maxTiles];
+        mScores = new float[maxTiles];
+        mBoxes = new float[4 * maxTiles];
+    }
+
+    // METHODS
+    private int find(int tile) {
+        while (mParents[tile] != tile) {
+            mParents[tile] = mParents[mParents[tile]];
+            tile = mParents[tile];
+        }
+        return tile;
+    }
+
+    // {left, top, right, bottom} of every region relative to the center region, see MultiCrop.
+    float[] getBoxes() {
+        return mBoxes;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    int getLabel(int region) {
+        return mLabels[region];
+    }
+
+    float getScore(int region) {
+        return mScores[region];
+    }
+
+    // Joins neighbouring tiles of a gridSize x gridSize grid that agree on their best label into one region
+    // spanning them all, scored by its best tile, and keeps the most confident regions first.
+    int merge(MultiCrop tiles, int gridSize, int[] labels, float[] scores) {
+        final int count = gridSize * gridSize;
+        for (int tile = 0; tile < count; tile++) {
+            mParents[tile] = tile;
+        }
+        for (int tile = 0; tile < count; tile++) {
+            if (scores[tile] <= mMinConfidence) {
+                continue;
+            }
+            int column = tile % gridSize;
+            if (column + 1 < gridSize && labels[tile + 1] == labels[tile] && scores[tile + 1] > mMinConfidence) {
+                mParents[find(tile + 1)] = find(tile);
+            }
+            if (tile + gridSize < count && labels[tile + gridSize] == labels[tile]
+                    && scores[tile + gridSize] > mMinConfidence) {
+                mParents[find(tile + gridSize)] = find(tile);
+            }
+        }
+
+        // one region per root, spanning the tiles of its set
+        final float[] crops = tiles.getCrops();
+        mCount = 0;
+        for (int tile = 0; tile < count; tile++) {
+            if (scores[tile] <= mMinConfidence || find(tile) != tile) {
+                continue;
+            }
+            float left = Float.MAX_VALUE;
+            float top = Float.MAX_VALUE;
+            float right = -Float.MAX_VALUE;
+            float bottom = -Float.MAX_VALUE;
+            float best = 0;
+            for (int member = 0; member < count; member++) {
+                if (scores[member] <= mMinConfidence || find(member) != tile) {
+                    continue;
+                }
+                float size = crops[3 * member + 2];
+                left = Math.min(left, crops[3 * member]);
+                top = Math.min(top, crops[3 * member + 1]);
+                right = Math.max(right, crops[3 * member] + size);
+                bottom = Math.max(bottom, crops[3 * member + 1] + size);
+                best = Math.max(best, scores[member]);
+            }
+            // insertion into the regions sorted by score
+            int position = mCount;
+            while (position > 0 && mScores[position - 1] < best) {
+                position--;
+            }
+            if (position >= mMaxRegions) {
+                continue;
+            }
+            int last = Math.min(mCount, mMaxRegions - 1);
+            for (int i = last; i > position; i--) {
+                mLabels[i] = mLabels[i - 1];
+                mScores[i] = mScores[i - 1];
+                System.arraycopy(mBoxes, 4 * (i - 1), mBoxes, 4 * i, 4);
+            }
+            mLabels[position] = labels[tile];
+            mScores[position] = best;
+            mBoxes[4 * position] = left;
+            mBoxes[4 * position + 1] = top;
+            mBoxes[4 * position + 2] = right;
+            mBoxes[4 * position + 3] = bottom;
+            mCount = Math.min(mCount + 1, mMaxRegions);
+        }
+        return mCount;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.example.aicamera;
+
+class TileScheduler {
+
+    // CONSTANTS
+    // Growing the grid needs this much headroom, so that the size does not flip every frame.
+    private static final float GROW_HEADROOM = 0.8f;
+
+    // VARIABLES
+    private final float mAlpha;
+    private int mGridSize = 1;
+    private final int mMaxGridSize;
+    private float mTileNs;
+    private final long mTargetNs;
+
+    // CONSTRUCTOR
+    // Picks a grid between 1x1 and maxGridSize x maxGridSize tiles so that one batched inference takes at
+    // most targetNs. alpha weighs the newest latency in the moving average of the time per tile.
+    TileScheduler(int maxGridSize, long targetNs, float alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]");
+        }
+        mMaxGridSize = maxGridSize;
+        mTargetNs = targetNs;
+        mAlpha = alpha;
+    }
+
+    // METHODS
+    int getGridSize() {
+        return mGridSize;
+    }
+
+    // Folds the latency of an inference over the current grid into the average and returns the grid size
+    // for the next one. A grid shrinks as soon as it is too slow and grows only with headroom to spare.
+    int update(long latencyNs) {
+        float tileNs = (float) latencyNs / (mGridSize * mGridSize);
+        mTileNs = (mTileNs == 0) ? tileNs : mTileNs + mAlpha * (tileNs - mTileNs);
+        while (mGridSize > 1 && mGridSize * mGridSize * mTileNs > mTargetNs) {
+            mGridSize--;
+        }
+        while (mGridSize < mMaxGridSize && (mGridSize + 1) * (mGridSize + 1) * mTileNs <= GROW_HEADROOM * mTargetNs) {
+            mGridSize++;
+        }
+        return mGridSize;
+    }
+
+}
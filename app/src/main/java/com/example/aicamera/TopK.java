@@ -0,0 +1,115 @@
+package com.example.aicamera;
+
+class TopK {
+
+    // VARIABLES
+    private final int[] mIndices;
+    private final float[] mScores;
+    private int mSize;
+
+    // CONSTRUCTOR
+    TopK(int maxK) {
+        mIndices = new int[maxK];
+        mScores = new float[maxK];
+    }
+
+    // METHODS
+    private void checkK(int k) {
+        if (k < 1 || k > mIndices.length) {
+            throw new IllegalArgumentException("k must be between 1 and " + mIndices.length + ": " + k);
+        }
+    }
+
+    int getIndex(int rank) {
+        return mIndices[rank];
+    }
+
+    float getScore(int rank) {
+        return mScores[rank];
+    }
+
+    // Heap order: lower score first, on equal scores the later index first so the earliest one survives.
+    private boolean less(int a, int b) {
+        return mScores[a] < mScores[b] || (mScores[a] == mScores[b] && mIndices[a] > mIndices[b]);
+    }
+
+    private void offer(int index, float score, int k) {
+        if (mSize < k) {
+            int child = mSize++;
+            mIndices[child] = index;
+            mScores[child] = score;
+            while (child > 0) {
+                int parent = (child - 1) >> 1;
+                if (!less(child, parent)) {
+                    break;
+                }
+                swap(child, parent);
+                child = parent;
+            }
+        } else if (score > mScores[0]) {
+            mIndices[0] = index;
+            mScores[0] = score;
+            siftDown(0, mSize);
+        }
+    }
+
+    // Keeps the k highest scores in a min-heap in a single pass, then sorts them in descending order.
+    int select(float[] scores, int k) {
+        checkK(k);
+        mSize = 0;
+        for (int i = 0; i < scores.length; i++) {
+            offer(i, scores[i], k);
+        }
+        sortDescending();
+        return mSize;
+    }
+
+    // Same as select(float[], int) for unsigned quantized scores.
+    int select(byte[] scores, int k) {
+        checkK(k);
+        mSize = 0;
+        for (int i = 0; i < scores.length; i++) {
+            offer(i, scores[i] & 0xFF, k);
+        }
+        sortDescending();
+        return mSize;
+    }
+
+    private void siftDown(int parent, int size) {
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(child + 1, child)) {
+                child++;
+            }
+            if (!less(child, parent)) {
+                break;
+            }
+            swap(child, parent);
+            parent = child;
+        }
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    private void sortDescending() {
+        for (int end = mSize - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    private void swap(int a, int b) {
+        int index = mIndices[a];
+        mIndices[a] = mIndices[b];
+        mIndices[b] = index;
+        float score = mScores[a];
+        mScores[a] = mScores[b];
+        mScores[b] = score;
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.example.aicamera;
+
+import java.nio.ByteBuffer;
+
+class YuvConverter {
+
+    // CONSTANTS
+    private static final float[] CENTER_CROP = {0f, 0f, 1f};
+
+    // VARIABLES
+    private final float[] mCrops;
+    private int mCropCount;
+    private int mHeight = -1;
+    private final int mMaxCrops;
+    private final int mOutputHeight;
+    private final int mOutputWidth;
+    private int mRotation = -1;
+    private final int[] mRow;
+    private final int[] mUvColumnOffsets;
+    private int mUvPixelStride = -1;
+    private final int[] mUvRowOffsets;
+    private int mUvRowStride = -1;
+    private int mWidth = -1;
+    private final int[] mYColumnOffsets;
+    private final int[] mYRowOffsets;
+    private int mYRowStride = -1;
+
+    // CONSTRUCTOR
+    YuvConverter(int outputWidth, int outputHeight) {
+        this(outputWidth, outputHeight, 1);
+    }
+
+    YuvConverter(int outputWidth, int outputHeight, int maxCrops) {
+        mOutputWidth = outputWidth;
+        mOutputHeight = outputHeight;
+        mMaxCrops = maxCrops;
+        mCrops = new float[3 * maxCrops];
+        mRow = new int[outputWidth];
+        // The sampling position of an output pixel is a row term plus a column term for every rotation.
+        mYRowOffsets = new int[maxCrops * outputHeight];
+        mYColumnOffsets = new int[maxCrops * outputWidth];
+        mUvRowOffsets = new int[maxCrops * outputHeight];
+        mUvColumnOffsets = new int[maxCrops * outputWidth];
+    }
+
+    // METHODS
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    // Crops the center of the rotated frame, downsamples it and writes normalized RGB into the preprocessor in one pass.
+    ByteBuffer convert(ByteBuffer yPlane, ByteBuffer uPlane, ByteBuffer vPlane, int yRowStride, int uvRowStride,
+                       int uvPixelStride, int width, int height, int rotation, Preprocessor preprocessor) {
+        return convert(yPlane, uPlane, vPlane, yRowStride, uvRowStride, uvPixelStride, width, height, rotation,
+                CENTER_CROP, 1, preprocessor);
+    }
+
+    // Same as above for several crops, each written into its own batch slot. A crop is a (left, top, scale)
+    // triple relative to the center region: scale 1 is the whole region, left and top are fractions of it.
+    ByteBuffer convert(ByteBuffer yPlane, ByteBuffer uPlane, ByteBuffer vPlane, int yRowStride, int uvRowStride,
+                       int uvPixelStride, int width, int height, int rotation, float[] crops, int cropCount,
+                       Preprocessor preprocessor) {
+        if (cropCount < 1 || cropCount > mMaxCrops) {
+            throw new IllegalArgumentException("Crop count must be between 1 and " + mMaxCrops + ": " + cropCount);
+        }
+        if (width != mWidth || height != mHeight || rotation != mRotation || yRowStride != mYRowStride
+                || uvRowStride != mUvRowStride || uvPixelStride != mUvPixelStride || !sameCrops(crops, cropCount)) {
+            setupSampling(yRowStride, uvRowStride, uvPixelStride, width, height, rotation, crops, cropCount);
+        }
+
+        final int[] row = mRow;
+        preprocessor.beginFrame();
+        for (int c = 0; c < cropCount; c++) {
+            for (int i = 0; i < mOutputHeight; ++i) {
+                final int yRow = mYRowOffsets[c * mOutputHeight + i];
+                final int uvRow = mUvRowOffsets[c * mOutputHeight + i];
+                final int columns = c * mOutputWidth;
+                for (int j = 0; j < mOutputWidth; ++j) {
+                    final int uvIndex = uvRow + mUvColumnOffsets[columns + j];
+                    final int y = yPlane.get(yRow + mYColumnOffsets[columns + j]) & 0xFF;
+                    final int u = (uPlane.get(uvIndex) & 0xFF) - 128;
+                    final int v = (vPlane.get(uvIndex) & 0xFF) - 128;
+
+                    // BT.601 full range, 16-bit fixed point
+                    final int r = clamp(y + ((91881 * v) >> 16));
+                    final int g = clamp(y - ((22554 * u + 46802 * v) >> 16));
+                    final int b = clamp(y + ((116130 * u) >> 16));
+                    row[j] = 0xFF000000 | (r << 16) | (g << 8) | b;
+                }
+                preprocessor.putRow(row, 0);
+            }
+        }
+        return preprocessor.endFrame();
+    }
+
+    private boolean sameCrops(float[] crops, int cropCount) {
+        if (cropCount != mCropCount) {
+            return false;
+        }
+        for (int i = 0; i < 3 * cropCount; i++) {
+            if (crops[i] != mCrops[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Precomputes, for every output row and column of every crop, where to sample the Y and the U/V planes.
+    private void setupSampling(int yRowStride, int uvRowStride, int uvPixelStride, int width, int height, int rotation,
+                               float[] crops, int cropCount) {
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+        }
+        int degrees = (rotation % 360 + 360) % 360;
+        boolean swap = degrees == 90 || degrees == 270;
+        int rotatedWidth = swap ? height : width;
+        int rotatedHeight = swap ? width : height;
+
+        // largest centered region with the output aspect ratio
+        float regionScale = Math.min((float) rotatedWidth / mOutputWidth, (float) rotatedHeight / mOutputHeight);
+        float regionLeft = (rotatedWidth - mOutputWidth * regionScale) / 2;
+        float regionTop = (rotatedHeight - mOutputHeight * regionScale) / 2;
+
+        for (int c = 0; c < cropCount; c++) {
+            float scale = regionScale * crops[3 * c + 2];
+            float left = regionLeft + crops[3 * c] * mOutputWidth * regionScale;
+            float top = regionTop + crops[3 * c + 1] * mOutputHeight * regionScale;
+
+            for (int i = 0; i < mOutputHeight; ++i) {
+                int ry = Math.min((int) (top + (i + 0.5f) * scale), rotatedHeight - 1);
+                int index = c * mOutputHeight + i;
+                switch (degrees) {
+                    case 90: {
+                        // source x = ry
+                        mYRowOffsets[index] = ry;
+                        mUvRowOffsets[index] = (ry >> 1) * uvPixelStride;
+                        break;
+                    }
+                    case 180: {
+                        // source y = height - 1 - ry
+                        mYRowOffsets[index] = (height - 1 - ry) * yRowStride;
+                        mUvRowOffsets[index] = ((height - 1 - ry) >> 1) * uvRowStride;
+                        break;
+                    }
+                    case 270: {
+                        // source x = width - 1 - ry
+                        mYRowOffsets[index] = width - 1 - ry;
+                        mUvRowOffsets[index] = ((width - 1 - ry) >> 1) * uvPixelStride;
+                        break;
+                    }
+                    default: {
+                        // source y = ry
+                        mYRowOffsets[index] = ry * yRowStride;
+                        mUvRowOffsets[index] = (ry >> 1) * uvRowStride;
+                        break;
+                    }
+                }
+            }
+
+            for (int j = 0; j < mOutputWidth; ++j) {
+                int rx = Math.min((int) (left + (j + 0.5f) * scale), rotatedWidth - 1);
+                int index = c * mOutputWidth + j;
+                switch (degrees) {
+                    case 90: {
+                        // source y = height - 1 - rx
+                        mYColumnOffsets[index] = (height - 1 - rx) * yRowStride;
+                        mUvColumnOffsets[index] = ((height - 1 - rx) >> 1) * uvRowStride;
+                        break;
+                    }
+                    case 180: {
+                        // source x = width - 1 - rx
+                        mYColumnOffsets[index] = width - 1 - rx;
+                        mUvColumnOffsets[index] = ((width - 1 - rx) >> 1) * uvPixelStride;
+                        break;
+                    }
+                    case 270: {
+                        // source y = rx
+                        mYColumnOffsets[index] = rx * yRowStride;
+                        mUvColumnOffsets[index] = (rx >> 1) * uvRowStride;
+                        break;
+                    }
+                    default: {
+                        // source x = rx
+                        mYColumnOffsets[index] = rx;
+                        mUvColumnOffsets[index] = (rx >> 1) * uvPixelStride;
+                        break;
+                    }
+                }
+            }
+        }
+
+        System.arraycopy(crops, 0, mCrops, 0, 3 * cropCount);
+        mCropCount = cropCount;
+        mWidth = width;
+        mHeight = height;
+        mRotation = rotation;
+        mYRowStride = yRowStride;
+        mUvRowStride = uvRowStride;
+        mUvPixelStride = uvPixelStride;
+    }
+
+}
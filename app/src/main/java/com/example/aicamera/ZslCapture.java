@@ -0,0 +1,214 @@
+package com.example.aicamera;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.util.Size;
+import android.view.Surface;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+class ZslCapture {
+
+    // CONSTANTS
+    private static final String TAG = "ZslCapture";
+    private static final int JPEG_QUALITY = 95;
+    // every 8th pixel in both directions is enough to compare the focus of frames of one scene
+    private static final int SHARPNESS_STEP = 8;
+    private static final AutoCloseable NO_SOURCE = new AutoCloseable() {
+        @Override
+        public void close() {
+        }
+    };
+
+    // VARIABLES
+    private int mDropped;
+    private final Handler mHandler;
+    private final int mHeight;
+    private final ImageReader mImageReader;
+    private final int mMode;
+    private final ImageReader.OnImageAvailableListener mOnImageAvailableListener = new ImageReader.OnImageAvailableListener() {
+        @Override
+        public void onImageAvailable(ImageReader reader) {
+            Image image = reader.acquireLatestImage();
+            if (image == null) {
+                return;
+            }
+            try {
+                ZslRing.Frame frame = mRing.obtain();
+                if (frame == null) {
+                    mDropped++;
+                    return;
+                }
+                copyToNv21(image, frame.getData());
+                mRing.commit(frame, image.getTimestamp(),
+                        ZslRing.sharpness(frame.getData(), 0, mWidth, mWidth, mHeight, SHARPNESS_STEP));
+            } finally {
+                image.close();
+            }
+        }
+    };
+    private final boolean mRealtimeTimestamps;
+    private final ZslRing mRing;
+    private final HandlerThread mThread;
+    private byte[] mURow;
+    private byte[] mVRow;
+    private final int mWidth;
+    private final long mWindowNs;
+
+    // CONSTRUCTOR
+    // Copies every full-resolution frame of size into a ring of at most maxFrames reused NV21 buffers within
+    // memoryCap bytes, on a thread of its own that also encodes the frames taken. realtimeTimestamps tells
+    // whether the camera stamps its frames with SystemClock.elapsedRealtimeNanos(), otherwise the shutter
+    // takes the newest frames.
+    ZslCapture(Size size, int maxFrames, long memoryCap, int mode, long windowNs, boolean realtimeTimestamps) {
+        mWidth = size.getWidth();
+        mHeight = size.getHeight();
+        mMode = mode;
+        mWindowNs = windowNs;
+        mRealtimeTimestamps = realtimeTimestamps;
+        mRing = new ZslRing(maxFrames, memoryCap, mWidth * mHeight * 3 / 2);
+        Log.i(TAG, String.format(Locale.US, "%d frames of %dx%d in %d MB", mRing.getCapacity(),
+                mWidth, mHeight, mRing.getMemory() >> 20));
+        mThread = new HandlerThread("ZSL thread");
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        // one image being copied and one arriving
+        mImageReader = ImageReader.newInstance(mWidth, mHeight, ImageFormat.YUV_420_888, 2);
+        mImageReader.setOnImageAvailableListener(mOnImageAvailableListener, mHandler);
+    }
+
+    // METHODS
+    // Stops copying after the frames being encoded, then releases the buffers.
+    void close() {
+        mThread.quitSafely();
+        try {
+            mThread.join();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        mImageReader.close();
+        Log.i(TAG, "Dropped " + mDropped + " frames while every buffer was being encoded");
+    }
+
+    // Writes the image as NV21: the luma rows, then the rows of interleaved V and U samples. Those are copied
+    // a row at a time when the camera interleaves them already, one sample at a time otherwise.
+    private void copyToNv21(Image image, ByteBuffer out) {
+        Image.Plane[] planes = image.getPlanes();
+        ByteBuffer y = planes[0].getBuffer();
+        int yRowStride = planes[0].getRowStride();
+        for (int row = 0; row < mHeight; row++) {
+            y.limit(row * yRowStride + mWidth);
+            y.position(row * yRowStride);
+            out.put(y);
+        }
+        ByteBuffer u = planes[1].getBuffer();
+        ByteBuffer v = planes[2].getBuffer();
+        int uvRowStride = planes[1].getRowStride();
+        int uvPixelStride = planes[1].getPixelStride();
+        if (uvPixelStride == 2 && isInterleavedVu(u, v)) {
+            // the V plane already holds the rows of VU pairs, only the last U sample lies past its end
+            int vLimit = v.limit();
+            for (int row = 0; row < mHeight / 2; row++) {
+                int start = row * uvRowStride;
+                int end = Math.min(start + mWidth, vLimit);
+                v.limit(end);
+                v.position(start);
+                out.put(v);
+                if (end - start < mWidth) {
+                    out.put(u.get(start + mWidth - 2));
+                }
+            }
+            return;
+        }
+        int rowLength = (mWidth / 2 - 1) * uvPixelStride + 1;
+        if (mURow == null || mURow.length < rowLength) {
+            mURow = new byte[rowLength];
+            mVRow = new byte[rowLength];
+        }
+        for (int row = 0; row < mHeight / 2; row++) {
+            u.position(row * uvRowStride);
+            u.get(mURow, 0, rowLength);
+            v.position(row * uvRowStride);
+            v.get(mVRow, 0, rowLength);
+            for (int i = 0; i < rowLength; i += uvPixelStride) {
+                out.put(mVRow[i]);
+                out.put(mURow[i]);
+            }
+        }
+    }
+
+    Surface getSurface() {
+        return mImageReader.getSurface();
+    }
+
+    // Whether the memory cap leaves room for at least one frame.
+    boolean isAvailable() {
+        return mRing.getCapacity() > 0;
+    }
+
+    // Whether the U samples of the image lie in between the V samples of the same memory, the NV21 layout
+    // most cameras produce: a byte flipped through V shows through U.
+    private static boolean isInterleavedVu(ByteBuffer u, ByteBuffer v) {
+        if (v.isReadOnly() || v.limit() < 2 || u.limit() < 1) {
+            return false;
+        }
+        byte saved = v.get(1);
+        byte flipped = (byte) ~saved;
+        v.put(1, flipped);
+        boolean shared = u.get(0) == flipped;
+        v.put(1, saved);
+        return shared;
+    }
+
+    // Encodes the frame for a shutter pressed at pressRealtimeNs into the capture, tagged with the rotation
+    // to display it. False if no frame is ready.
+    boolean take(final CaptureWriter writer, final CaptureWriter.Capture capture, long pressRealtimeNs,
+                 final int rotation) {
+        long press = mRealtimeTimestamps ? pressRealtimeNs : mRing.getNewestTimestamp();
+        final ZslRing.Frame frame = mRing.acquire(press, mWindowNs, mMode);
+        if (frame == null) {
+            return false;
+        }
+        final long timestamp = frame.getTimestamp();
+        capture.setTimestamp(timestamp);
+        boolean posted = mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                byte[] jpeg;
+                try {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(mRing.getFrameBytes() / 4);
+                    boolean compressed;
+                    try {
+                        compressed = new YuvImage(frame.getData().array(), ImageFormat.NV21, mWidth, mHeight,
+                                null).compressToJpeg(new Rect(0, 0, mWidth, mHeight), JPEG_QUALITY, out);
+                    } finally {
+                        mRing.release(frame);
+                    }
+                    jpeg = compressed ? JpegMetadata.withOrientation(out.toByteArray(), out.size(), rotation) : null;
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    jpeg = null;
+                }
+                if (jpeg == null) {
+                    // frees the room of the capture, so that a failed frame does not hold off the next photos
+                    writer.cancel(capture);
+                    return;
+                }
+                writer.write(timestamp, ByteBuffer.wrap(jpeg), NO_SOURCE);
+            }
+        });
+        if (!posted) {
+            mRing.release(frame);
+        }
+        return posted;
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.example.aicamera;
+
+import java.nio.ByteBuffer;
+
+class ZslRing {
+
+    // CONSTANTS
+    static final int NEAREST = 0;
+    static final int SHARPEST = 1;
+    private static final int FREE = 0;
+    private static final int WRITING = 1;
+    private static final int READY = 2;
+    private static final int LOCKED = 3;
+
+    // VARIABLES
+    private final int mFrameBytes;
+    private final Frame[] mFrames;
+
+    // CONSTRUCTOR
+    // Keeps the last frames of frameBytes each, as many as maxFrames but no more than fit in memoryCap bytes.
+    // The buffers are allocated once and reused for every frame. None if a single frame does not fit.
+    ZslRing(int maxFrames, long memoryCap, int frameBytes) {
+        mFrameBytes = frameBytes;
+        int capacity = (int) Math.min(maxFrames, memoryCap / frameBytes);
+        mFrames = new Frame[Math.max(0, capacity)];
+        for (int i = 0; i < mFrames.length; i++) {
+            mFrames[i] = new Frame(ByteBuffer.allocate(frameBytes));
+        }
+    }
+
+    // METHODS
+    // The frame to use for a shutter pressed at pressTimestamp, on the clock of the frame timestamps, locked
+    // until released. NEAREST takes the frame taken closest to the press. SHARPEST takes the sharpest of
+    // the frames taken within windowNs of it, or the nearest if none was. Null if no frame is ready.
+    synchronized Frame acquire(long pressTimestamp, long windowNs, int mode) {
+        Frame nearest = null;
+        Frame sharpest = null;
+        for (Frame frame : mFrames) {
+            if (frame.mState != READY) {
+                continue;
+            }
+            long distance = Math.abs(frame.mTimestamp - pressTimestamp);
+            if (nearest == null || distance < Math.abs(nearest.mTimestamp - pressTimestamp)) {
+                nearest = frame;
+            }
+            if (distance <= windowNs && (sharpest == null || frame.mSharpness > sharpest.mSharpness)) {
+                sharpest = frame;
+            }
+        }
+        Frame frame = (mode == SHARPEST && sharpest != null) ? sharpest : nearest;
+        if (frame != null) {
+            frame.mState = LOCKED;
+        }
+        return frame;
+    }
+
+    // Makes the frame filled since obtain available, with the sharpness of its content.
+    synchronized void commit(Frame frame, long timestamp, float sharpness) {
+        frame.mTimestamp = timestamp;
+        frame.mSharpness = sharpness;
+        frame.mState = READY;
+    }
+
+    int getCapacity() {
+        return mFrames.length;
+    }
+
+    int getFrameBytes() {
+        return mFrameBytes;
+    }
+
+    // Bytes held by the buffers of the ring.
+    long getMemory() {
+        return (long) mFrameBytes * mFrames.length;
+    }
+
+    // Timestamp of the last committed frame that is still in the ring, -1 if none.
+    synchronized long getNewestTimestamp() {
+        long newest = -1;
+        for (Frame frame : mFrames) {
+            if ((frame.mState == READY || frame.mState == LOCKED) && frame.mTimestamp > newest) {
+                newest = frame.mTimestamp;
+            }
+        }
+        return newest;
+    }
+
+    // The buffer to copy the next frame into, cleared: a free one or the oldest ready one. Null while every
+    // frame is locked, the new frame is then dropped.
+    synchronized Frame obtain() {
+        Frame oldest = null;
+        for (Frame frame : mFrames) {
+            if (frame.mState == FREE) {
+                oldest = frame;
+                break;
+            }
+            if (frame.mState == READY && (oldest == null || frame.mTimestamp < oldest.mTimestamp)) {
+                oldest = frame;
+            }
+        }
+        if (oldest != null) {
+            oldest.mState = WRITING;
+            oldest.mData.clear();
+        }
+        return oldest;
+    }
+
+    // Gives a frame back to the ring once its content is used. A frame obtained but not committed is freed.
+    synchronized void release(Frame frame) {
+        frame.mState = (frame.mState == LOCKED) ? READY : FREE;
+    }
+
+    // Mean squared gradient of the luma, sampled every step pixels in both directions: a cheap focus metric
+    // that grows with the contrast of the edges, comparable between frames of the same scene.
+    static float sharpness(ByteBuffer luma, int offset, int rowStride, int width, int height, int step) {
+        long sum = 0;
+        int count = 0;
+        for (int y = 0; y + 1 < height; y += step) {
+            int row = offset + y * rowStride;
+            for (int x = 0; x + 1 < width; x += step) {
+                int value = luma.get(row + x) & 0xFF;
+                int dx = (luma.get(row + x + 1) & 0xFF) - value;
+                int dy = (luma.get(row + rowStride + x) & 0xFF) - value;
+                sum += dx * dx + dy * dy;
+                count++;
+            }
+        }
+        return (count == 0) ? 0 : (float) sum / count;
+    }
+
+    static class Frame {
+
+        // VARIABLES
+        private final ByteBuffer mData;
+        private float mSharpness;
+        private int mState = FREE;
+        private long mTimestamp;
+
+        // CONSTRUCTOR
+        private Frame(ByteBuffer data) {
+            mData = data;
+        }
+
+        // METHODS
+        // The reused buffer of the frame, backed by an array.
+        ByteBuffer getData() {
+            return mData;
+        }
+
+        float getSharpness() {
+            return mSharpness;
+        }
+
+        long getTimestamp() {
+            return mTimestamp;
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.example.aicamera;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorflow.lite.Interpreter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BackendTunerTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    // Trials that sleep ten milliseconds per thread of the backend, and fail for NNAPI and GPU.
+    private static final BackendTuner.TrialFactory SLEEPING_TRIALS = new BackendTuner.TrialFactory() {
+        @Override
+        public BackendTuner.Trial open(final Backend backend) throws IOException {
+            if (backend.getType() == Backend.NNAPI) {
+                throw new IOException("No NNAPI");
+            }
+            return new BackendTuner.Trial() {
+                @Override
+                public void run() {
+                    if (backend.getType() == Backend.GPU) {
+                        throw new IllegalArgumentException("Delegate failed");
+                    }
+                    try {
+                        Thread.sleep(backend.getNumThreads() * 10L);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    };
+
+    @Test
+    public void backend_roundTripsThroughText() {
+        Backend backend = new Backend(Backend.XNNPACK, 4);
+        assertEquals("xnnpack:4", backend.toString());
+        assertEquals(backend, Backend.parse("xnnpack:4"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void backend_rejectsUnknownType() {
+        Backend.parse("tpu:1");
+    }
+
+    @Test
+    public void candidates_coverThreadCountsAndAccelerators() {
+        List<Backend> candidates = BackendTuner.candidates(2, true, false);
+        assertEquals(Arrays.asList(
+                new Backend(Backend.CPU, 1), new Backend(Backend.CPU, 2),
+                new Backend(Backend.XNNPACK, 1), new Backend(Backend.XNNPACK, 2),
+                new Backend(Backend.NNAPI, 1)), candidates);
+    }
+
+    @Test
+    public void interpreterTrials_skipGpuAndBackendsTheRuntimeRejects() {
+        final List<Backend> opened = new ArrayList<>();
+        // a runtime that cannot run the model with XNNPACK, and runs it slower with more threads
+        BackendTuner.Interpreters interpreters = new BackendTuner.Interpreters() {
+            @Override
+            public BackendTuner.Trial open(ByteBuffer model, Backend backend, Interpreter.Options options)
+                    throws IOException {
+                assertNotNull(options);
+                opened.add(backend);
+                if (backend.getType() == Backend.XNNPACK) {
+                    throw new IllegalArgumentException("Unsupported op");
+                }
+                return SLEEPING_TRIALS.open(backend);
+            }
+        };
+        BackendTuner tuner = new BackendTuner(BackendTuner.interpreterTrials(ByteBuffer.allocate(4), interpreters),
+                1, 2);
+        BackendTuner.Result result = tuner.tune(BackendTuner.candidates(2, false, true));
+        assertEquals(new Backend(Backend.CPU, 1), result.getBackend());
+        // the GPU never reaches the runtime
+        assertEquals(Arrays.asList(
+                new Backend(Backend.CPU, 1), new Backend(Backend.CPU, 2),
+                new Backend(Backend.XNNPACK, 1), new Backend(Backend.XNNPACK, 2)), opened);
+    }
+
+    @Test
+    public void modelKey_changesWithAssetSizeAndVersion() {
+        String key = BackendTuner.modelKey("mobilenet.tflite", 4276000, 1);
+        assertEquals(key, BackendTuner.modelKey("mobilenet.tflite", 4276000, 1));
+        assertNotEquals(key, BackendTuner.modelKey("efficientnet.tflite", 4276000, 1));
+        assertNotEquals(key, BackendTuner.modelKey("mobilenet.tflite", 4276001, 1));
+        assertNotEquals(key, BackendTuner.modelKey("mobilenet.tflite", 4276000, 2));
+    }
+
+    @Test
+    public void percentile_usesNearestRank() {
+        long[] sorted = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        assertEquals(5, BackendTuner.percentile(sorted, 50));
+        assertEquals(10, BackendTuner.percentile(sorted, 95));
+        assertEquals(1, BackendTuner.percentile(new long[]{1}, 50));
+    }
+
+    @Test
+    public void tune_picksFastestAndSkipsUnavailable() {
+        BackendTuner tuner = new BackendTuner(SLEEPING_TRIALS, 1, 3);
+        BackendTuner.Result result = tuner.tune(Arrays.asList(
+                new Backend(Backend.CPU, 3), new Backend(Backend.NNAPI, 1),
+                new Backend(Backend.XNNPACK, 1), new Backend(Backend.GPU, 1)));
+        assertNotNull(result);
+        assertEquals(new Backend(Backend.XNNPACK, 1), result.getBackend());
+        assertTrue(result.getP50Ms() >= 10f);
+        assertTrue(result.getP95Ms() >= result.getP50Ms());
+    }
+
+    @Test
+    public void tune_returnsNullWhenNothingRuns() {
+        BackendTuner tuner = new BackendTuner(SLEEPING_TRIALS, 1, 1);
+        assertNull(tuner.tune(Arrays.asList(new Backend(Backend.NNAPI, 1), new Backend(Backend.GPU, 1))));
+    }
+
+    @Test
+    public void select_tunesOnceAndStoresTheResult() throws IOException {
+        final List<Backend> opened = new ArrayList<>();
+        BackendTuner.TrialFactory counting = new BackendTuner.TrialFactory() {
+            @Override
+            public BackendTuner.Trial open(Backend backend) throws IOException {
+                opened.add(backend);
+                return SLEEPING_TRIALS.open(backend);
+            }
+        };
+        File file = new File(mFolder.getRoot(), "backends.properties");
+        List<Backend> candidates = Arrays.asList(new Backend(Backend.CPU, 2), new Backend(Backend.CPU, 1));
+        BackendTuner tuner = new BackendTuner(counting, 1, 1);
+        assertEquals(new Backend(Backend.CPU, 1),
+                tuner.select(new BackendStore(file), "Pixel 4", "m:1:1", candidates).getBackend());
+        assertEquals(2, opened.size());
+
+        assertEquals(new Backend(Backend.CPU, 1),
+                tuner.select(new BackendStore(file), "Pixel 4", "m:1:1", candidates).getBackend());
+        assertEquals(2, opened.size());
+    }
+
+    @Test
+    public void select_storesNothingWhenNothingRuns() {
+        File file = new File(mFolder.getRoot(), "backends.properties");
+        BackendTuner tuner = new BackendTuner(SLEEPING_TRIALS, 1, 1);
+        assertNull(tuner.select(new BackendStore(file), "Pixel 4", "m:1:1",
+                Arrays.asList(new Backend(Backend.NNAPI, 1), new Backend(Backend.GPU, 1))));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void store_persistsResultsPerDeviceAndModel() throws IOException {
+        File file = new File(mFolder.getRoot(), "backends.properties");
+        BackendStore store = new BackendStore(file);
+        assertNull(store.get("Pixel 4", "abc"));
+        store.put("Pixel 4", "abc", new BackendTuner.Result(new Backend(Backend.GPU, 1), 4.5f, 6.25f));
+
+        BackendTuner.Result result = new BackendStore(file).get("Pixel 4", "abc");
+        assertEquals(new Backend(Backend.GPU, 1), result.getBackend());
+        assertEquals(4.5f, result.getP50Ms(), 1e-3f);
+        assertEquals(6.25f, result.getP95Ms(), 1e-3f);
+        assertNull(new BackendStore(file).get("Pixel 4", "def"));
+        assertNull(new BackendStore(file).get("Pixel 5", "abc"));
+    }
+
+    @Test
+    public void store_ignoresUnreadableEntries() throws IOException {
+        File file = mFolder.newFile("backends.properties");
+        Files.write(file.toPath(), "Pixel\\ 4/abc=tpu:1 1 2\n".getBytes(StandardCharsets.ISO_8859_1));
+        assertNull(new BackendStore(file).get("Pixel 4", "abc"));
+    }
+}
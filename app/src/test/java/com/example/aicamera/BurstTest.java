@@ -0,0 +1,214 @@
+package com.example.aicamera;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class BurstTest {
+
+    private static final int PENDING = 3;
+
+    // Stores nothing, taking writeMs per photo.
+    private static class SlowTarget implements CaptureWriter.Target {
+
+        private final String mId;
+        private final long mWriteMs;
+
+        SlowTarget(long writeMs, String id) {
+            mWriteMs = writeMs;
+            mId = id;
+        }
+
+        @Override
+        public void discard() {
+        }
+
+        @Override
+        public String getId() {
+            return mId;
+        }
+
+        @Override
+        public WritableByteChannel open() throws IOException {
+            try {
+                Thread.sleep(mWriteMs);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return Channels.newChannel(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            });
+        }
+
+        @Override
+        public void publish() {
+        }
+    }
+
+    // Takes the requested frames one after the other like the camera, each image held until it is written.
+    private final ExecutorService mCamera = Executors.newSingleThreadExecutor();
+    private final AtomicInteger mHeldImages = new AtomicInteger();
+    private final AtomicInteger mMaxHeldImages = new AtomicInteger();
+    private final AtomicLong mTimestamp = new AtomicLong();
+    private Burst mBurst;
+    private final CountDownLatch mDone = new CountDownLatch(1);
+    private CaptureWriter mWriter;
+
+    @After
+    public void tearDown() {
+        mCamera.shutdownNow();
+        if (mWriter != null) {
+            mWriter.close();
+        }
+    }
+
+    private void start(final long writeMs, int frames) {
+        mWriter = new CaptureWriter(1, PENDING, new CaptureWriter.Listener() {
+            @Override
+            public void onCaptureWritten(CaptureWriter.Capture capture, boolean saved) {
+                assertTrue(mBurst.onWritten(capture, saved));
+                request();
+            }
+        });
+        mBurst = new Burst(mWriter, new Burst.Targets() {
+            @Override
+            public CaptureWriter.Target create(int frame) {
+                return new SlowTarget(writeMs, "slow");
+            }
+        }, frames);
+        request();
+    }
+
+    private synchronized void request() {
+        if (mBurst.isDone()) {
+            mDone.countDown();
+            return;
+        }
+        List<CaptureWriter.Capture> captures = mBurst.reserve(System.nanoTime());
+        for (final CaptureWriter.Capture capture : captures) {
+            mCamera.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long timestamp = mTimestamp.incrementAndGet();
+                    capture.setTimestamp(timestamp);
+                    int held = mHeldImages.incrementAndGet();
+                    int max;
+                    while ((max = mMaxHeldImages.get()) < held && !mMaxHeldImages.compareAndSet(max, held)) {
+                    }
+                    mWriter.write(timestamp, ByteBuffer.allocate(16), new AutoCloseable() {
+                        @Override
+                        public void close() {
+                            mHeldImages.decrementAndGet();
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    @Test
+    public void burst_writesEveryFrameWithinTheWritersRoom() throws InterruptedException {
+        start(5, 12);
+        assertTrue(mDone.await(10, TimeUnit.SECONDS));
+        assertEquals(12, mBurst.getWritten());
+        assertEquals(0, mBurst.getFailed());
+        assertEquals(0, mWriter.getUnmatched());
+        // the storage is slower than the camera, yet no more images are held than the writer has room for
+        assertTrue(mMaxHeldImages.get() <= PENDING);
+        assertEquals(12, mBurst.getWriteLatency().getCount());
+        assertTrue(mBurst.getWriteLatency().getValueAtPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(4));
+        // 5 ms a frame on one writer thread cannot exceed 200 fps
+        assertTrue(mBurst.getFps() > 0 && mBurst.getFps() < 200);
+    }
+
+    @Test
+    public void reserve_stopsAtTheWritersRoom() {
+        CaptureWriter writer = new CaptureWriter(1, PENDING, new CaptureWriter.Listener() {
+            @Override
+            public void onCaptureWritten(CaptureWriter.Capture capture, boolean saved) {
+            }
+        });
+        mWriter = writer;
+        Burst burst = new Burst(writer, new Burst.Targets() {
+            @Override
+            public CaptureWriter.Target create(int frame) {
+                return new SlowTarget(0, "slow");
+            }
+        }, 10);
+        List<CaptureWriter.Capture> captures = burst.reserve(0);
+        assertEquals(PENDING, captures.size());
+        assertTrue(burst.reserve(0).isEmpty());
+
+        assertTrue(burst.onFailed(captures.get(0)));
+        assertFalse(burst.onFailed(captures.get(0)));
+        assertEquals(1, burst.reserve(0).size());
+        assertFalse(burst.isDone());
+
+        burst.cancel();
+        assertTrue(burst.isDone());
+        assertEquals(1 + PENDING, burst.getFailed());
+        assertEquals(0, writer.getPending());
+    }
+
+    @Test
+    public void cancel_finishesWithTheFramesBeingWritten() throws InterruptedException {
+        start(20, 50);
+        Thread.sleep(50);
+        synchronized (this) {
+            mBurst.cancel();
+            request();
+        }
+        assertTrue(mDone.await(10, TimeUnit.SECONDS));
+        assertTrue(mBurst.getWritten() > 0 && mBurst.getWritten() < 50);
+        assertEquals(0, mWriter.getPending());
+    }
+
+    @Test
+    public void reserve_namesFramesApartAndCreatesOnlyReservedTargets() {
+        final List<String> created = new ArrayList<>();
+        CaptureWriter writer = new CaptureWriter(1, PENDING, new CaptureWriter.Listener() {
+            @Override
+            public void onCaptureWritten(CaptureWriter.Capture capture, boolean saved) {
+            }
+        });
+        mWriter = writer;
+        Burst burst = new Burst(writer, new Burst.Targets() {
+            @Override
+            public CaptureWriter.Target create(int frame) {
+                // the frames of a burst are reserved within the same millisecond
+                String id = "JPEG_20261017_120000_000" + Burst.suffix(frame);
+                created.add(id);
+                return new SlowTarget(0, id);
+            }
+        }, 10);
+        List<CaptureWriter.Capture> captures = burst.reserve(0);
+        assertTrue(burst.reserve(0).isEmpty());
+        // the refused reservation created no target
+        assertEquals(PENDING, created.size());
+        Set<String> ids = new HashSet<>();
+        for (CaptureWriter.Capture capture : captures) {
+            ids.add(capture.getTarget().getId());
+        }
+        assertEquals(PENDING, ids.size());
+        burst.cancel();
+    }
+}
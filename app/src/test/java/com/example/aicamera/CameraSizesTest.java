@@ -0,0 +1,42 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CameraSizesTest {
+
+    private static final int[] SIZES = {4032, 3024, 3840, 2160, 1920, 1080, 1440, 1080, 1280, 720, 640, 480};
+
+    @Test
+    public void calculateRatio_findsTheSmallestFraction() {
+        assertArrayEquals(new int[]{16, 9}, CameraSizes.calculateRatio(1920.0 / 1080));
+        assertArrayEquals(new int[]{4, 3}, CameraSizes.calculateRatio(1440.0 / 1080));
+        assertArrayEquals(new int[]{1, 1}, CameraSizes.calculateRatio(1.0));
+        assertArrayEquals(new int[]{13, 6}, CameraSizes.calculateRatio(2340.0 / 1080));
+    }
+
+    @Test
+    public void chooseOptimalSize_takesTheLargestFittingSize() {
+        // 16:9 sizes no larger than 1080x1920 in portrait
+        assertEquals(2, CameraSizes.chooseOptimalSize(SIZES, 1080, 1920, 16, 9));
+        // 4:3 sizes, 1440x1080 fits
+        assertEquals(3, CameraSizes.chooseOptimalSize(SIZES, 1080, 1920, 4, 3));
+    }
+
+    @Test
+    public void chooseOptimalSize_fallsBackToTheSmallestMatchingSize() {
+        assertEquals(4, CameraSizes.chooseOptimalSize(SIZES, 100, 100, 16, 9));
+        assertEquals(-1, CameraSizes.chooseOptimalSize(SIZES, 1080, 1920, 1, 1));
+    }
+
+    @Test
+    public void hasRatio_toleratesFivePixels() {
+        // 16:9 at a width of 1920 is a height of 1080
+        assertTrue(CameraSizes.hasRatio(1920, 1080, 16, 9));
+        assertTrue(CameraSizes.hasRatio(1920, 1085, 16, 9));
+        assertTrue(CameraSizes.hasRatio(1920, 1075, 16, 9));
+        assertFalse(CameraSizes.hasRatio(1920, 1086, 16, 9));
+        assertFalse(CameraSizes.hasRatio(1440, 1080, 16, 9));
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CaptureWriterTest {
+
+    private static class MemoryTarget implements CaptureWriter.Target {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        boolean discarded;
+        boolean failing;
+        CountDownLatch gate = new CountDownLatch(0);
+        boolean published;
+
+        @Override
+        public void discard() {
+            discarded = true;
+        }
+
+        @Override
+        public String getId() {
+            return "memory";
+        }
+
+        @Override
+        public WritableByteChannel open() throws IOException {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (failing) {
+                throw new IOException("full");
+            }
+            return Channels.newChannel(bytes);
+        }
+
+        @Override
+        public void publish() {
+            published = true;
+        }
+    }
+
+    private static class Source implements AutoCloseable {
+
+        boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final CaptureWriter.Listener IGNORE = new CaptureWriter.Listener() {
+        @Override
+        public void onCaptureWritten(CaptureWriter.Capture capture, boolean saved) {
+        }
+    };
+
+    private static ByteBuffer jpeg(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void write_storesImageOfItsCaptureAndClosesIt() throws Exception {
+        final AtomicInteger saved = new AtomicInteger();
+        final CountDownLatch written = new CountDownLatch(2);
+        CaptureWriter writer = new CaptureWriter(1, 2, new CaptureWriter.Listener() {
+            @Override
+            public void onCaptureWritten(CaptureWriter.Capture capture, boolean ok) {
+                if (ok) {
+                    saved.incrementAndGet();
+                }
+                written.countDown();
+            }
+        });
+        MemoryTarget first = new MemoryTarget();
+        MemoryTarget second = new MemoryTarget();
+        CaptureWriter.Capture a = writer.begin(first, System.nanoTime());
+        CaptureWriter.Capture b = writer.begin(second, System.nanoTime());
+        a.setTimestamp(100);
+        b.setTimestamp(200);
+        Source source = new Source();
+        // images may arrive in any order, the timestamps pair them with their captures
+        assertTrue(writer.write(200, jpeg("second"), source));
+        assertTrue(writer.write(100, jpeg("first"), new Source()));
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.awaitIdle(5, TimeUnit.SECONDS));
+
+        assertEquals("first", first.bytes.toString("US-ASCII"));
+        assertEquals("second", second.bytes.toString("US-ASCII"));
+        assertTrue(first.published && second.published);
+        assertTrue(source.closed);
+        assertEquals(2, saved.get());
+        assertEquals(2, writer.getShutterToReady().getCount());
+        assertTrue(b.getShutterToReadyNs() >= b.getWriteNs());
+        writer.close();
+    }
+
+    @Test
+    public void begin_refusesCapturesBeyondPending() throws Exception {
+        CaptureWriter writer = new CaptureWriter(1, 2, IGNORE);
+        MemoryTarget slow = new MemoryTarget();
+        slow.gate = new CountDownLatch(1);
+        assertNotNull(writer.begin(slow, 0));
+        CaptureWriter.Capture cancelled = writer.begin(new MemoryTarget(), 0);
+        assertNotNull(cancelled);
+        assertNull(writer.begin(new MemoryTarget(), 0));
+        assertEquals(2, writer.getPending());
+
+        writer.cancel(cancelled);
+        assertEquals(1, writer.getPending());
+        writer.write(1, jpeg("slow"), new Source());
+        // the capture being written still holds its room
+        CaptureWriter.Capture next = writer.begin(new MemoryTarget(), 0);
+        assertNotNull(next);
+        assertNull(writer.begin(new MemoryTarget(), 0));
+        writer.cancel(next);
+        assertFalse(writer.awaitIdle(50, TimeUnit.MILLISECONDS));
+
+        slow.gate.countDown();
+        assertTrue(writer.awaitIdle(5, TimeUnit.SECONDS));
+        assertEquals(0, writer.getPending());
+        writer.close();
+    }
+
+    @Test
+    public void write_withoutCaptureDropsImage() {
+        CaptureWriter writer = new CaptureWriter(1, 1, IGNORE);
+        Source source = new Source();
+        assertFalse(writer.write(1, jpeg("stray"), source));
+        assertTrue(source.closed);
+        assertEquals(1, writer.getUnmatched());
+        writer.close();
+    }
+
+    @Test
+    public void write_discardsFailedTarget() throws Exception {
+        final AtomicInteger failed = new AtomicInteger();
+        final CountDownLatch written = new CountDownLatch(1);
+        CaptureWriter writer = new CaptureWriter(1, 1, new CaptureWriter.Listener() {
+            @Override
+            public void onCaptureWritten(CaptureWriter.Capture capture, boolean saved) {
+                if (!saved) {
+                    failed.incrementAndGet();
+                }
+                written.countDown();
+            }
+        });
+        MemoryTarget target = new MemoryTarget();
+        target.failing = true;
+        writer.begin(target, 0);
+        Source source = new Source();
+        writer.write(7, jpeg("lost"), source);
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        assertTrue(target.discarded);
+        assertFalse(target.published);
+        assertTrue(source.closed);
+        assertEquals(1, failed.get());
+        writer.close();
+    }
+
+    @Test
+    public void write_insertsLabelsAfterTheHeader() throws Exception {
+        final CountDownLatch written = new CountDownLatch(1);
+        CaptureWriter writer = new CaptureWriter(1, 1, new CaptureWriter.Listener() {
+            @Override
+            public void onCaptureWritten(CaptureWriter.Capture capture, boolean saved) {
+                written.countDown();
+            }
+        });
+        MemoryTarget target = new MemoryTarget();
+        CaptureWriter.Capture capture = writer.begin(target, 0);
+        capture.setLabels(new String[]{"cat"}, new float[]{0.9f});
+        byte[] image = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDB, 0, 2, (byte) 0xFF, (byte) 0xD9};
+        writer.write(3, ByteBuffer.wrap(image), new Source());
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        byte[] segment = JpegMetadata.xmpSegment(new String[]{"cat"}, new float[]{0.9f}, 1);
+        byte[] stored = target.bytes.toByteArray();
+        assertEquals(image.length + segment.length, stored.length);
+        assertEquals((byte) 0xE1, stored[3]);
+        assertEquals((byte) 0xDB, stored[3 + segment.length]);
+        writer.close();
+    }
+}
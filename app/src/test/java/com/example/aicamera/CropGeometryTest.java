@@ -0,0 +1,33 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CropGeometryTest {
+
+    @Test
+    public void zoomRegion_keepsCenteredShare() {
+        assertArrayEquals(new int[]{0, 0, 4000, 3000}, CropGeometry.zoomRegion(4000, 3000, 1f));
+        assertArrayEquals(new int[]{1000, 750, 3000, 2250}, CropGeometry.zoomRegion(4000, 3000, 2f));
+        assertArrayEquals(new int[]{1500, 1125, 2500, 1875}, CropGeometry.zoomRegion(4000, 3000, 4f));
+    }
+
+    @Test
+    public void zoomCrop_matchesZoomRegion() {
+        assertArrayEquals(new float[]{0f, 0f, 1f}, CropGeometry.zoomCrop(4000, 3000, 1f), 0f);
+        assertArrayEquals(new float[]{0.25f, 0.25f, 0.5f}, CropGeometry.zoomCrop(4000, 3000, 2f), 1e-6f);
+        assertArrayEquals(new float[]{0.375f, 0.375f, 0.25f}, CropGeometry.zoomCrop(4000, 3000, 4f), 1e-6f);
+    }
+
+    @Test
+    public void zoomCrop_composesWithMultiCrop() {
+        float[] region = CropGeometry.zoomCrop(4000, 3000, 2f);
+        MultiCrop multiCrop = MultiCrop.centerAndCorners(0.5f, MultiCrop.MEAN).within(region[0], region[1], region[2]);
+        float[] crops = multiCrop.getCrops();
+        assertEquals(5, multiCrop.getCount());
+        // the center crop stays centered, the top left one starts at the region corner
+        assertArrayEquals(new float[]{0.375f, 0.375f, 0.25f}, new float[]{crops[0], crops[1], crops[2]}, 1e-6f);
+        assertArrayEquals(new float[]{0.25f, 0.25f, 0.25f}, new float[]{crops[3], crops[4], crops[5]}, 1e-6f);
+    }
+}
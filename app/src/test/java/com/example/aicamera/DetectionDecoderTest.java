@@ -0,0 +1,58 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DetectionDecoderTest {
+
+    @Test
+    public void decode_postProcessedOutputs() {
+        // {top, left, bottom, right} as the detection post-processing op writes them
+        float[][] locations = {
+                {0.1f, 0.2f, 0.5f, 0.6f},
+                {0.11f, 0.21f, 0.51f, 0.61f},
+                {0.6f, 0.6f, 0.9f, 0.9f},
+                {0f, 0f, 0f, 0f}};
+        float[] classes = {16, 16, 0, 0};
+        float[] scores = {0.9f, 0.85f, 0.7f, 0f};
+        DetectionDecoder decoder = new DetectionDecoder(4, 10, 0.5f, 0.5f);
+
+        // the duplicate box is suppressed and the padding after count is ignored
+        assertEquals(2, decoder.decode(locations, classes, scores, 3, 1));
+        assertEquals(17, decoder.getClass(0));
+        assertEquals(0.9f, decoder.getScore(0), 0f);
+        assertEquals(1, decoder.getClass(1));
+        float[] boxes = decoder.getBoxes();
+        assertArrayEquals(new float[]{0.2f, 0.1f, 0.6f, 0.5f}, new float[]{boxes[0], boxes[1], boxes[2], boxes[3]}, 0f);
+    }
+
+    @Test
+    public void decode_rawOutputsSkipBackground() {
+        float[][] locations = {
+                {0.1f, 0.1f, 0.4f, 0.4f},
+                {0.5f, 0.5f, 0.9f, 0.9f},
+                {0.1f, 0.1f, 0.4f, 0.4f}};
+        float[][] classScores = {
+                {0.95f, 0.6f, 0.1f},
+                {0.2f, 0.1f, 0.7f},
+                {0.1f, 0.3f, 0.2f}};
+        DetectionDecoder decoder = new DetectionDecoder(3, 10, 0.5f, 0.5f);
+        assertEquals(2, decoder.decode(locations, classScores, 3, 1));
+        assertEquals(2, decoder.getClass(0));
+        assertEquals(0.7f, decoder.getScore(0), 0f);
+        assertEquals(1, decoder.getClass(1));
+        assertEquals(0.6f, decoder.getScore(1), 0f);
+    }
+
+    @Test
+    public void decode_reusesItsArrays() {
+        float[][] locations = {{0.1f, 0.1f, 0.4f, 0.4f}};
+        DetectionDecoder decoder = new DetectionDecoder(1, 1, 0.5f, 0.5f);
+        float[] boxes = decoder.getBoxes();
+        assertEquals(1, decoder.decode(locations, new float[]{3}, new float[]{0.8f}, 1, 0));
+        assertEquals(0, decoder.decode(locations, new float[]{3}, new float[]{0.2f}, 1, 0));
+        assertSame(boxes, decoder.getBoxes());
+        assertEquals(0, decoder.getCount());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FanOutTest {
+
+    private static final long DEADLINE_NS = TimeUnit.SECONDS.toNanos(5);
+
+    // Records what it is given, and blocks in run until released if it has a gate.
+    private static class FakeModel implements FanOut.Model<String, String> {
+
+        private volatile CountDownLatch mGate;
+        private final ByteBuffer mInput;
+        private volatile ByteBuffer mLastInput;
+        private volatile String mLastSpec;
+        private int mPreprocessed;
+        private final String mSpec;
+
+        FakeModel(String spec) {
+            mSpec = spec;
+            mInput = ByteBuffer.allocateDirect(1);
+        }
+
+        @Override
+        public String getInputSpec() {
+            return mSpec;
+        }
+
+        @Override
+        public ByteBuffer preprocess(String frame, int rotation, String spec) {
+            mPreprocessed++;
+            return mInput;
+        }
+
+        @Override
+        public void run(ByteBuffer input, String spec) {
+            CountDownLatch gate = mGate;
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            mLastInput = input;
+            mLastSpec = spec;
+        }
+    }
+
+    @Test
+    public void process_preprocessesOncePerSpec() throws InterruptedException {
+        FakeModel a = new FakeModel("224 float");
+        FakeModel b = new FakeModel("224 float");
+        FakeModel c = new FakeModel("300 uint8");
+        FanOut<String, String> fanOut = new FanOut<>(Arrays.asList(a, b, c), 2, DEADLINE_NS);
+        assertEquals(3, fanOut.process("frame", 90));
+        fanOut.close();
+
+        assertEquals(1, a.mPreprocessed);
+        assertEquals(0, b.mPreprocessed);
+        assertEquals(1, c.mPreprocessed);
+        assertSame(a.mInput, b.mLastInput);
+        assertSame(c.mInput, c.mLastInput);
+        assertEquals("300 uint8", c.mLastSpec);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(fanOut.isFresh(i));
+            assertEquals(0, fanOut.getDeadlineMisses(i));
+        }
+    }
+
+    @Test
+    public void process_lateModelMissesTheDeadlineAndSitsOut() throws InterruptedException {
+        FakeModel fast = new FakeModel("fast");
+        FakeModel slow = new FakeModel("slow");
+        CountDownLatch gate = new CountDownLatch(1);
+        slow.mGate = gate;
+        FanOut<String, String> fanOut = new FanOut<>(Arrays.asList(fast, slow), 2, TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertEquals(1, fanOut.process("frame 1", 0));
+        assertTrue(fanOut.isFresh(0));
+        assertFalse(fanOut.isFresh(1));
+        assertEquals(1, fanOut.getDeadlineMisses(1));
+
+        // still running, so its input is left alone
+        assertEquals(1, fanOut.process("frame 2", 0));
+        assertEquals(1, slow.mPreprocessed);
+        assertEquals(1, fanOut.getSkips(1));
+        assertEquals(0, fanOut.getSkips(0));
+
+        gate.countDown();
+        fanOut.close();
+        assertEquals(1, fanOut.getDeadlineMisses(1));
+        assertTrue(fanOut.getMeanLatencyNs(1) > fanOut.getMeanLatencyNs(0));
+    }
+
+    @Test
+    public void process_lateModelHoldsBackItsSharedInput() throws InterruptedException {
+        FakeModel owner = new FakeModel("shared");
+        FakeModel slow = new FakeModel("shared");
+        CountDownLatch gate = new CountDownLatch(1);
+        slow.mGate = gate;
+        FanOut<String, String> fanOut = new FanOut<>(Arrays.asList(owner, slow), 2, TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertEquals(1, fanOut.process("frame 1", 0));
+        assertEquals(0, fanOut.process("frame 2", 0));
+        assertEquals(1, owner.mPreprocessed);
+        assertEquals(1, fanOut.getSkips(0));
+        assertFalse(fanOut.isFresh(0));
+
+        gate.countDown();
+        fanOut.close();
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.example.aicamera;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import static org.junit.Assert.*;
+
+public class GalleryScanTest {
+
+    private static final int SIZE = 8;
+    private static final String[] LABELS = {"red", "green", "blue"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Labels an image by its strongest channel, the second strongest comes second.
+    private static class ColorModel implements GalleryScan.Model {
+
+        int batches;
+        int cancelAfter = -1;
+        GalleryScan scan;
+
+        @Override
+        public int getBatchSize() {
+            return 4;
+        }
+
+        @Override
+        public int getImageSizeX() {
+            return SIZE;
+        }
+
+        @Override
+        public int getImageSizeY() {
+            return SIZE;
+        }
+
+        @Override
+        public String getLabel(int index) {
+            return LABELS[index];
+        }
+
+        @Override
+        public float getMinConfidence() {
+            return 0.1f;
+        }
+
+        @Override
+        public void classify(int[][] images, int count, int k, int[] labels, float[] scores) {
+            for (int i = 0; i < count; i++) {
+                long[] sums = new long[3];
+                for (int pixel : images[i]) {
+                    sums[0] += (pixel >> 16) & 0xFF;
+                    sums[1] += (pixel >> 8) & 0xFF;
+                    sums[2] += pixel & 0xFF;
+                }
+                long total = Math.max(1, sums[0] + sums[1] + sums[2]);
+                for (int rank = 0; rank < k; rank++) {
+                    int best = 0;
+                    for (int c = 1; c < 3; c++) {
+                        if (sums[c] > sums[best]) {
+                            best = c;
+                        }
+                    }
+                    labels[i * k + rank] = best;
+                    scores[i * k + rank] = (float) sums[best] / total;
+                    sums[best] = -1;
+                }
+            }
+            if (++batches == cancelAfter) {
+                scan.cancel();
+            }
+        }
+    }
+
+    // Decodes with ImageIO, subsampling while reading as BitmapFactory does on the device.
+    private static final GalleryScan.Decoder DECODER = new GalleryScan.Decoder() {
+        @Override
+        public boolean decode(String id, int[] pixels, int width, int height) throws IOException {
+            ImageInputStream in = ImageIO.createImageInputStream(new File(id));
+            try {
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+                if (!readers.hasNext()) {
+                    return false;
+                }
+                ImageReader reader = readers.next();
+                reader.setInput(in);
+                int sampleSize = GalleryScan.sampleSize(reader.getWidth(0), reader.getHeight(0), width, height);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(sampleSize, sampleSize, 0, 0);
+                BufferedImage image = reader.read(0, param);
+                reader.dispose();
+                int[] source = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+                GalleryScan.cropAndScale(source, image.getWidth(), image.getHeight(), pixels, width, height);
+                return true;
+            } finally {
+                in.close();
+            }
+        }
+    };
+
+    private File writeJpeg(String name, Color color) throws IOException {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 64, 48);
+        graphics.dispose();
+        File file = new File(folder.getRoot(), name);
+        assertTrue(ImageIO.write(image, "jpg", file));
+        return file;
+    }
+
+    private List<String> writeGallery(int count) throws IOException {
+        Color[] colors = {new Color(220, 60, 20), new Color(20, 200, 60), new Color(30, 40, 210)};
+        for (int i = 0; i < count; i++) {
+            writeJpeg(String.format("IMG_%03d.jpg", i), colors[i % colors.length]);
+        }
+        return GalleryScan.listImages(folder.getRoot());
+    }
+
+    private static PhotoIndex openIndex(File file) {
+        return new PhotoIndex(file, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @Test
+    public void run_indexesEveryImageWithItsLabels() throws Exception {
+        List<String> ids = writeGallery(10);
+        File indexFile = new File(folder.getRoot(), "photos.idx");
+        PhotoIndex index = openIndex(indexFile);
+        GalleryScan scan = new GalleryScan(new ColorModel(), DECODER, index, 3, 2);
+        assertEquals(10, scan.run(ids));
+        index.close();
+
+        PhotoIndex reopened = openIndex(indexFile);
+        assertEquals(10, reopened.size());
+        assertEquals("red", reopened.getLabels(ids.get(0))[0]);
+        assertEquals("green", reopened.getLabels(ids.get(1))[0]);
+        assertEquals("blue", reopened.getLabels(ids.get(2))[0]);
+        // in the order they were classified, which within a batch is the order they were decoded in
+        List<String> red = new ArrayList<>(reopened.query("red"));
+        Collections.sort(red);
+        assertEquals(Arrays.asList(ids.get(0), ids.get(3), ids.get(6), ids.get(9)), red);
+        reopened.close();
+    }
+
+    @Test
+    public void run_resumesAfterCancel() throws Exception {
+        List<String> ids = writeGallery(13);
+        File indexFile = new File(folder.getRoot(), "photos.idx");
+        PhotoIndex index = openIndex(indexFile);
+        ColorModel model = new ColorModel();
+        GalleryScan scan = new GalleryScan(model, DECODER, index, 2, 1);
+        model.scan = scan;
+        model.cancelAfter = 1;
+        int first = scan.run(ids);
+        index.close();
+        assertTrue(first >= 4 && first < 13);
+
+        index = openIndex(indexFile);
+        assertEquals(first, index.size());
+        GalleryScan resumed = new GalleryScan(new ColorModel(), DECODER, index, 2, 1);
+        assertEquals(13 - first, resumed.run(ids));
+        assertEquals(first, resumed.getSkipped());
+        assertEquals(13, index.size());
+        index.close();
+    }
+
+    @Test
+    public void run_leavesUnreadableImagesOut() throws Exception {
+        writeGallery(3);
+        assertTrue(new File(folder.getRoot(), "IMG_999.jpg").createNewFile());
+        List<String> ids = GalleryScan.listImages(folder.getRoot());
+        PhotoIndex index = openIndex(new File(folder.getRoot(), "photos.idx"));
+        GalleryScan scan = new GalleryScan(new ColorModel(), DECODER, index, 2, 2);
+        assertEquals(3, scan.run(ids));
+        assertEquals(1, scan.getFailed());
+        assertFalse(index.contains(ids.get(3)));
+        index.close();
+    }
+
+    @Test
+    public void listImages_keepsImagesSortedByName() throws IOException {
+        folder.newFile("b.PNG");
+        folder.newFile("a.jpg");
+        folder.newFile("notes.txt");
+        folder.newFolder("c.jpg");
+        List<String> images = GalleryScan.listImages(folder.getRoot());
+        assertEquals(Arrays.asList(new File(folder.getRoot(), "a.jpg").getPath(),
+                new File(folder.getRoot(), "b.PNG").getPath()), images);
+    }
+
+    @Test
+    public void sampleSize_keepsImageAtLeastTargetSize() {
+        assertEquals(1, GalleryScan.sampleSize(224, 224, 224, 224));
+        assertEquals(1, GalleryScan.sampleSize(447, 600, 224, 224));
+        assertEquals(2, GalleryScan.sampleSize(448, 600, 224, 224));
+        assertEquals(8, GalleryScan.sampleSize(4032, 3024, 224, 224));
+    }
+
+    @Test
+    public void cropAndScale_takesCenterOfWideImage() {
+        // 4 x 2 image whose middle columns are 1 and 2
+        int[] source = {0, 1, 2, 0, 0, 1, 2, 0};
+        int[] target = new int[4];
+        GalleryScan.cropAndScale(source, 4, 2, target, 2, 2);
+        assertArrayEquals(new int[]{1, 2, 1, 2}, target);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InferenceEngineTest {
+
+    private static final ModelDescriptor MODEL = new ModelDescriptor("MobileNet", "mobilenet.tflite",
+            "labels.txt", 127.5f, 127.5f, 0);
+    private static final ModelDescriptor MARKER = new ModelDescriptor("Marker", "marker.tflite",
+            "labels.txt", 127.5f, 127.5f, 0);
+
+    // Counts the models the loader maps instead of creating interpreters, which the JVM cannot load. The
+    // engine takes a load that returns nothing for one that failed, which it only tells on the next frame.
+    private static class CountingFactory implements ModelLoader.Factory {
+        final List<ModelDescriptor> mLoaded = Collections.synchronizedList(new ArrayList<ModelDescriptor>());
+        final CountDownLatch mMarkerLoaded = new CountDownLatch(1);
+
+        @Override
+        public Classifier createClassifier(ModelDescriptor model) {
+            mLoaded.add(model);
+            if (model == MARKER) {
+                mMarkerLoaded.countDown();
+            }
+            return null;
+        }
+
+        @Override
+        public Detector createDetector(ModelDescriptor model) {
+            mLoaded.add(model);
+            return null;
+        }
+    }
+
+    @Test
+    public void pauseResumeAndRecreate_loadTheModelOnce() throws InterruptedException {
+        final CountingFactory factory = new CountingFactory();
+        final List<InferenceEngine> created = new ArrayList<>();
+        final List<InferenceEngine> closed = new ArrayList<>();
+        RefCounted<InferenceEngine> engines = new RefCounted<>(new RefCounted.Factory<InferenceEngine>() {
+            @Override
+            public InferenceEngine create() {
+                InferenceEngine engine = new InferenceEngine(new ModelLoader(factory, 0,
+                        new StartupTrace(System.nanoTime(), null)));
+                created.add(engine);
+                return engine;
+            }
+
+            @Override
+            public void destroy(InferenceEngine engine) {
+                engine.close();
+                closed.add(engine);
+            }
+        });
+
+        // the view model holds the engine, every resumed activity acquires it on top
+        InferenceEngine held = engines.acquire();
+        assertTrue(held.ensureLoaded(MODEL, null));
+        for (int activity = 0; activity < 3; activity++) {
+            assertFalse(held.ensureLoaded(MODEL, null));
+            for (int cycle = 0; cycle < 5; cycle++) {
+                InferenceEngine resumed = engines.acquire();
+                assertSame(held, resumed);
+                assertFalse(resumed.ensureLoaded(MODEL, null));
+                engines.release();
+            }
+        }
+        assertEquals(MODEL, held.getModel());
+        // the loader runs one load at a time, so every load asked for before the marker is done with it
+        held.load(MARKER, null);
+        // a recreated activity keeps the model changed to instead of going back to its default
+        assertFalse(held.ensureLoaded(MODEL, null));
+        assertEquals(MARKER, held.getModel());
+        assertTrue(factory.mMarkerLoaded.await(5, TimeUnit.SECONDS));
+        assertEquals(2, factory.mLoaded.size());
+        assertEquals(1, Collections.frequency(factory.mLoaded, MODEL));
+
+        engines.release();
+        assertEquals(1, created.size());
+        assertEquals(created, closed);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InferencePipelineTest {
+
+    // Records the frames and holds the first one until released, like a slow model.
+    private static class BlockingProcessor implements InferencePipeline.FrameProcessor<Integer> {
+        final List<Integer> mDropped = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch mDroppedOnStop = new CountDownLatch(1);
+        final List<Integer> mProcessed = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch mRelease = new CountDownLatch(1);
+        final CountDownLatch mStarted = new CountDownLatch(1);
+        volatile boolean mStopping;
+
+        @Override
+        public void onFrame(Integer frame) {
+            mStarted.countDown();
+            try {
+                mRelease.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mProcessed.add(frame);
+        }
+
+        @Override
+        public void onFrameDropped(Integer frame) {
+            mDropped.add(frame);
+            if (mStopping) {
+                mDroppedOnStop.countDown();
+            }
+        }
+    }
+
+    @Test
+    public void offer_keepsOnlyLatestFrameWhileBusy() throws InterruptedException {
+        BlockingProcessor processor = new BlockingProcessor();
+        InferencePipeline<Integer> pipeline = new InferencePipeline<>("Test inference thread", processor);
+        pipeline.start();
+        pipeline.offer(1);
+        assertTrue(processor.mStarted.await(5, TimeUnit.SECONDS));
+        pipeline.offer(2);
+        pipeline.offer(3);
+        pipeline.offer(4);
+        processor.mRelease.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pipeline.getProcessedFrames() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        pipeline.stop();
+        assertEquals(Arrays.asList(1, 4), processor.mProcessed);
+        assertEquals(Arrays.asList(2, 3), processor.mDropped);
+        assertEquals(2, pipeline.getDroppedFrames());
+        assertEquals(2, pipeline.getProcessedFrames());
+    }
+
+    @Test
+    public void run_keepsProcessingAfterFrameThrows() throws InterruptedException {
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch failed = new CountDownLatch(1);
+        InferencePipeline<Integer> pipeline = new InferencePipeline<>("Test inference thread",
+                new InferencePipeline.FrameProcessor<Integer>() {
+                    @Override
+                    public void onFrame(Integer frame) {
+                        if (frame == 1) {
+                            failed.countDown();
+                            throw new IllegalStateException("Image already closed");
+                        }
+                        processed.add(frame);
+                    }
+
+                    @Override
+                    public void onFrameDropped(Integer frame) {
+                    }
+                });
+        pipeline.start();
+        pipeline.offer(1);
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        pipeline.offer(2);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pipeline.getProcessedFrames() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        pipeline.stop();
+        assertEquals(Arrays.asList(2), processed);
+        assertEquals(1, pipeline.getProcessedFrames());
+        assertEquals(0, pipeline.getDroppedFrames());
+    }
+
+    @Test
+    public void stop_dropsWaitingFrameAndFinishesCurrentOne() throws InterruptedException {
+        final BlockingProcessor processor = new BlockingProcessor();
+        final InferencePipeline<Integer> pipeline = new InferencePipeline<>("Test inference thread", processor);
+        pipeline.start();
+        pipeline.offer(1);
+        assertTrue(processor.mStarted.await(5, TimeUnit.SECONDS));
+        pipeline.offer(2);
+        processor.mStopping = true;
+        Thread stopper = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pipeline.stop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        stopper.start();
+        // the waiting frame is dropped before the frame being processed is done
+        assertTrue(processor.mDroppedOnStop.await(5, TimeUnit.SECONDS));
+        assertTrue(processor.mProcessed.isEmpty());
+        processor.mRelease.countDown();
+        stopper.join(5000);
+        assertFalse(stopper.isAlive());
+        assertEquals(Arrays.asList(1), processor.mProcessed);
+        assertEquals(Arrays.asList(2), processor.mDropped);
+        assertEquals(1, pipeline.getDroppedFrames());
+
+        // frames that arrive once stopped are dropped right away
+        pipeline.offer(3);
+        assertEquals(Arrays.asList(2, 3), processor.mDropped);
+        assertEquals(2, pipeline.getDroppedFrames());
+    }
+}
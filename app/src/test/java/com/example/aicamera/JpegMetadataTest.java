@@ -0,0 +1,68 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class JpegMetadataTest {
+
+    @Test
+    public void exifOrientation_mapsClockwiseRotations() {
+        assertEquals(1, JpegMetadata.exifOrientation(0));
+        assertEquals(6, JpegMetadata.exifOrientation(90));
+        assertEquals(3, JpegMetadata.exifOrientation(180));
+        assertEquals(8, JpegMetadata.exifOrientation(-90));
+    }
+
+    @Test
+    public void withOrientation_insertsExifAfterStartOfImage() {
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, (byte) 0xFF, (byte) 0xD9, 99};
+        byte[] tagged = JpegMetadata.withOrientation(jpeg, 8, 90);
+
+        assertEquals((byte) 0xFF, tagged[0]);
+        assertEquals((byte) 0xD8, tagged[1]);
+        assertEquals((byte) 0xFF, tagged[2]);
+        assertEquals((byte) 0xE1, tagged[3]);
+        int length = ((tagged[4] & 0xFF) << 8) | (tagged[5] & 0xFF);
+        assertEquals("Exif", new String(tagged, 6, 4));
+        assertEquals(2 + 2 + length + 6, tagged.length);
+        // the orientation value of the single IFD entry
+        int entry = 6 + 6 + 8 + 2;
+        assertEquals(0x01, tagged[entry]);
+        assertEquals(0x12, tagged[entry + 1]);
+        assertEquals(6, tagged[entry + 9]);
+        // the rest of the image follows the segment unchanged, without the bytes past length
+        assertEquals((byte) 0xE0, tagged[4 + length + 1]);
+        assertEquals((byte) 0xD9, tagged[tagged.length - 1]);
+    }
+
+    @Test
+    public void insertPosition_skipsJfifAndExif() {
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 4, 1, 2, (byte) 0xFF, (byte) 0xE1, 0, 2,
+                (byte) 0xFF, (byte) 0xDB, 0, 2, (byte) 0xFF, (byte) 0xD9};
+        assertEquals(12, JpegMetadata.insertPosition(ByteBuffer.wrap(jpeg)));
+        ByteBuffer bare = ByteBuffer.wrap(jpeg, 12, 6).slice();
+        assertEquals(-1, JpegMetadata.insertPosition(bare));
+        ByteBuffer offset = ByteBuffer.wrap(new byte[]{9, (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDB});
+        offset.position(1);
+        assertEquals(3, JpegMetadata.insertPosition(offset));
+    }
+
+    @Test
+    public void xmpSegment_listsEscapedLabelsAndScores() {
+        byte[] segment = JpegMetadata.xmpSegment(new String[]{"fish & chips", "plate", "unused"},
+                new float[]{0.75f, 0.125f, 0f}, 2);
+        assertEquals((byte) 0xFF, segment[0]);
+        assertEquals((byte) 0xE1, segment[1]);
+        int length = ((segment[2] & 0xFF) << 8) | (segment[3] & 0xFF);
+        assertEquals(segment.length - 2, length);
+        String text = new String(segment, 4, segment.length - 4, StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("http://ns.adobe.com/xap/1.0/\u0000<?xpacket"));
+        assertTrue(text.contains("<rdf:li>fish &amp; chips</rdf:li><rdf:li>plate</rdf:li></rdf:Bag>"));
+        assertTrue(text.contains("<rdf:li>0.7500</rdf:li><rdf:li>0.1250</rdf:li></rdf:Seq>"));
+        assertFalse(text.contains("unused"));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LabelSmootherTest {
+
+    private static LabelSmoother smoother() {
+        return new LabelSmoother(3, 0.5f, 0.05f, 3, 0.1f);
+    }
+
+    @Test
+    public void update_firstFrameIsTakenAsIs() {
+        LabelSmoother smoother = smoother();
+        assertEquals(1, smoother.update(new float[]{0.2f, 0.7f, 0.1f}));
+        assertEquals(0.7f, smoother.getScore(1), 1e-6f);
+    }
+
+    @Test
+    public void update_ignoresFlickerBetweenNearTies() {
+        // recorded from a cup that the model keeps calling a mug every other frame
+        float[][] frames = {
+                {0.46f, 0.44f, 0.10f},
+                {0.43f, 0.47f, 0.10f},
+                {0.45f, 0.45f, 0.10f},
+                {0.42f, 0.48f, 0.10f},
+                {0.47f, 0.43f, 0.10f},
+                {0.41f, 0.49f, 0.10f},
+        };
+        LabelSmoother smoother = smoother();
+        for (float[] frame : frames) {
+            assertEquals(0, smoother.update(frame));
+        }
+    }
+
+    @Test
+    public void update_switchesAfterStableFrames() {
+        LabelSmoother smoother = smoother();
+        assertEquals(0, smoother.update(new float[]{0.9f, 0.05f, 0.05f}));
+        float[] other = {0.05f, 0.05f, 0.9f};
+        // the averages tie after one frame, then the new label has to lead by the margin for three frames
+        assertEquals(0, smoother.update(other));
+        assertEquals(0, smoother.update(other));
+        assertEquals(0, smoother.update(other));
+        assertEquals(2, smoother.update(other));
+        assertEquals(2, smoother.update(other));
+    }
+
+    @Test
+    public void update_restartsCountWhenLeadIsLost() {
+        LabelSmoother smoother = new LabelSmoother(2, 1f, 0.05f, 2, 0f);
+        assertEquals(0, smoother.update(new float[]{0.6f, 0.4f}));
+        assertEquals(0, smoother.update(new float[]{0.4f, 0.6f}));
+        assertEquals(0, smoother.update(new float[]{0.51f, 0.49f}));
+        assertEquals(0, smoother.update(new float[]{0.4f, 0.6f}));
+        assertEquals(1, smoother.update(new float[]{0.4f, 0.6f}));
+    }
+
+    @Test
+    public void update_hidesLabelsUnderMinConfidence() {
+        LabelSmoother smoother = smoother();
+        assertEquals(LabelSmoother.NONE, smoother.update(new float[]{0.08f, 0.09f, 0.05f}));
+        assertEquals(1, smoother.update(new float[]{0.1f, 0.8f, 0.1f}));
+    }
+
+    @Test
+    public void update_smoothsInPlace() {
+        LabelSmoother smoother = smoother();
+        float[] frame = {0.2f, 0.6f, 0.2f};
+        smoother.update(frame);
+        smoother.update(new float[]{0.4f, 0.4f, 0.2f});
+        assertEquals(0.3f, smoother.getScore(0), 1e-6f);
+        assertEquals(0.5f, smoother.getScore(1), 1e-6f);
+        assertEquals(0.6f, frame[1], 0f);
+    }
+
+    @Test
+    public void repeat_countsTowardStableFrames() {
+        LabelSmoother smoother = smoother();
+        assertEquals(LabelSmoother.NONE, smoother.repeat());
+        assertEquals(0, smoother.update(new float[]{0.9f, 0.05f, 0.05f}));
+        float[] other = {0.05f, 0.05f, 0.9f};
+        assertEquals(0, smoother.update(other));
+        // the classifier reuses its array for the next frame
+        other[2] = 0f;
+        // the same frames as update_switchesAfterStableFrames
+        assertEquals(0, smoother.repeat());
+        assertEquals(0, smoother.repeat());
+        assertEquals(2, smoother.repeat());
+    }
+
+    @Test
+    public void reset_forgetsHistory() {
+        LabelSmoother smoother = smoother();
+        smoother.update(new float[]{0.9f, 0.05f, 0.05f});
+        smoother.reset();
+        assertEquals(2, smoother.update(new float[]{0.05f, 0.05f, 0.9f}));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LabelTableTest {
+
+    private static final List<String> LABELS = Arrays.asList("background", "", "great white shark",
+            "Cr\u00e8me br\u00fbl\u00e9e");
+
+    @Test
+    public void wrap_decodesEveryLabel() throws IOException {
+        LabelTable table = LabelTable.wrap(ByteBuffer.wrap(LabelTable.encode(LABELS)));
+        assertEquals(4, table.size());
+        for (int i = 0; i < LABELS.size(); i++) {
+            assertEquals(LABELS.get(i), table.get(i));
+        }
+    }
+
+    @Test
+    public void wrap_readsFromPositionOfDirectBuffer() throws IOException {
+        byte[] encoded = LabelTable.encode(LABELS);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(3 + encoded.length);
+        buffer.put(new byte[3]).put(encoded);
+        buffer.position(3);
+        LabelTable table = LabelTable.wrap(buffer);
+        assertEquals("great white shark", table.get(2));
+        assertEquals("Cr\u00e8me br\u00fbl\u00e9e", table.get(3));
+    }
+
+    @Test
+    public void wrap_rejectsTextAndTruncatedTables() {
+        byte[] text = "tench\ngoldfish\n".getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = LabelTable.encode(LABELS);
+        List<byte[]> invalid = Arrays.asList(text, Arrays.copyOf(encoded, 12),
+                Arrays.copyOf(encoded, encoded.length - 1));
+        for (byte[] bytes : invalid) {
+            try {
+                LabelTable.wrap(ByteBuffer.wrap(bytes));
+                fail();
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_rejectsIndexBeyondSize() throws IOException {
+        LabelTable.wrap(ByteBuffer.wrap(LabelTable.encode(LABELS))).get(4);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LabelsTest {
+
+    @Test
+    public void read_returnsOneLabelPerLine() throws IOException {
+        byte[] text = "background\ntench\ngreat white shark\nCr\u00e8me br\u00fbl\u00e9e".getBytes(StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("background", "tench", "great white shark", "Cr\u00e8me br\u00fbl\u00e9e"),
+                Labels.read(new ByteArrayInputStream(text)));
+    }
+}
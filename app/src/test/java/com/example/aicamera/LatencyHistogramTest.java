@@ -0,0 +1,82 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void getValueAtPercentile_isExactForSmallValues() {
+        LatencyHistogram histogram = new LatencyHistogram(1000, 5);
+        for (int value = 1; value <= 20; value++) {
+            histogram.record(value);
+        }
+        assertEquals(10, histogram.getValueAtPercentile(50));
+        assertEquals(19, histogram.getValueAtPercentile(95));
+        assertEquals(20, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(10.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void getValueAtPercentile_staysWithinTheBucketWidth() {
+        LatencyHistogram histogram = new LatencyHistogram(10_000_000_000L, 5);
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+        long[] percentiles = {50, 90, 99};
+        for (long percentile : percentiles) {
+            long expected = percentile * 100 * 1000;
+            long value = histogram.getValueAtPercentile(percentile);
+            assertTrue(value >= expected);
+            assertTrue(value <= expected * (1 + 1 / 32.0));
+        }
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void record_clampsOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram(1000, 3);
+        histogram.record(-5);
+        histogram.record(1_000_000);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(1_000_000, histogram.getMax());
+        assertTrue(histogram.getValueAtPercentile(100) >= 1000);
+    }
+
+    @Test
+    public void record_countsEveryValueFromManyThreads() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram(1_000_000, 5);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10_000; i++) {
+                        histogram.record(offset * 10_000 + i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(39_999, histogram.getMax());
+    }
+
+    @Test
+    public void reset_forgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram(1000, 5);
+        histogram.record(500);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ModelDescriptorTest {
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void parse_readsAllFields() throws IOException {
+        ModelDescriptor model = ModelDescriptor.parse("mobilenet_v1_quant.properties", stream(
+                "name=MobileNet int8\nmodel=mobilenet.tflite\nlabels=labels.txt\nmean=0\nstd=255\ntier=1\n"));
+        assertEquals("MobileNet int8", model.getName());
+        assertEquals("mobilenet.tflite", model.getModelPath());
+        assertEquals("labels.txt", model.getLabelPath());
+        assertEquals(0f, model.getImageMean(), 0f);
+        assertEquals(255f, model.getImageStd(), 0f);
+        assertEquals(1, model.getTier());
+        assertEquals(ModelDescriptor.CLASSIFIER, model.getType());
+    }
+
+    @Test
+    public void parse_readsDetectorType() throws IOException {
+        ModelDescriptor model = ModelDescriptor.parse("ssd.properties", stream("labels=coco.txt\ntype=detector\n"));
+        assertEquals(ModelDescriptor.DETECTOR, model.getType());
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsUnknownType() throws IOException {
+        ModelDescriptor.parse("broken.properties", stream("labels=labels.txt\ntype=segmenter\n"));
+    }
+
+    @Test
+    public void parse_defaultsToFileName() throws IOException {
+        ModelDescriptor model = ModelDescriptor.parse("efficientnet_lite2.properties", stream("labels=labels.txt\n"));
+        assertEquals("efficientnet_lite2", model.getName());
+        assertEquals("efficientnet_lite2.tflite", model.getModelPath());
+        assertEquals(127.5f, model.getImageMean(), 0f);
+        assertEquals(0, model.getTier());
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsMissingLabels() throws IOException {
+        ModelDescriptor.parse("broken.properties", stream("model=broken.tflite\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsBadNumbers() throws IOException {
+        ModelDescriptor.parse("broken.properties", stream("labels=labels.txt\nmean=half\n"));
+    }
+}
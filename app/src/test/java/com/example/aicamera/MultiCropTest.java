@@ -0,0 +1,81 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class MultiCropTest {
+
+    @Test
+    public void aggregate_meanAndMax() {
+        float[][] rows = {{0.2f, 0.8f}, {0.6f, 0.4f}, {0.1f, 0.0f}};
+        float[] out = new float[2];
+
+        new MultiCrop(new float[]{0f, 0f, 1f}, MultiCrop.MEAN).aggregate(rows, 2, out);
+        assertEquals(0.4f, out[0], 1e-6f);
+        assertEquals(0.6f, out[1], 1e-6f);
+
+        new MultiCrop(new float[]{0f, 0f, 1f}, MultiCrop.MAX).aggregate(rows, 3, out);
+        assertEquals(0.6f, out[0], 1e-6f);
+        assertEquals(0.8f, out[1], 1e-6f);
+    }
+
+    @Test
+    public void aggregate_quantizedRowsAreUnsigned() {
+        byte[][] rows = {{(byte) 200, 10}, {(byte) 100, 30}};
+        float[] out = new float[2];
+        new MultiCrop(new float[]{0f, 0f, 1f}, MultiCrop.MEAN).aggregate(rows, 2, out);
+        assertEquals(150f, out[0], 1e-6f);
+        assertEquals(20f, out[1], 1e-6f);
+    }
+
+    @Test
+    public void centerAndCorners_fillsOneBatchSlotPerCrop() {
+        MultiCrop multiCrop = MultiCrop.centerAndCorners(0.5f, MultiCrop.MEAN);
+        assertEquals(5, multiCrop.getCount());
+
+        // 4x4 luma frame with a distinct value per pixel and neutral chroma
+        ByteBuffer y = ByteBuffer.allocate(16);
+        for (int i = 0; i < 16; i++) {
+            y.put(i, (byte) (i * 10));
+        }
+        ByteBuffer uv = ByteBuffer.allocate(8);
+        for (int i = 0; i < 8; i++) {
+            uv.put(i, (byte) 128);
+        }
+        Preprocessor preprocessor = new Preprocessor(2, 2, 3, 5, 127.5f, 127.5f, true, 1);
+        ByteBuffer out = new YuvConverter(2, 2, 5).convert(y, uv, uv, 4, 4, 2, 4, 4, 0,
+                multiCrop.getCrops(), multiCrop.getCount(), preprocessor);
+
+        assertEquals(5 * 2 * 2 * 3, out.capacity());
+        // first pixel of the center, top-left, top-right, bottom-left and bottom-right crops
+        int[] expected = {50, 0, 20, 80, 100};
+        for (int crop = 0; crop < 5; crop++) {
+            assertEquals(expected[crop], out.get(crop * 12) & 0xFF);
+        }
+    }
+
+    @Test
+    public void grid_overlapsNeighbours() {
+        MultiCrop grid = MultiCrop.grid(2, 0.5f, MultiCrop.MEAN);
+        assertEquals(4, grid.getCount());
+        // two tiles of 2/3 sharing half of their side cover the region
+        assertArrayEquals(new float[]{
+                0f, 0f, 2f / 3,
+                1f / 3, 0f, 2f / 3,
+                0f, 1f / 3, 2f / 3,
+                1f / 3, 1f / 3, 2f / 3}, grid.getCrops(), 1e-6f);
+        assertArrayEquals(new float[]{0f, 0f, 1f}, MultiCrop.grid(1, 0.5f, MultiCrop.MEAN).getCrops(), 0f);
+    }
+
+    @Test
+    public void equals_comparesCropsAndAggregation() {
+        MultiCrop crop = MultiCrop.centerAndCorners(0.8f, MultiCrop.MEAN);
+        assertEquals(crop, MultiCrop.centerAndCorners(0.8f, MultiCrop.MEAN));
+        assertEquals(crop.hashCode(), MultiCrop.centerAndCorners(0.8f, MultiCrop.MEAN).hashCode());
+        assertNotEquals(crop, MultiCrop.centerAndCorners(0.8f, MultiCrop.MAX));
+        assertNotEquals(crop, MultiCrop.centerAndCorners(0.7f, MultiCrop.MEAN));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NonMaxSuppressionTest {
+
+    @Test
+    public void select_suppressesOverlappingBoxes() {
+        float[] boxes = {
+                0.10f, 0.10f, 0.50f, 0.50f,
+                0.12f, 0.12f, 0.52f, 0.52f,
+                0.60f, 0.60f, 0.90f, 0.90f,
+                0.30f, 0.30f, 0.70f, 0.70f};
+        float[] scores = {0.8f, 0.9f, 0.7f, 0.6f};
+        NonMaxSuppression nms = new NonMaxSuppression(4, 4, 0.5f, 0.5f);
+        assertEquals(3, nms.select(boxes, scores, null, 4));
+        assertEquals(1, nms.getIndex(0));
+        assertEquals(2, nms.getIndex(1));
+        // a quarter overlap is under the threshold
+        assertEquals(3, nms.getIndex(2));
+    }
+
+    @Test
+    public void select_keepsOverlappingBoxesOfOtherClasses() {
+        float[] boxes = {
+                0.1f, 0.1f, 0.5f, 0.5f,
+                0.1f, 0.1f, 0.5f, 0.5f};
+        float[] scores = {0.9f, 0.8f};
+        NonMaxSuppression nms = new NonMaxSuppression(2, 2, 0.5f, 0.5f);
+        assertEquals(2, nms.select(boxes, scores, new int[]{1, 2}, 2));
+        assertEquals(1, nms.select(boxes, scores, new int[]{1, 1}, 2));
+    }
+
+    @Test
+    public void select_stopsAtMaxDetections() {
+        float[] boxes = new float[4 * 5];
+        float[] scores = new float[5];
+        for (int i = 0; i < 5; i++) {
+            boxes[4 * i] = i;
+            boxes[4 * i + 1] = 0;
+            boxes[4 * i + 2] = i + 0.5f;
+            boxes[4 * i + 3] = 1;
+            scores[i] = 0.6f + 0.05f * i;
+        }
+        NonMaxSuppression nms = new NonMaxSuppression(5, 2, 0.5f, 0.5f);
+        assertEquals(2, nms.select(boxes, scores, null, 5));
+        assertEquals(4, nms.getIndex(0));
+        assertEquals(3, nms.getIndex(1));
+    }
+
+    @Test
+    public void select_matchesSortedGreedyReference() {
+        Random random = new Random(11);
+        int count = 2000;
+        float[] boxes = new float[4 * count];
+        final float[] scores = new float[count];
+        int[] classes = new int[count];
+        for (int i = 0; i < count; i++) {
+            float x = random.nextFloat();
+            float y = random.nextFloat();
+            boxes[4 * i] = x;
+            boxes[4 * i + 1] = y;
+            boxes[4 * i + 2] = x + 0.05f + 0.2f * random.nextFloat();
+            boxes[4 * i + 3] = y + 0.05f + 0.2f * random.nextFloat();
+            scores[i] = random.nextFloat();
+            classes[i] = random.nextInt(3);
+        }
+        NonMaxSuppression nms = new NonMaxSuppression(count, 50, 0.3f, 0.45f);
+        int kept = nms.select(boxes, scores, classes, count);
+
+        // every candidate in descending score order against the ones kept so far
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Float.compare(scores[b], scores[a]);
+            }
+        });
+        int[] expected = new int[50];
+        int size = 0;
+        for (int i = 0; i < count && size < expected.length; i++) {
+            int candidate = order[i];
+            if (scores[candidate] <= 0.3f) {
+                break;
+            }
+            boolean suppressed = false;
+            for (int k = 0; k < size; k++) {
+                if (classes[expected[k]] == classes[candidate] && iou(boxes, expected[k], candidate) > 0.45f) {
+                    suppressed = true;
+                }
+            }
+            if (!suppressed) {
+                expected[size++] = candidate;
+            }
+        }
+        assertEquals(size, kept);
+        for (int k = 0; k < size; k++) {
+            assertEquals(expected[k], nms.getIndex(k));
+        }
+    }
+
+    private static float iou(float[] boxes, int a, int b) {
+        float width = Math.min(boxes[4 * a + 2], boxes[4 * b + 2]) - Math.max(boxes[4 * a], boxes[4 * b]);
+        float height = Math.min(boxes[4 * a + 3], boxes[4 * b + 3]) - Math.max(boxes[4 * a + 1], boxes[4 * b + 1]);
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        float intersection = width * height;
+        float areaA = (boxes[4 * a + 2] - boxes[4 * a]) * (boxes[4 * a + 3] - boxes[4 * a + 1]);
+        float areaB = (boxes[4 * b + 2] - boxes[4 * b]) * (boxes[4 * b + 3] - boxes[4 * b + 1]);
+        return intersection / (areaA + areaB - intersection);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class PerceptualHashTest {
+
+    private static final int SIZE = 224;
+
+    @Test
+    public void dHash_ignoresNormalization() {
+        int[] pixels = new int[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int value = (x * 7 + y * 3 + (x * y) % 13) & 0xFF;
+                pixels[y * SIZE + x] = 0xFF000000 | (value << 16) | (value << 8) | value;
+            }
+        }
+        Preprocessor quantized = new Preprocessor(SIZE, SIZE, 3, 1, 127.5f, 127.5f, true, 10);
+        Preprocessor normalized = new Preprocessor(SIZE, SIZE, 3, 1, 127.5f, 127.5f, false, 10);
+        System.arraycopy(pixels, 0, quantized.getPixels(), 0, pixels.length);
+        System.arraycopy(pixels, 0, normalized.getPixels(), 0, pixels.length);
+
+        Preprocessor signed = new Preprocessor(SIZE, SIZE, 3, 1, 127.5f, 127.5f, true, 1 / 128f, 0, true, 10);
+        System.arraycopy(pixels, 0, signed.getPixels(), 0, pixels.length);
+
+        long hash = PerceptualHash.dHash(quantized.convertPixels(), SIZE, SIZE, true);
+        assertEquals(hash, PerceptualHash.dHash(normalized.convertPixels(), SIZE, SIZE, false));
+        assertEquals(hash, PerceptualHash.dHash(signed.convertPixels(), SIZE, SIZE, true, true));
+        assertNotEquals(0L, hash);
+    }
+
+    @Test
+    public void dHash_flipsBitsForDifferentImages() {
+        ByteBuffer left = ByteBuffer.allocateDirect(SIZE * SIZE * 3).order(ByteOrder.nativeOrder());
+        ByteBuffer right = ByteBuffer.allocateDirect(SIZE * SIZE * 3).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < SIZE * SIZE * 3; i++) {
+            int x = (i / 3) % SIZE;
+            left.put(i, (byte) (255 - x));
+            right.put(i, (byte) x);
+        }
+        long a = PerceptualHash.dHash(left, SIZE, SIZE, true);
+        long b = PerceptualHash.dHash(right, SIZE, SIZE, true);
+        assertEquals(-1L, a);
+        assertEquals(0L, b);
+        assertEquals(64, PerceptualHash.distance(a, b));
+    }
+}
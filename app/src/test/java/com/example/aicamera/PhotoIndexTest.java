@@ -0,0 +1,173 @@
+package com.example.aicamera;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class PhotoIndexTest {
+
+    private File mFile;
+    private final List<Runnable> mCompactions = new ArrayList<>();
+    private final Executor mCompactor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mCompactions.add(command);
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("photos", ".idx");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+        new File(mFile.getPath() + ".tmp").delete();
+    }
+
+    private static void add(PhotoIndex index, String id, String... labels) throws IOException {
+        float[] scores = new float[labels.length];
+        Arrays.fill(scores, 0.5f);
+        index.add(id, labels, scores, labels.length);
+    }
+
+    @Test
+    public void query_listsPhotosOfLabelOldestFirst() throws IOException {
+        PhotoIndex index = new PhotoIndex(mFile, mCompactor);
+        add(index, "a", "cat", "sofa");
+        add(index, "b", "dog");
+        add(index, "c", "cat");
+        assertEquals(Arrays.asList("a", "c"), index.query("cat"));
+        assertEquals(Arrays.asList("b"), index.query("dog"));
+        assertTrue(index.query("bird").isEmpty());
+        assertArrayEquals(new String[]{"cat", "sofa"}, index.getLabels("a"));
+        assertNull(index.getLabels("z"));
+        index.close();
+    }
+
+    @Test
+    public void contains_keepsPhotosWithoutLabels() throws IOException {
+        PhotoIndex index = new PhotoIndex(mFile, mCompactor);
+        add(index, "a");
+        index.close();
+
+        PhotoIndex reopened = new PhotoIndex(mFile, mCompactor);
+        assertTrue(reopened.contains("a"));
+        assertFalse(reopened.contains("b"));
+        assertArrayEquals(new String[0], reopened.getLabels("a"));
+        reopened.close();
+    }
+
+    @Test
+    public void add_replacesAndRemoveDropsLabels() throws IOException {
+        PhotoIndex index = new PhotoIndex(mFile, mCompactor);
+        add(index, "a", "cat");
+        add(index, "b", "cat");
+        add(index, "a", "dog");
+        assertTrue(index.remove("b"));
+        assertFalse(index.remove("b"));
+        assertTrue(index.query("cat").isEmpty());
+        assertEquals(Arrays.asList("a"), index.query("dog"));
+        assertEquals(1, index.size());
+        // the first record of a, the record of b and its removal
+        assertEquals(3, index.getDeadRecords());
+        index.close();
+    }
+
+    @Test
+    public void open_readsLogAgainAndDropsTornRecord() throws IOException {
+        PhotoIndex index = new PhotoIndex(mFile, mCompactor);
+        add(index, "a", "cat");
+        add(index, "b", "cat", "tree");
+        index.remove("a");
+        index.close();
+        long length = mFile.length();
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.setLength(length + 3);
+        file.seek(length);
+        file.write(new byte[]{0, 0, 9});
+        file.close();
+
+        PhotoIndex reopened = new PhotoIndex(mFile, mCompactor);
+        assertEquals(Arrays.asList("b"), reopened.query("cat"));
+        assertEquals(Arrays.asList("b"), reopened.query("tree"));
+        assertEquals(length, mFile.length());
+        add(reopened, "c", "tree");
+        assertEquals(Arrays.asList("b", "c"), reopened.query("tree"));
+        reopened.close();
+    }
+
+    @Test
+    public void compaction_runsOnceMostRecordsAreDead() throws IOException {
+        PhotoIndex index = new PhotoIndex(mFile, mCompactor);
+        add(index, "kept", "cat");
+        for (int i = 0; i <= PhotoIndex.MIN_DEAD_TO_COMPACT; i++) {
+            add(index, "moving", i % 2 == 0 ? "dog" : "cat");
+        }
+        assertEquals(1, mCompactions.size());
+        long before = mFile.length();
+        mCompactions.get(0).run();
+        assertTrue(mFile.length() < before);
+        assertEquals(0, index.getDeadRecords());
+        // the last record of moving labelled it a dog
+        assertEquals(Arrays.asList("kept"), index.query("cat"));
+        assertEquals(Arrays.asList("moving"), index.query("dog"));
+        index.close();
+
+        PhotoIndex reopened = new PhotoIndex(mFile, mCompactor);
+        assertEquals(2, reopened.size());
+        assertEquals(Arrays.asList("kept"), reopened.query("cat"));
+        reopened.close();
+    }
+
+    @Test
+    public void compaction_keepsRecordsAddedWhileCopying() throws IOException {
+        PhotoIndex index = new PhotoIndex(mFile, mCompactor);
+        add(index, "a", "cat");
+        add(index, "a", "dog");
+        add(index, "b", "cat");
+        PhotoIndex.Compaction compaction = index.startCompaction();
+        compaction.copy();
+        add(index, "c", "cat");
+        add(index, "b", "tree");
+        index.remove("a");
+        index.finishCompaction(compaction);
+        assertEquals(Arrays.asList("c"), index.query("cat"));
+        assertEquals(Arrays.asList("b"), index.query("tree"));
+        assertFalse(index.contains("a"));
+        // b as it was copied, and a with its removal
+        assertEquals(3, index.getDeadRecords());
+        index.close();
+
+        PhotoIndex reopened = new PhotoIndex(mFile, mCompactor);
+        assertEquals(2, reopened.size());
+        assertEquals(Arrays.asList("b"), reopened.query("tree"));
+        reopened.close();
+    }
+
+    @Test
+    public void compaction_leavesLogOfClosedIndex() throws IOException {
+        PhotoIndex index = new PhotoIndex(mFile, mCompactor);
+        add(index, "a", "cat");
+        add(index, "a", "dog");
+        long length = mFile.length();
+        PhotoIndex.Compaction compaction = index.startCompaction();
+        compaction.copy();
+        index.close();
+        index.finishCompaction(compaction);
+        assertNull(index.startCompaction());
+        assertEquals(length, mFile.length());
+        assertFalse(new File(mFile.getPath() + ".tmp").exists());
+    }
+}
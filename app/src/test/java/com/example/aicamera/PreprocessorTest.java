@@ -0,0 +1,95 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class PreprocessorTest {
+
+    private static final int SIZE = 224;
+
+    @Test
+    public void convertPixels_normalizesChannels() {
+        Preprocessor preprocessor = new Preprocessor(SIZE, SIZE, 3, 1, 127.5f, 127.5f, false, 1000);
+        int[] pixels = preprocessor.getPixels();
+        pixels[0] = 0xFF00FF80;
+        pixels[pixels.length - 1] = 0xFFFFFFFF;
+
+        FloatBuffer floats = preprocessor.convertPixels().asFloatBuffer();
+        assertEquals(SIZE * SIZE * 3, floats.remaining());
+        assertEquals(-1.0f, floats.get(0), 1e-6f);
+        assertEquals(1.0f, floats.get(1), 1e-6f);
+        assertEquals((0x80 - 127.5f) / 127.5f, floats.get(2), 1e-6f);
+        assertEquals(1.0f, floats.get(floats.limit() - 1), 1e-6f);
+    }
+
+    @Test
+    public void convertPixels_quantizedKeepsRawBytes() {
+        Preprocessor preprocessor = new Preprocessor(SIZE, SIZE, 3, 1, 127.5f, 127.5f, true, 1000);
+        preprocessor.getPixels()[1] = 0xFF102030;
+
+        ByteBuffer bytes = preprocessor.convertPixels();
+        assertEquals(SIZE * SIZE * 3, bytes.remaining());
+        assertEquals(0x10, bytes.get(3));
+        assertEquals(0x20, bytes.get(4));
+        assertEquals(0x30, bytes.get(5));
+    }
+
+    @Test
+    public void convertPixels_quantizesWithInputParameters() {
+        // a typical int8 input: [-1, 1] in steps of 1/128 around zero point 0
+        Preprocessor preprocessor = new Preprocessor(SIZE, SIZE, 3, 1, 127.5f, 127.5f, true,
+                1 / 128f, 0, true, 1000);
+        preprocessor.getPixels()[0] = 0xFF00FF80;
+
+        ByteBuffer bytes = preprocessor.convertPixels();
+        assertEquals(SIZE * SIZE * 3, bytes.remaining());
+        assertEquals(-128, bytes.get(0));
+        assertEquals(127, bytes.get(1));
+        assertEquals(1, bytes.get(2));
+        // unset pixels are black
+        assertEquals(-128, bytes.get(5));
+    }
+
+    @Test
+    public void putRow_matchesConvertPixels() {
+        Preprocessor bulk = new Preprocessor(SIZE, SIZE, 3, 1, 127.5f, 127.5f, true, 0.0078f, 128, false, 1000);
+        Preprocessor rows = new Preprocessor(SIZE, SIZE, 3, 1, 127.5f, 127.5f, true, 0.0078f, 128, false, 1000);
+        int[] pixels = bulk.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = i * 0x9E3779B1;
+        }
+        ByteBuffer expected = bulk.convertPixels();
+        rows.beginFrame();
+        for (int row = 0; row < SIZE; row++) {
+            rows.putRow(pixels, row * SIZE);
+        }
+        assertEquals(expected, rows.endFrame());
+    }
+
+    @Test
+    public void convertPixels_doesNotAllocateAfterWarmUp() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        Preprocessor preprocessor = new Preprocessor(SIZE, SIZE, 3, 1, 127.5f, 127.5f, false, 1000);
+        for (int i = 0; i < 20_000; i++) {
+            preprocessor.convertPixels();
+        }
+
+        // cost of the measurement itself
+        long start = threads.getThreadAllocatedBytes(id);
+        long overhead = threads.getThreadAllocatedBytes(id) - start;
+
+        start = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 100; i++) {
+            preprocessor.convertPixels();
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - start - overhead;
+        assertEquals(0, allocated);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RefCountedTest {
+
+    // Counts the models loaded and released instead of touching an interpreter.
+    private static class CountingFactory implements RefCounted.Factory<Object> {
+        int mCreated;
+        int mDestroyed;
+
+        @Override
+        public Object create() {
+            mCreated++;
+            return new Object();
+        }
+
+        @Override
+        public void destroy(Object value) {
+            assertNotNull(value);
+            mDestroyed++;
+        }
+    }
+
+    @Test
+    public void pauseResumeCycles_loadTheModelOnce() {
+        CountingFactory factory = new CountingFactory();
+        RefCounted<Object> engine = new RefCounted<>(factory);
+
+        // the view model holds one reference, every resumed activity another one
+        Object held = engine.acquire();
+        for (int cycle = 0; cycle < 10; cycle++) {
+            assertSame(held, engine.acquire());
+            engine.release();
+        }
+        assertEquals(1, factory.mCreated);
+        assertEquals(0, factory.mDestroyed);
+
+        engine.release();
+        assertEquals(1, factory.mCreated);
+        assertEquals(1, factory.mDestroyed);
+        assertEquals(0, engine.getRefCount());
+    }
+
+    @Test
+    public void release_destroysOnlyWithTheLastUser() {
+        CountingFactory factory = new CountingFactory();
+        RefCounted<Object> engine = new RefCounted<>(factory);
+        engine.acquire();
+        engine.acquire();
+        engine.release();
+        assertEquals(0, factory.mDestroyed);
+        engine.release();
+        assertEquals(1, factory.mDestroyed);
+    }
+
+    @Test
+    public void acquire_afterLastReleaseCreatesAgain() {
+        CountingFactory factory = new CountingFactory();
+        RefCounted<Object> engine = new RefCounted<>(factory);
+        Object first = engine.acquire();
+        engine.release();
+        assertNotSame(first, engine.acquire());
+        assertEquals(2, factory.mCreated);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void release_rejectsUnbalancedCalls() {
+        new RefCounted<>(new CountingFactory()).release();
+    }
+}
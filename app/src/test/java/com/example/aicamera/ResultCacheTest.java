@@ -0,0 +1,116 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ResultCacheTest {
+
+    private static final long TTL_NS = 1000;
+
+    private final int[] mIndices = new int[3];
+    private final float[] mScores = new float[3];
+
+    private static void put(ResultCache cache, long key, long nowNs, int label) {
+        cache.put(key, nowNs, new int[]{label, label + 1}, new float[]{0.8f, 0.1f}, 2);
+    }
+
+    @Test
+    public void get_returnsStoredResult() {
+        ResultCache cache = new ResultCache(4, 3, 0, TTL_NS);
+        assertEquals(ResultCache.MISS, cache.get(42L, 0, mIndices, mScores));
+        put(cache, 42L, 0, 7);
+        assertEquals(2, cache.get(42L, 1, mIndices, mScores));
+        assertEquals(7, mIndices[0]);
+        assertEquals(8, mIndices[1]);
+        assertEquals(0.8f, mScores[0], 0f);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void get_matchesWithinHammingTolerance() {
+        ResultCache cache = new ResultCache(4, 3, 2, TTL_NS);
+        put(cache, 0b1111L, 0, 1);
+        put(cache, 0xFF00L, 0, 5);
+        assertEquals(2, cache.get(0b1100L, 1, mIndices, mScores));
+        assertEquals(1, mIndices[0]);
+        assertEquals(ResultCache.MISS, cache.get(0b1000L, 1, mIndices, mScores));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        ResultCache cache = new ResultCache(2, 3, 0, TTL_NS);
+        put(cache, 1L, 0, 1);
+        put(cache, 2L, 0, 2);
+        cache.get(1L, 1, mIndices, mScores);
+        put(cache, 3L, 2, 3);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        assertEquals(ResultCache.MISS, cache.get(2L, 3, mIndices, mScores));
+        assertEquals(2, cache.get(1L, 3, mIndices, mScores));
+        assertEquals(2, cache.get(3L, 3, mIndices, mScores));
+    }
+
+    @Test
+    public void get_dropsExpiredEntries() {
+        ResultCache cache = new ResultCache(2, 3, 0, TTL_NS);
+        put(cache, 1L, 0, 1);
+        assertEquals(2, cache.get(1L, TTL_NS - 1, mIndices, mScores));
+        assertEquals(ResultCache.MISS, cache.get(1L, TTL_NS, mIndices, mScores));
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void put_keepsAtMostK() {
+        ResultCache cache = new ResultCache(2, 3, 0, TTL_NS);
+        cache.put(1L, 0, new int[]{1, 2, 3, 4}, new float[]{4, 3, 2, 1}, 4);
+        assertEquals(3, cache.get(1L, 0, mIndices, mScores));
+    }
+
+    @Test
+    public void randomOperations_matchReferenceLru() {
+        // colliding keys in a small table exercise probing and backward shift deletion
+        Random random = new Random(3);
+        int capacity = 8;
+        ResultCache cache = new ResultCache(capacity, 3, 0, Long.MAX_VALUE / 2);
+        LinkedHashMap<Long, Integer> reference = new LinkedHashMap<>(16, 0.75f, true);
+        for (int step = 0; step < 20000; step++) {
+            long key = random.nextInt(24) * 0x100000000L;
+            if (random.nextBoolean()) {
+                int label = random.nextInt(1000);
+                put(cache, key, step, label);
+                reference.put(key, label);
+                if (reference.size() > capacity) {
+                    reference.remove(reference.keySet().iterator().next());
+                }
+            } else {
+                Integer expected = reference.get(key);
+                int count = cache.get(key, step, mIndices, mScores);
+                if (expected == null) {
+                    assertEquals(ResultCache.MISS, count);
+                } else {
+                    assertEquals(2, count);
+                    assertEquals((int) expected, mIndices[0]);
+                }
+            }
+            assertEquals(reference.size(), cache.size());
+        }
+    }
+
+    @Test
+    public void clear_removesEverything() {
+        ResultCache cache = new ResultCache(2, 3, 0, TTL_NS);
+        put(cache, 1L, 0, 1);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(ResultCache.MISS, cache.get(1L, 0, mIndices, mScores));
+        put(cache, 2L, 0, 2);
+        put(cache, 3L, 0, 3);
+        assertEquals(2, cache.size());
+    }
+}
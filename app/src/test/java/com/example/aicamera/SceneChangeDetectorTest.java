@@ -0,0 +1,80 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SceneChangeDetectorTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final int ROW_STRIDE = 80;
+    private static final long MAX_AGE_NS = 1000000000L;
+
+    private static ByteBuffer frame(long seed, int offset) {
+        Random random = new Random(seed);
+        ByteBuffer luma = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int value = Math.min(255, Math.max(0, 64 + random.nextInt(128) + offset));
+                luma.put(y * ROW_STRIDE + x, (byte) value);
+            }
+        }
+        return luma;
+    }
+
+    private static SceneChangeDetector detector() {
+        return new SceneChangeDetector(8, 4, 4f, MAX_AGE_NS);
+    }
+
+    @Test
+    public void hasChanged_skipsIdenticalFrames() {
+        SceneChangeDetector detector = detector();
+        ByteBuffer luma = frame(1, 0);
+        assertTrue(detector.hasChanged(luma, ROW_STRIDE, WIDTH, HEIGHT, 0));
+        assertFalse(detector.hasChanged(luma, ROW_STRIDE, WIDTH, HEIGHT, 1000));
+        assertFalse(detector.hasChanged(luma, ROW_STRIDE, WIDTH, HEIGHT, 2000));
+        assertEquals(3, detector.getFrames());
+        assertEquals(2, detector.getSkippedFrames());
+        assertEquals(2 / 3f, detector.getSkipRate(), 1e-6f);
+    }
+
+    @Test
+    public void hasChanged_detectsNewScene() {
+        SceneChangeDetector detector = detector();
+        assertTrue(detector.hasChanged(frame(1, 0), ROW_STRIDE, WIDTH, HEIGHT, 0));
+        assertTrue(detector.hasChanged(frame(2, 0), ROW_STRIDE, WIDTH, HEIGHT, 1000));
+    }
+
+    @Test
+    public void hasChanged_ignoresSmallExposureChangesButAddsUpDrift() {
+        SceneChangeDetector detector = detector();
+        assertTrue(detector.hasChanged(frame(1, 0), ROW_STRIDE, WIDTH, HEIGHT, 0));
+        assertFalse(detector.hasChanged(frame(1, 2), ROW_STRIDE, WIDTH, HEIGHT, 1));
+        assertFalse(detector.hasChanged(frame(1, 4), ROW_STRIDE, WIDTH, HEIGHT, 2));
+        // still compared with the first frame, not the previous one
+        assertTrue(detector.hasChanged(frame(1, 6), ROW_STRIDE, WIDTH, HEIGHT, 3));
+    }
+
+    @Test
+    public void hasChanged_refreshesAfterMaxAge() {
+        SceneChangeDetector detector = detector();
+        ByteBuffer luma = frame(1, 0);
+        assertTrue(detector.hasChanged(luma, ROW_STRIDE, WIDTH, HEIGHT, 0));
+        assertFalse(detector.hasChanged(luma, ROW_STRIDE, WIDTH, HEIGHT, MAX_AGE_NS - 1));
+        assertTrue(detector.hasChanged(luma, ROW_STRIDE, WIDTH, HEIGHT, MAX_AGE_NS));
+        assertFalse(detector.hasChanged(luma, ROW_STRIDE, WIDTH, HEIGHT, MAX_AGE_NS + 1));
+    }
+
+    @Test
+    public void reset_forcesNextFrame() {
+        SceneChangeDetector detector = detector();
+        ByteBuffer luma = frame(1, 0);
+        detector.hasChanged(luma, ROW_STRIDE, WIDTH, HEIGHT, 0);
+        detector.reset();
+        assertTrue(detector.hasChanged(luma, ROW_STRIDE, WIDTH, HEIGHT, 1));
+    }
+}
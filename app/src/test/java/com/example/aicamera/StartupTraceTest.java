@@ -0,0 +1,37 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StartupTraceTest {
+
+    @Test
+    public void mark_reportsEachMilestoneOnce() {
+        final List<String> reported = new ArrayList<>();
+        StartupTrace trace = new StartupTrace(System.nanoTime(), new StartupTrace.Listener() {
+            @Override
+            public void onMilestone(String milestone, long elapsedMs) {
+                reported.add(milestone);
+            }
+        });
+        assertTrue(trace.mark(StartupTrace.MODEL_MAPPED));
+        assertTrue(trace.mark(StartupTrace.INTERPRETER_READY));
+        assertFalse(trace.mark(StartupTrace.MODEL_MAPPED));
+        assertEquals(2, reported.size());
+        assertEquals(StartupTrace.MODEL_MAPPED, reported.get(0));
+        assertEquals(StartupTrace.INTERPRETER_READY, reported.get(1));
+    }
+
+    @Test
+    public void getElapsedMs_measuresFromStart() {
+        StartupTrace trace = new StartupTrace(System.nanoTime() - 5000000000L, null);
+        assertEquals(-1, trace.getElapsedMs(StartupTrace.FIRST_LABEL));
+        trace.mark(StartupTrace.FIRST_LABEL);
+        long elapsedMs = trace.getElapsedMs(StartupTrace.FIRST_LABEL);
+        assertTrue(elapsedMs >= 5000 && elapsedMs < 60000);
+    }
+}
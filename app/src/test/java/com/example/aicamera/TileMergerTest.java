@@ -0,0 +1,56 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TileMergerTest {
+
+    @Test
+    public void merge_joinsNeighboursWithTheSameLabel() {
+        MultiCrop tiles = MultiCrop.grid(3, 0f, MultiCrop.MEAN);
+        // a cat over the left column, a dog in the bottom right corner
+        int[] labels = {1, 5, 5,
+                        1, 5, 5,
+                        1, 5, 2};
+        float[] scores = {0.6f, 0.05f, 0.05f,
+                          0.9f, 0.05f, 0.05f,
+                          0.7f, 0.05f, 0.8f};
+        TileMerger merger = new TileMerger(9, 4, 0.1f);
+        assertEquals(2, merger.merge(tiles, 3, labels, scores));
+
+        assertEquals(1, merger.getLabel(0));
+        assertEquals(0.9f, merger.getScore(0), 0f);
+        float third = 1f / 3;
+        float[] boxes = merger.getBoxes();
+        assertArrayEquals(new float[]{0f, 0f, third, 1f}, new float[]{boxes[0], boxes[1], boxes[2], boxes[3]}, 1e-6f);
+
+        assertEquals(2, merger.getLabel(1));
+        assertArrayEquals(new float[]{2 * third, 2 * third, 1f, 1f},
+                new float[]{boxes[4], boxes[5], boxes[6], boxes[7]}, 1e-6f);
+    }
+
+    @Test
+    public void merge_keepsTheMostConfidentRegions() {
+        MultiCrop tiles = MultiCrop.grid(2, 0.25f, MultiCrop.MEAN);
+        int[] labels = {1, 2, 3, 4};
+        float[] scores = {0.2f, 0.5f, 0.4f, 0.3f};
+        TileMerger merger = new TileMerger(4, 2, 0.1f);
+        assertEquals(2, merger.merge(tiles, 2, labels, scores));
+        assertEquals(2, merger.getLabel(0));
+        assertEquals(3, merger.getLabel(1));
+    }
+
+    @Test
+    public void merge_joinsAroundTheFirstTile() {
+        // the set is only connected through a tile after the first one of the label
+        MultiCrop tiles = MultiCrop.grid(2, 0f, MultiCrop.MEAN);
+        int[] labels = {1, 7, 7, 7};
+        float[] scores = {0.5f, 0.6f, 0.6f, 0.6f};
+        TileMerger merger = new TileMerger(4, 4, 0.1f);
+        assertEquals(2, merger.merge(tiles, 2, labels, scores));
+        assertEquals(7, merger.getLabel(0));
+        float[] boxes = merger.getBoxes();
+        assertArrayEquals(new float[]{0f, 0f, 1f, 1f}, new float[]{boxes[0], boxes[1], boxes[2], boxes[3]}, 1e-6f);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TileSchedulerTest {
+
+    private static final long TARGET_NS = 100_000_000L;
+
+    @Test
+    public void update_growsWhileTilesFitTheBudget() {
+        TileScheduler scheduler = new TileScheduler(3, TARGET_NS, 1f);
+        assertEquals(1, scheduler.getGridSize());
+        // 5 ms per tile, 9 tiles take 45 ms
+        assertEquals(3, scheduler.update(5_000_000L));
+        assertEquals(3, scheduler.update(45_000_000L));
+    }
+
+    @Test
+    public void update_shrinksWhenLatencyRises() {
+        TileScheduler scheduler = new TileScheduler(3, TARGET_NS, 1f);
+        scheduler.update(5_000_000L);
+        // 20 ms per tile: 4 tiles take 80 ms, 9 would take 180 ms
+        assertEquals(2, scheduler.update(9 * 20_000_000L));
+        // 60 ms per tile: a single tile is all that fits
+        assertEquals(1, scheduler.update(4 * 60_000_000L));
+    }
+
+    @Test
+    public void update_needsHeadroomToGrow() {
+        TileScheduler scheduler = new TileScheduler(3, TARGET_NS, 1f);
+        // 4 tiles at 24 ms fit, but not with 20% to spare
+        assertEquals(1, scheduler.update(24_000_000L));
+        assertEquals(2, scheduler.update(19_000_000L));
+        assertEquals(2, scheduler.update(4 * 24_000_000L));
+    }
+
+    @Test
+    public void update_averagesLatencies() {
+        TileScheduler scheduler = new TileScheduler(3, TARGET_NS, 0.5f);
+        scheduler.update(5_000_000L);
+        // a frame at 30 ms per tile only moves the average halfway: 9 x 17.5 ms is too slow, 4 x 17.5 ms is not
+        assertEquals(2, scheduler.update(9 * 30_000_000L));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TopKTest {
+
+    @Test
+    public void select_matchesFullSort() {
+        Random random = new Random(7);
+        float[] scores = new float[1000];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextFloat();
+        }
+        float[] sorted = scores.clone();
+        Arrays.sort(sorted);
+
+        TopK topK = new TopK(10);
+        assertEquals(10, topK.select(scores, 10));
+        for (int rank = 0; rank < 10; rank++) {
+            float expected = sorted[sorted.length - 1 - rank];
+            assertEquals(expected, topK.getScore(rank), 0f);
+            assertEquals(expected, scores[topK.getIndex(rank)], 0f);
+        }
+    }
+
+    @Test
+    public void select_prefersEarliestIndexOnTies() {
+        TopK topK = new TopK(3);
+        topK.select(new float[]{0.1f, 0.5f, 0.5f, 0.2f, 0.5f}, 2);
+        assertEquals(1, topK.getIndex(0));
+        assertEquals(2, topK.getIndex(1));
+    }
+
+    @Test
+    public void select_treatsBytesAsUnsigned() {
+        TopK topK = new TopK(2);
+        assertEquals(2, topK.select(new byte[]{10, (byte) 200, 127}, 2));
+        assertEquals(1, topK.getIndex(0));
+        assertEquals(200f, topK.getScore(0), 0f);
+        assertEquals(2, topK.getIndex(1));
+    }
+
+    @Test
+    public void select_returnsFewerWhenShort() {
+        TopK topK = new TopK(5);
+        assertEquals(2, topK.select(new float[]{0.3f, 0.7f}, 5));
+        assertEquals(1, topK.getIndex(0));
+        assertEquals(0, topK.getIndex(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void select_rejectsKAboveCapacity() {
+        new TopK(2).select(new float[]{1f, 2f, 3f}, 3);
+    }
+}
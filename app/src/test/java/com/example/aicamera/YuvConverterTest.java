@@ -0,0 +1,78 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class YuvConverterTest {
+
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 4;
+
+    // Y holds a distinct value per pixel so the sampled position can be read back from the output.
+    private static ByteBuffer lumaPlane(int rowStride) {
+        ByteBuffer plane = ByteBuffer.allocate(rowStride * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                plane.put(y * rowStride + x, (byte) (y * WIDTH + x));
+            }
+        }
+        return plane;
+    }
+
+    private static ByteBuffer chromaPlane(int rowStride, int value) {
+        ByteBuffer plane = ByteBuffer.allocate(rowStride * HEIGHT / 2);
+        for (int i = 0; i < plane.capacity(); i++) {
+            plane.put(i, (byte) value);
+        }
+        return plane;
+    }
+
+    private static int[] convert(int size, int rotation, ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride) {
+        Preprocessor preprocessor = new Preprocessor(size, size, 3, 1, 127.5f, 127.5f, true, 1);
+        YuvConverter converter = new YuvConverter(size, size);
+        ByteBuffer out = converter.convert(lumaPlane(WIDTH + 4), u, v, WIDTH + 4, uvRowStride, uvPixelStride,
+                WIDTH, HEIGHT, rotation, preprocessor);
+        int[] rgb = new int[size * size * 3];
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = out.get(i) & 0xFF;
+        }
+        return rgb;
+    }
+
+    @Test
+    public void convert_neutralChromaGivesGray() {
+        int[] rgb = convert(4, 0, chromaPlane(WIDTH, 128), chromaPlane(WIDTH, 128), WIDTH, 2);
+        for (int i = 0; i < rgb.length; i += 3) {
+            assertEquals(rgb[i], rgb[i + 1]);
+            assertEquals(rgb[i], rgb[i + 2]);
+        }
+        // center crop of the 8x4 frame starts at column 2
+        assertEquals(2, rgb[0]);
+        assertEquals(3 * WIDTH + 5, rgb[rgb.length - 1]);
+    }
+
+    @Test
+    public void convert_rotatesClockwise() {
+        int[] rgb = convert(4, 90, chromaPlane(WIDTH, 128), chromaPlane(WIDTH, 128), WIDTH, 2);
+        // after a clockwise turn the top-left output pixel comes from the bottom-left of the source crop
+        assertEquals(3 * WIDTH + 2, rgb[0]);
+        // and the top-right output pixel from the top-left
+        assertEquals(2, rgb[3 * 3]);
+    }
+
+    @Test
+    public void convert_appliesChroma() {
+        // planar chroma (pixel stride 1), strong red
+        int[] rgb = convert(2, 0, chromaPlane(WIDTH / 2, 128), chromaPlane(WIDTH / 2, 255), WIDTH / 2, 1);
+        assertTrue(rgb[0] > rgb[1]);
+        assertTrue(rgb[0] > rgb[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_rejectsOddRotation() {
+        convert(2, 45, chromaPlane(WIDTH, 128), chromaPlane(WIDTH, 128), WIDTH, 2);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class ZslRingTest {
+
+    private static void put(ZslRing ring, long timestamp, float sharpness) {
+        ZslRing.Frame frame = ring.obtain();
+        assertNotNull(frame);
+        frame.getData().put((byte) timestamp);
+        ring.commit(frame, timestamp, sharpness);
+    }
+
+    @Test
+    public void constructor_capsFramesToMemory() {
+        assertEquals(4, new ZslRing(4, 1000, 100).getCapacity());
+        ZslRing capped = new ZslRing(4, 250, 100);
+        assertEquals(2, capped.getCapacity());
+        assertEquals(200, capped.getMemory());
+        assertEquals(0, new ZslRing(4, 99, 100).getCapacity());
+    }
+
+    @Test
+    public void obtain_reusesOldestFrame() {
+        ZslRing ring = new ZslRing(3, Long.MAX_VALUE, 16);
+        put(ring, 10, 0);
+        put(ring, 20, 0);
+        put(ring, 30, 0);
+        ZslRing.Frame reused = ring.obtain();
+        ring.commit(reused, 40, 0);
+        assertEquals(40, ring.getNewestTimestamp());
+        // 10 was overwritten, 20 is now the oldest and nearest to 0
+        ZslRing.Frame oldest = ring.acquire(0, 0, ZslRing.NEAREST);
+        assertEquals(20, oldest.getTimestamp());
+    }
+
+    @Test
+    public void acquire_takesNearestOrSharpestInWindow() {
+        ZslRing ring = new ZslRing(4, Long.MAX_VALUE, 16);
+        put(ring, 100, 5);
+        put(ring, 200, 9);
+        put(ring, 300, 1);
+        put(ring, 400, 2);
+
+        ZslRing.Frame nearest = ring.acquire(310, 50, ZslRing.NEAREST);
+        assertEquals(300, nearest.getTimestamp());
+        ring.release(nearest);
+        ZslRing.Frame sharpest = ring.acquire(310, 120, ZslRing.SHARPEST);
+        assertEquals(200, sharpest.getTimestamp());
+        ring.release(sharpest);
+        // 100 and 200 are sharper but outside the window
+        ZslRing.Frame windowed = ring.acquire(410, 120, ZslRing.SHARPEST);
+        assertEquals(400, windowed.getTimestamp());
+        ring.release(windowed);
+        // nothing in the window falls back to the nearest
+        ZslRing.Frame fallback = ring.acquire(1000, 10, ZslRing.SHARPEST);
+        assertEquals(400, fallback.getTimestamp());
+    }
+
+    @Test
+    public void obtain_skipsLockedFramesAndDropsWhenAllAre() {
+        ZslRing ring = new ZslRing(2, Long.MAX_VALUE, 16);
+        put(ring, 10, 0);
+        put(ring, 20, 0);
+        ZslRing.Frame locked = ring.acquire(10, 0, ZslRing.NEAREST);
+        // the locked frame is the oldest, yet the new one goes into the other
+        ZslRing.Frame next = ring.obtain();
+        ring.commit(next, 30, 0);
+        assertEquals(10, locked.getTimestamp());
+        assertEquals((byte) 10, locked.getData().get(0));
+
+        ZslRing.Frame other = ring.acquire(30, 0, ZslRing.NEAREST);
+        assertNull(ring.obtain());
+        assertNull(ring.acquire(30, 0, ZslRing.NEAREST));
+        ring.release(other);
+        ring.release(locked);
+        assertNotNull(ring.obtain());
+    }
+
+    @Test
+    public void sharpness_growsWithEdgeContrast() {
+        int width = 16;
+        int height = 16;
+        ByteBuffer flat = ByteBuffer.allocate(width * height);
+        ByteBuffer soft = ByteBuffer.allocate(width * height);
+        ByteBuffer sharp = ByteBuffer.allocate(width * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                flat.put(y * width + x, (byte) 128);
+                soft.put(y * width + x, (byte) (x * 8));
+                sharp.put(y * width + x, (byte) ((x % 2 == 0) ? 0 : 200));
+            }
+        }
+        float none = ZslRing.sharpness(flat, 0, width, width, height, 1);
+        float low = ZslRing.sharpness(soft, 0, width, width, height, 1);
+        float high = ZslRing.sharpness(sharp, 0, width, width, height, 1);
+        assertEquals(0f, none, 0f);
+        assertTrue(low > none);
+        assertTrue(high > low);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.aicamera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CameraSizesBenchmark {
+
+    // The output sizes of a typical back camera, largest first as the camera lists them
+    private static final int[] SIZES = {
+            4032, 3024, 4032, 2268, 3024, 3024, 3840, 2160, 3264, 2448, 3264, 1836, 2560, 1440,
+            2048, 1536, 1920, 1440, 1920, 1080, 1600, 1200, 1440, 1080, 1280, 960, 1280, 720,
+            1024, 768, 960, 720, 800, 600, 720, 480, 640, 480, 352, 288, 320, 240, 176, 144};
+
+    // 16:9, 4:3 and the 19.5:9 of a tall screen
+    @Param({"1.7777777777777777", "1.3333333333333333", "2.1666666666666665"})
+    public double ratio;
+
+    @Benchmark
+    public int[] calculateRatio() {
+        return CameraSizes.calculateRatio(ratio);
+    }
+
+    @Benchmark
+    public int chooseOptimalSize() {
+        return CameraSizes.chooseOptimalSize(SIZES, 1080, 1920, (int) Math.round(1000 * ratio), 1000);
+    }
+}
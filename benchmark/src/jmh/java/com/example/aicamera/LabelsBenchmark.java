@@ -0,0 +1,105 @@
+package com.example.aicamera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Loading the labels as text against mapping their table. The gc profiler reports the heap each load
+// allocates as gc.alloc.rate.norm: all of it stays reachable for the list, the table keeps its header.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LabelsBenchmark {
+
+    // The ImageNet labels shipped with the app, and as many as ImageNet-21k has
+    @Param({"1000", "21841"})
+    public int count;
+
+    private byte[] mLabels;
+    private LabelTable mTable;
+    private File mTableFile;
+
+    // The label list read into memory so that only parsing is measured, and its table in a file, which
+    // stays in the page cache like an asset that was mapped before.
+    @Setup
+    public void setup() throws IOException {
+        InputStream in = LabelsBenchmark.class.getResourceAsStream("/imagenet_labels_1000.txt");
+        List<String> imagenet;
+        try {
+            imagenet = Labels.read(in);
+        } finally {
+            in.close();
+        }
+        List<String> labels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String label = imagenet.get(i % imagenet.size());
+            labels.add((i < imagenet.size()) ? label : label + " " + (i / imagenet.size()));
+        }
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        for (String label : labels) {
+            byte[] bytes = (label + "\n").getBytes(StandardCharsets.UTF_8);
+            text.write(bytes, 0, bytes.length);
+        }
+        mLabels = text.toByteArray();
+
+        mTableFile = File.createTempFile("labels", LabelTable.EXTENSION);
+        OutputStream out = new FileOutputStream(mTableFile);
+        try {
+            out.write(LabelTable.encode(labels));
+        } finally {
+            out.close();
+        }
+        mTable = mapTable();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mTableFile.delete();
+    }
+
+    // The five labels of a displayed result.
+    @Benchmark
+    public String lookUp() {
+        String last = null;
+        for (int i = 0; i < 5; i++) {
+            last = mTable.get((i * 7919) % count);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public LabelTable mapTable() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(mTableFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            return LabelTable.wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            file.close();
+        }
+    }
+
+    @Benchmark
+    public List<String> read() throws IOException {
+        return Labels.read(new ByteArrayInputStream(mLabels));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.aicamera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NonMaxSuppressionBenchmark {
+
+    // From a post-processed SSD output to the raw anchors of a larger detector
+    @Param({"1000", "5000", "10000"})
+    public int candidates;
+
+    // Share of the candidates over the score threshold
+    @Param({"0.1", "1.0"})
+    public float passing;
+
+    private float[] mBoxes;
+    private int[] mClasses;
+    private NonMaxSuppression mNms;
+    private float[] mScores;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        mBoxes = new float[4 * candidates];
+        mScores = new float[candidates];
+        mClasses = new int[candidates];
+        for (int i = 0; i < candidates; i++) {
+            // boxes cluster around a few objects, as anchors do
+            float x = (random.nextInt(8) + random.nextFloat()) / 9;
+            float y = (random.nextInt(8) + random.nextFloat()) / 9;
+            mBoxes[4 * i] = x;
+            mBoxes[4 * i + 1] = y;
+            mBoxes[4 * i + 2] = x + 0.05f + 0.1f * random.nextFloat();
+            mBoxes[4 * i + 3] = y + 0.05f + 0.1f * random.nextFloat();
+            mScores[i] = random.nextFloat() < passing ? 0.5f + random.nextFloat() / 2 : random.nextFloat() / 2;
+            mClasses[i] = random.nextInt(90);
+        }
+        mNms = new NonMaxSuppression(candidates, 10, 0.5f, 0.5f);
+    }
+
+    @Benchmark
+    public int classAware() {
+        return mNms.select(mBoxes, mScores, mClasses, candidates);
+    }
+
+    @Benchmark
+    public int classAgnostic() {
+        return mNms.select(mBoxes, mScores, null, candidates);
+    }
+}
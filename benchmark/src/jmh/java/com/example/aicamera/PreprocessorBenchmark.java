@@ -0,0 +1,59 @@
+package com.example.aicamera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PreprocessorBenchmark {
+
+    // MobileNet and EfficientNet-Lite4 input sizes
+    @Param({"224", "300"})
+    public int size;
+
+    // float models normalize, full integer models quantize to uint8 or int8
+    @Param({"float", "uint8", "int8"})
+    public String type;
+
+    private Preprocessor mPreprocessor;
+
+    @Setup
+    public void setup() {
+        boolean isQuantized = !type.equals("float");
+        mPreprocessor = new Preprocessor(size, size, 3, 1, 127.5f, 127.5f, isQuantized,
+                1 / 128f, type.equals("int8") ? 0 : 128, type.equals("int8"), 1000);
+        Random random = new Random(42);
+        int[] pixels = mPreprocessor.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+    }
+
+    // The pixels of a bitmap into the model input, as Classifier.classify(Bitmap) does.
+    @Benchmark
+    public ByteBuffer convertPixels() {
+        return mPreprocessor.convertPixels();
+    }
+
+    // Row by row, as the YUV converter feeds every camera frame.
+    @Benchmark
+    public ByteBuffer putRows() {
+        int[] pixels = mPreprocessor.getPixels();
+        mPreprocessor.beginFrame();
+        for (int row = 0; row < size; row++) {
+            mPreprocessor.putRow(pixels, row * size);
+        }
+        return mPreprocessor.endFrame();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.aicamera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SceneChangeDetectorBenchmark {
+
+    // Square luma planes, the model input size and a small thumbnail
+    @Param({"224", "64"})
+    public int size;
+
+    private SceneChangeDetector mDetector;
+    private ByteBuffer[] mFrames;
+    private int mNext;
+    private long mTimestampNs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        // two alternating frames, so every call sees a change; hasChangedStill never does
+        mFrames = new ByteBuffer[2];
+        for (int f = 0; f < mFrames.length; f++) {
+            mFrames[f] = ByteBuffer.allocateDirect(size * size);
+            for (int i = 0; i < size * size; i++) {
+                mFrames[f].put(i, (byte) random.nextInt(256));
+            }
+        }
+        mDetector = new SceneChangeDetector(16, 4, 4f, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public boolean hasChanged() {
+        mNext ^= 1;
+        return mDetector.hasChanged(mFrames[mNext], size, size, size, mTimestampNs++);
+    }
+
+    @Benchmark
+    public boolean hasChangedStill() {
+        return mDetector.hasChanged(mFrames[0], size, size, size, mTimestampNs++);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.aicamera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TopKBenchmark {
+
+    // ImageNet-1k and ImageNet-21k sized outputs
+    @Param({"1000", "21843"})
+    public int classes;
+
+    @Param({"1", "5", "10"})
+    public int k;
+
+    private byte[] mByteScores;
+    private float[] mFloatScores;
+    private TopK mTopK;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        mFloatScores = new float[classes];
+        mByteScores = new byte[classes];
+        for (int i = 0; i < classes; i++) {
+            mFloatScores[i] = random.nextFloat() / classes;
+            mByteScores[i] = (byte) random.nextInt(64);
+        }
+        mTopK = new TopK(10);
+    }
+
+    // The former Classifier.getTopResultFloat, repeated k times with the winner removed to get k results.
+    @Benchmark
+    public void legacyFloat(Blackhole blackhole) {
+        List<Float> list = new ArrayList<>(mFloatScores.length);
+        for (float f : mFloatScores) {
+            list.add(f);
+        }
+        for (int i = 0; i < k; i++) {
+            Float value = Collections.max(list);
+            int index = list.indexOf(value);
+            list.set(index, Float.NEGATIVE_INFINITY);
+            blackhole.consume(index);
+        }
+    }
+
+    // The former Classifier.getTopResultByte, repeated k times with the winner removed to get k results.
+    @Benchmark
+    public void legacyByte(Blackhole blackhole) {
+        List<Byte> list = new ArrayList<>(mByteScores.length);
+        for (byte b : mByteScores) {
+            list.add(b);
+        }
+        for (int i = 0; i < k; i++) {
+            Byte value = Collections.max(list);
+            int index = list.indexOf(value);
+            list.set(index, Byte.MIN_VALUE);
+            blackhole.consume(index);
+        }
+    }
+
+    @Benchmark
+    public int topKFloat() {
+        return mTopK.select(mFloatScores, k) + mTopK.getIndex(0);
+    }
+
+    @Benchmark
+    public int topKByte() {
+        return mTopK.select(mByteScores, k) + mTopK.getIndex(0);
+    }
+}
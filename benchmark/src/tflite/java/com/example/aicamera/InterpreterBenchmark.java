@@ -0,0 +1,82 @@
+package com.example.aicamera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InterpreterBenchmark {
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Interpreter mInterpreter;
+    private boolean mIsQuantized;
+    private Preprocessor mPreprocessor;
+
+    // The classifier given by the tflite.model system property, fed random pixels like Classifier feeds a bitmap.
+    @Setup
+    public void setup() throws IOException {
+        String modelPath = System.getProperty("tflite.model", "");
+        if (modelPath.isEmpty()) {
+            throw new IllegalStateException("Pass the model with -PtfliteModel=<path to a .tflite classifier>");
+        }
+        RandomAccessFile file = new RandomAccessFile(modelPath, "r");
+        MappedByteBuffer model;
+        try {
+            model = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } finally {
+            file.close();
+        }
+        mInterpreter = new Interpreter(model, new Interpreter.Options().setNumThreads(threads));
+
+        Tensor input = mInterpreter.getInputTensor(0);
+        Tensor output = mInterpreter.getOutputTensor(0);
+        int[] shape = input.shape();
+        mIsQuantized = input.dataType() != DataType.FLOAT32;
+        mPreprocessor = new Preprocessor(shape[2], shape[1], shape[3], 1, 127.5f, 127.5f, mIsQuantized,
+                input.quantizationParams().getScale(), input.quantizationParams().getZeroPoint(),
+                input.dataType() == DataType.INT8, output.shape()[output.numDimensions() - 1]);
+        Random random = new Random(42);
+        int[] pixels = mPreprocessor.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mInterpreter.close();
+    }
+
+    // Preprocessing and the interpreter, the work of one classified frame.
+    @Benchmark
+    public Object classify() {
+        if (mIsQuantized) {
+            byte[][] output = mPreprocessor.getLabelProbArrayByte(1);
+            mInterpreter.run(mPreprocessor.convertPixels(), output);
+            return output;
+        }
+        float[][] output = mPreprocessor.getLabelProbArrayFloat(1);
+        mInterpreter.run(mPreprocessor.convertPixels(), output);
+        return output;
+    }
+}
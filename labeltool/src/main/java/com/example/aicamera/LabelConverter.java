@@ -0,0 +1,41 @@
+package com.example.aicamera;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+class LabelConverter {
+
+    // METHODS
+    // Converts label lists into tables at build time: the output directory, then the text files, one label
+    // per line. Each table is named after its text file with the LabelTable.EXTENSION in place of .txt.
+    public static void main(String[] args) throws IOException {
+        File outputDir = new File(args[0]);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Could not create " + outputDir);
+        }
+        for (int i = 1; i < args.length; i++) {
+            File text = new File(args[i]);
+            List<String> labels;
+            InputStream in = new FileInputStream(text);
+            try {
+                labels = Labels.read(in);
+            } finally {
+                in.close();
+            }
+            File table = new File(outputDir, LabelTable.tableName(text.getName()));
+            OutputStream out = new FileOutputStream(table);
+            try {
+                out.write(LabelTable.encode(labels));
+            } finally {
+                out.close();
+            }
+            System.out.println(text + ": " + labels.size() + " labels into " + table);
+        }
+    }
+
+}
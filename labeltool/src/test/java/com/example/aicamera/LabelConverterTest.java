@@ -0,0 +1,44 @@
+package com.example.aicamera;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class LabelConverterTest {
+
+    @Test
+    public void main_convertsLabelListsIntoMappableTables() throws IOException {
+        File dir = File.createTempFile("labels", "");
+        dir.delete();
+        File text = new File(dir.getPath() + "_imagenet_labels.txt");
+        OutputStream out = new FileOutputStream(text);
+        out.write("tench\ngoldfish\ngreat white shark\n".getBytes(StandardCharsets.UTF_8));
+        out.close();
+        try {
+            LabelConverter.main(new String[]{dir.getPath(), text.getPath()});
+            File converted = new File(dir, LabelTable.tableName(text.getName()));
+            assertTrue(converted.getName().endsWith("_imagenet_labels.lbl"));
+            RandomAccessFile file = new RandomAccessFile(converted, "r");
+            try {
+                FileChannel channel = file.getChannel();
+                LabelTable table = LabelTable.wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                assertEquals(3, table.size());
+                assertEquals("goldfish", table.get(1));
+            } finally {
+                file.close();
+            }
+            converted.delete();
+        } finally {
+            text.delete();
+            dir.delete();
+        }
+    }
+}